@@ -0,0 +1,28 @@
+-- Índices para las consultas frecuentes sobre DailyEvent, FarmBatch, Breed y Projection.
+--
+-- Son los mismos que declaran las entidades con @Table(indexes = ...). En una base
+-- nueva los crea Hibernate al arrancar; en una base PostgreSQL existente con muchos
+-- eventos conviene lanzar este script antes de desplegar, porque CONCURRENTLY crea
+-- cada índice sin bloquear las escrituras. Hibernate los encuentra luego por nombre
+-- y no vuelve a crearlos.
+--
+-- CREATE INDEX CONCURRENTLY no puede ir dentro de una transacción: ejecutar con
+--   psql -d chickenSuitedb -f db/postgresql/001-indices.sql
+-- (psql confirma cada sentencia por separado). Si una creación se interrumpe queda
+-- un índice INVALID; hay que borrarlo con DROP INDEX CONCURRENTLY y repetir.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_dailyevent_lote_fecha ON dailyevent (lote_oid, fecha);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_dailyevent_lote_tipo_fecha ON dailyevent (lote_oid, tipo, fecha);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_dailyevent_fecha ON dailyevent (fecha);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_farmbatch_codigo ON farmbatch (codigo);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_farmbatch_etapa ON farmbatch (etapa);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_breed_especie ON breed (especie_oid);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_projection_lote ON projection (lote_oid);
+
+ANALYZE dailyevent;
+ANALYZE farmbatch;
+ANALYZE breed;
+ANALYZE projection;
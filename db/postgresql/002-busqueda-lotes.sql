@@ -0,0 +1,15 @@
+-- Índice para la búsqueda de lotes por prefijo del código (editor LoteBusqueda,
+-- servlet /buscarLotes). La consulta es
+--   where upper(codigo) like 'L-12%' and (etapa is null or etapa <> 'VENDIDO') order by upper(codigo)
+-- text_pattern_ops permite usar el índice con LIKE por prefijo aunque la base no
+-- tenga collation C, y al ser parcial solo contiene los lotes en curso, que son los
+-- que se eligen al registrar eventos y proyecciones.
+--
+-- Igual que 001-indices.sql, ejecutar fuera de una transacción:
+--   psql -d chickenSuitedb -f db/postgresql/002-busqueda-lotes.sql
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_farmbatch_codigo_activos
+    ON farmbatch (upper(codigo) text_pattern_ops)
+    WHERE etapa IS NULL OR etapa <> 'VENDIDO';
+
+ANALYZE farmbatch;
@@ -0,0 +1,14 @@
+-- Índice para la colección de eventos paginada de FarmBatch (editor EventosPaginados,
+-- servlet /eventosLote). Cada página se pide como
+--   where lote_oid = ? and (fecha > ? or (fecha = ? and oid > ?)) order by fecha, oid
+-- y con oid al final del índice se resuelve con un recorrido del índice que se
+-- detiene al llenar la página, sin ordenar todos los eventos del lote.
+--
+-- Sustituye a idx_dailyevent_lote_fecha, que queda cubierto por el nuevo. Igual
+-- que 001-indices.sql, ejecutar fuera de una transacción:
+--   psql -d chickenSuitedb -f db/postgresql/003-paginacion-eventos.sql
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_dailyevent_lote_fecha_oid ON dailyevent (lote_oid, fecha, oid);
+DROP INDEX CONCURRENTLY IF EXISTS idx_dailyevent_lote_fecha;
+
+ANALYZE dailyevent;
@@ -0,0 +1,10 @@
+-- Columna de bloqueo optimista de FarmBatch (@Version). ServicioMortalidad la
+-- incrementa en el mismo UPDATE que descuenta las aves vivas, así una edición del
+-- lote desde la vista que se cruce con un registro de mortalidad falla en lugar de
+-- devolver cantidadVivaActual a un valor antiguo.
+--
+-- La actualización automática del esquema no puede añadir una columna NOT NULL a
+-- una tabla con filas; ejecutar antes de desplegar:
+--   psql -d chickenSuitedb -f db/postgresql/004-version-lote.sql
+
+ALTER TABLE farmbatch ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
@@ -0,0 +1,28 @@
+-- Tabla BatchKPI (totales por lote que mantiene DailyEventKPIListener sumando
+-- deltas) y su carga inicial desde DailyEvent.
+--
+-- Hibernate crea la tabla vacía al arrancar, pero los lotes que ya existían no
+-- tendrían fila. Este script la crea si hace falta y escribe los totales de todos
+-- los lotes; si la fila existe la sobrescribe, así que también corrige filas con
+-- totales parciales. Ejecutar antes de desplegar, sin importaciones en curso:
+--   psql -d chickenSuitedb -1 -f db/postgresql/005-batchkpi.sql
+
+CREATE TABLE IF NOT EXISTS batchkpi (
+    oid varchar(32) NOT NULL PRIMARY KEY,
+    totalkilogramosalimento numeric(19, 3),
+    totalmuertos bigint NOT NULL,
+    totalcosto numeric(19, 2),
+    cantidadeventos bigint NOT NULL
+);
+
+INSERT INTO batchkpi (oid, totalkilogramosalimento, totalmuertos, totalcosto, cantidadeventos)
+SELECT f.oid, coalesce(sum(e.kilogramosalimento), 0), coalesce(sum(e.muertos), 0), coalesce(sum(e.costo), 0), count(e.oid)
+FROM farmbatch f LEFT JOIN dailyevent e ON e.lote_oid = f.oid
+GROUP BY f.oid
+ON CONFLICT (oid) DO UPDATE SET
+    totalkilogramosalimento = excluded.totalkilogramosalimento,
+    totalmuertos = excluded.totalmuertos,
+    totalcosto = excluded.totalcosto,
+    cantidadeventos = excluded.cantidadeventos;
+
+ANALYZE batchkpi;
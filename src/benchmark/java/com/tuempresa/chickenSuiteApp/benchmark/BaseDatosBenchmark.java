@@ -0,0 +1,127 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.enums.*;
+import com.tuempresa.chickenSuiteApp.modelo.*;
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Base de datos HSQLDB en memoria (unidad de persistencia "benchmark") con un
+ * catálogo pequeño, LOTES lotes y dos lotes de referencia: uno con
+ * EVENTOS_LOTE_GRANDE eventos y otro con 5. Los demás lotes tienen un evento
+ * cada uno, para las listas de eventos de lotes distintos, y todos una
+ * proyección.
+ */
+@State(Scope.Benchmark)
+public class BaseDatosBenchmark {
+
+    public static final int LOTES = 2000;
+    public static final int EVENTOS_LOTE_GRANDE = 5000;
+
+    String loteGrandeOid;
+    String lotePequenoOid;
+    List<String> otrosLotesOids = new ArrayList<>();
+    String razaOid;
+    String especieOid;
+
+    @Setup(Level.Trial)
+    public void crear() throws Exception {
+        usarUnidadBenchmark();
+        EntityManager manager = XPersistence.getManager();
+        Species especie = new Species();
+        especie.setNombre("Gallina");
+        manager.persist(especie);
+        Breed[] razas = new Breed[2];
+        for (int i = 0; i < razas.length; i++) {
+            razas[i] = new Breed();
+            razas[i].setNombre("Raza " + i);
+            razas[i].setEspecie(especie);
+            razas[i].setProposito(i == 0 ? Purpose.CARNE : Purpose.HUEVO);
+            razas[i].setDiasCrecimientoEstandar(42);
+            manager.persist(razas[i]);
+        }
+        Stage[] etapas = Stage.values();
+        for (int i = 0; i < LOTES; i++) {
+            FarmBatch lote = nuevoLote(String.format("L-%05d", i), especie, razas[i % 2], etapas[i % etapas.length]);
+            manager.persist(lote);
+            manager.persist(nuevaProyeccion(lote));
+            if (i == 0) loteGrandeOid = lote.getOid();
+            if (i == 1) lotePequenoOid = lote.getOid();
+            if (i > 1) otrosLotesOids.add(lote.getOid());
+            if (i % 500 == 499) {
+                manager.flush();
+                manager.clear();
+                especie = manager.find(Species.class, especie.getOid());
+                razas[0] = manager.find(Breed.class, razas[0].getOid());
+                razas[1] = manager.find(Breed.class, razas[1].getOid());
+            }
+        }
+        especieOid = especie.getOid();
+        razaOid = razas[0].getOid();
+        manager.unwrap(Session.class).doWork(conexion -> {
+            try (EscritorEventos escritor = new EscritorEventos(conexion)) {
+                LocalDate inicio = LocalDate.of(2024, 1, 1);
+                for (int i = 0; i < EVENTOS_LOTE_GRANDE; i++) {
+                    escritor.agregar(evento(loteGrandeOid, inicio.plusDays(i / 4)));
+                    if (i < 5) escritor.agregar(evento(lotePequenoOid, inicio.plusDays(i)));
+                    if (escritor.getPendientes() >= 1000) escritor.vaciar();
+                }
+                for (String oid: otrosLotesOids) {
+                    escritor.agregar(evento(oid, inicio.plusDays(EVENTOS_LOTE_GRANDE)));
+                    if (escritor.getPendientes() >= 1000) escritor.vaciar();
+                }
+                escritor.vaciar();
+            }
+        });
+        XPersistence.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        XPersistence.commit();
+    }
+
+    /**
+     * La unidad de persistencia de XPersistence es por hilo; cada hilo de JMH la
+     * fija antes de usar el EntityManager.
+     */
+    static void usarUnidadBenchmark() {
+        if (!"benchmark".equals(XPersistence.getPersistenceUnit())) XPersistence.setPersistenceUnit("benchmark");
+    }
+
+    static FarmBatch nuevoLote(String codigo, Species especie, Breed raza, Stage etapa) {
+        FarmBatch lote = new FarmBatch();
+        lote.setCodigo(codigo);
+        lote.setEspecie(especie);
+        lote.setRaza(raza);
+        lote.setCantidadInicial(10000);
+        lote.setCantidadVivaActual(9700);
+        lote.setPesoObjetivoGramos(2600);
+        lote.setFechaInicio(LocalDate.of(2024, 1, 1));
+        lote.setEtapa(etapa);
+        return lote;
+    }
+
+    static Projection nuevaProyeccion(FarmBatch lote) {
+        Projection proyeccion = new Projection();
+        proyeccion.setLote(lote);
+        proyeccion.setPrecioEsperadoPorKilogramo(new BigDecimal("1.85"));
+        proyeccion.setCostosEstimados(new BigDecimal("41230.00"));
+        proyeccion.setPesoVivoEstimadoKilogramos(new BigDecimal("28462.50"));
+        return proyeccion;
+    }
+
+    private static RegistroEvento evento(String loteOid, LocalDate fecha) {
+        return new RegistroEvento(GeneradorIdOrdenado.siguiente(), loteOid, fecha, EventType.ALIMENTACION,
+            new BigDecimal("125.40"), 0, new BigDecimal("310.500"), null);
+    }
+}
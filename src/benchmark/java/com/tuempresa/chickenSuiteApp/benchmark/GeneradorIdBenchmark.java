@@ -0,0 +1,37 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+
+/**
+ * Coste de generar un oid con GeneradorIdOrdenado frente al UUID aleatorio que
+ * usaba la estrategia "uuid" de Hibernate, con uno y con varios hilos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneradorIdBenchmark {
+
+    @Benchmark
+    public String ordenado() {
+        return GeneradorIdOrdenado.siguiente();
+    }
+
+    @Benchmark
+    public String aleatorio() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String ordenadoConcurrente() {
+        return GeneradorIdOrdenado.siguiente();
+    }
+}
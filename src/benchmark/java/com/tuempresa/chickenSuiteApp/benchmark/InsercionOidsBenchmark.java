@@ -0,0 +1,144 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.hibernate.id.UUIDHexGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+
+/**
+ * Inserción de filas de DailyEvent (mismas columnas e índices: clave primaria e
+ * idx_dailyevent_lote_fecha_oid) en una tabla vacía con tres formas de oid: el
+ * UUID aleatorio, la estrategia "uuid" de Hibernate que se usaba antes y
+ * GeneradorIdOrdenado. Cada iteración crea la tabla, inserta las filas en grupos
+ * de 1000 como EscritorEventos y mide filas por segundo.
+ *
+ * Por defecto usa HSQLDB en memoria, que solo da la velocidad. Para el tamaño de
+ * los índices hay que lanzarlo contra PostgreSQL (HSQLDB guarda los nodos de
+ * índice dentro de las filas y no tiene tamaño por índice):
+ *   -Dbenchmark.url=jdbc:postgresql://localhost/pruebas -Dbenchmark.usuario=... -Dbenchmark.clave=...
+ * Los contadores de JMH se suman entre iteraciones, por eso solo se mide una.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(1)
+public class InsercionOidsBenchmark {
+
+    private static final int TAMANO_GRUPO = 1000;
+    private static final int LOTES = 2000;
+    private static final String TABLA = "oidsbenchmark";
+
+    private static final String INSERTAR = "insert into " + TABLA +
+        " (oid, lote_oid, fecha, tipo, costo, muertos, kilogramosAlimento, notas) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Param({"aleatorio", "uuidHibernate", "ordenado"})
+    String oids;
+
+    @Param({"200000"})
+    int filas;
+
+    Connection conexion;
+    Supplier<String> generador;
+    String[] lotes = new String[LOTES];
+    boolean postgresql;
+
+    /** Resultados de la iteración medida. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resultados {
+        public long filasPorSegundo;
+        public long bytesClavePrimaria;
+        public long bytesIndiceLote;
+        public long bytesTabla;
+    }
+
+    @Setup(Level.Trial)
+    public void conectar() throws SQLException {
+        String url = System.getProperty("benchmark.url", "jdbc:hsqldb:mem:oids");
+        conexion = DriverManager.getConnection(url,
+            System.getProperty("benchmark.usuario", "sa"), System.getProperty("benchmark.clave", ""));
+        conexion.setAutoCommit(false);
+        postgresql = url.startsWith("jdbc:postgresql:");
+        UUIDHexGenerator uuidHibernate = new UUIDHexGenerator();
+        switch (oids) {
+            case "aleatorio": generador = () -> UUID.randomUUID().toString().replace("-", ""); break;
+            case "uuidHibernate": generador = () -> (String) uuidHibernate.generate(null, null); break;
+            default: generador = GeneradorIdOrdenado::siguiente;
+        }
+        // Los lotes se crearon antes que sus eventos, con la misma forma de oid
+        for (int i = 0; i < LOTES; i++) lotes[i] = generador.get();
+    }
+
+    @Setup(Level.Iteration)
+    public void crearTabla() throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("drop table if exists " + TABLA);
+            sentencia.execute("create table " + TABLA + " (oid varchar(32) not null primary key, lote_oid varchar(32) not null, " +
+                "fecha date, tipo varchar(20), costo numeric(19, 2), muertos integer not null, " +
+                "kilogramosAlimento numeric(19, 3), notas varchar(255))");
+            sentencia.execute("create index " + TABLA + "_lote_fecha_oid on " + TABLA + " (lote_oid, fecha, oid)");
+        }
+        conexion.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("drop table if exists " + TABLA);
+        }
+        conexion.commit();
+        conexion.close();
+    }
+
+    /**
+     * Un día de eventos de todos los lotes detrás de otro, como llegan del campo.
+     */
+    @Benchmark
+    public void insertar(Resultados resultados) throws SQLException {
+        long inicio = System.nanoTime();
+        LocalDate primerDia = LocalDate.of(2025, 1, 1);
+        BigDecimal costo = new BigDecimal("12.50");
+        BigDecimal kilogramos = new BigDecimal("150.000");
+        try (PreparedStatement sentencia = conexion.prepareStatement(INSERTAR)) {
+            for (int i = 0; i < filas; i++) {
+                sentencia.setString(1, generador.get());
+                sentencia.setString(2, lotes[i % LOTES]);
+                sentencia.setDate(3, Date.valueOf(primerDia.plusDays(i / LOTES)));
+                sentencia.setString(4, EventType.ALIMENTACION.name());
+                sentencia.setBigDecimal(5, costo);
+                sentencia.setInt(6, 0);
+                sentencia.setBigDecimal(7, kilogramos);
+                sentencia.setString(8, null);
+                sentencia.addBatch();
+                if ((i + 1) % TAMANO_GRUPO == 0 || i + 1 == filas) {
+                    sentencia.executeBatch();
+                    conexion.commit();
+                }
+            }
+        }
+        resultados.filasPorSegundo = filas * 1_000_000_000L / (System.nanoTime() - inicio);
+        if (postgresql) medirTamanos(resultados);
+    }
+
+    private void medirTamanos(Resultados resultados) throws SQLException {
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery("select pg_relation_size('" + TABLA + "_pkey'), " +
+                 "pg_relation_size('" + TABLA + "_lote_fecha_oid'), pg_relation_size('" + TABLA + "')")) {
+            rs.next();
+            resultados.bytesClavePrimaria = rs.getLong(1);
+            resultados.bytesIndiceLote = rs.getLong(2);
+            resultados.bytesTabla = rs.getLong(3);
+        }
+        conexion.commit();
+    }
+}
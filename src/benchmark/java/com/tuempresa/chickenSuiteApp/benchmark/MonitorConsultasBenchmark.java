@@ -0,0 +1,102 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.MonitorConsultas;
+
+/**
+ * Coste de MonitorConsultas: la misma consulta preparada, los eventos de un lote
+ * en un día, con consultas.activo a true y a false. Cada llamada es una petición
+ * pequeña: iniciar, preparar, ejecutar y leer, cerrar y terminar, como hacen
+ * MetricasFiltro e Hibernate. La diferencia entre los dos es lo que cuesta
+ * vigilar una sentencia.
+ *
+ * consultas.activo se lee una vez al cargar MonitorConsultas, por eso cada valor
+ * necesita su propia JVM: no se puede lanzar con -f 0. HSQLDB tarda en
+ * estabilizarse; con menos calentamiento los tiempos siguen bajando al medir.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonitorConsultasBenchmark {
+
+    private static final int LOTES = 100;
+    private static final int DIAS = 50;
+
+    private static final String CONSULTA =
+        "select oid, tipo, muertos, costo from DailyEvent where lote_oid = ? and fecha = ?";
+
+    @Param({"true", "false"})
+    String activo;
+
+    Connection conexion;
+    int siguiente;
+
+    @Setup(Level.Trial)
+    public void crear() throws SQLException {
+        System.setProperty("consultas.activo", activo);
+        if (MonitorConsultas.isActivo() != Boolean.parseBoolean(activo)) {
+            throw new IllegalStateException("MonitorConsultas ya estaba cargado con consultas.activo=" +
+                MonitorConsultas.isActivo() + ": hay que lanzarlo con fork");
+        }
+        conexion = DriverManager.getConnection("jdbc:hsqldb:mem:consultas", "sa", "");
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("create table DailyEvent (oid varchar(32) not null primary key, lote_oid varchar(32) not null, " +
+                "fecha date, tipo varchar(20), costo numeric(19, 2), muertos integer not null)");
+            sentencia.execute("create index idx_dailyevent_lote_fecha on DailyEvent (lote_oid, fecha)");
+        }
+        try (PreparedStatement insertar = conexion.prepareStatement("insert into DailyEvent values (?, ?, ?, ?, ?, ?)")) {
+            for (int lote = 0; lote < LOTES; lote++) {
+                for (int dia = 0; dia < DIAS; dia++) {
+                    insertar.setString(1, String.format("%08d%08d", lote, dia));
+                    insertar.setString(2, "L" + lote);
+                    insertar.setDate(3, fecha(dia));
+                    insertar.setString(4, "MORTALIDAD");
+                    insertar.setBigDecimal(5, null);
+                    insertar.setInt(6, dia % 7);
+                    insertar.addBatch();
+                }
+            }
+            insertar.executeBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("drop table DailyEvent");
+        }
+        conexion.close();
+    }
+
+    @Benchmark
+    public int consultar() throws SQLException {
+        int i = siguiente++;
+        MonitorConsultas.iniciar("benchmark");
+        try {
+            int muertos = 0;
+            try (PreparedStatement sentencia = MonitorConsultas.vigilar(conexion).prepareStatement(CONSULTA)) {
+                sentencia.setString(1, "L" + i % LOTES);
+                sentencia.setDate(2, fecha(i % DIAS));
+                try (ResultSet rs = sentencia.executeQuery()) {
+                    while (rs.next()) muertos += rs.getInt(3);
+                }
+            }
+            return muertos;
+        }
+        finally {
+            MonitorConsultas.terminar();
+        }
+    }
+
+    private static Date fecha(int dia) {
+        return Date.valueOf(LocalDate.of(2025, 1, 1).plusDays(dia));
+    }
+}
@@ -0,0 +1,155 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.enums.*;
+import com.tuempresa.chickenSuiteApp.modelo.*;
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Prueba de carga de ServicioMortalidad: 64 hilos registrando mortalidad en el
+ * mismo lote a la vez, y los mismos hilos corrigiendo y borrando esos eventos por
+ * JPA como hace el módulo DailyEvent. Al final de cada iteración comprueba que no
+ * se ha perdido ningún ajuste: aves descontadas del lote, muertos de los eventos
+ * y totalMuertos de BatchKPI tienen que coincidir con el neto de lo registrado,
+ * corregido y borrado. Si no coinciden la iteración falla.
+ *
+ * La base HSQLDB se pasa a MVCC para que las escrituras concurrentes choquen por
+ * fila, como en PostgreSQL, y ejerciten los reintentos del servicio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MortalidadConcurrenteBenchmark {
+
+    private static final int AVES_INICIALES = 1_000_000_000;
+
+    private static final String COMPROBAR =
+        "select f.cantidadVivaActual, k.totalMuertos, " +
+        "(select coalesce(sum(e.muertos), 0) from DailyEvent e where e.lote_oid = f.oid and e.tipo = 'MORTALIDAD') " +
+        "from FarmBatch f join BatchKPI k on k.oid = f.oid where f.oid = ?";
+
+    JDBCDataSource fuente;
+    String loteOid;
+    final AtomicLong registrados = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void crear() throws Exception {
+        BaseDatosBenchmark.usarUnidadBenchmark();
+        EntityManager manager = XPersistence.getManager();
+        Species especie = new Species();
+        especie.setNombre("Gallina");
+        manager.persist(especie);
+        Breed raza = new Breed();
+        raza.setNombre("Raza");
+        raza.setEspecie(especie);
+        raza.setProposito(Purpose.CARNE);
+        raza.setDiasCrecimientoEstandar(42);
+        manager.persist(raza);
+        FarmBatch lote = BaseDatosBenchmark.nuevoLote("L-MORTALIDAD", especie, raza, Stage.ENGORDE);
+        lote.setCantidadInicial(AVES_INICIALES);
+        lote.setCantidadVivaActual(AVES_INICIALES);
+        manager.persist(lote);
+        loteOid = lote.getOid();
+        XPersistence.commit();
+
+        fuente = new JDBCDataSource();
+        fuente.setUrl("jdbc:hsqldb:mem:benchmark");
+        fuente.setUser("sa");
+        fuente.setPassword("");
+        try (Connection conexion = fuente.getConnection(); Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("set database transaction control mvcc");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void comprobar() throws SQLException {
+        try (Connection conexion = fuente.getConnection();
+             PreparedStatement sentencia = conexion.prepareStatement(COMPROBAR)) {
+            sentencia.setString(1, loteOid);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                rs.next();
+                long descontadas = AVES_INICIALES - rs.getLong(1);
+                long totalMuertos = rs.getLong(2);
+                long muertosEventos = rs.getLong(3);
+                long esperados = registrados.get();
+                if (descontadas != esperados || totalMuertos != esperados || muertosEventos != esperados) {
+                    throw new IllegalStateException("Descuentos perdidos: registrados " + esperados + ", descontados del lote " +
+                        descontadas + ", BatchKPI " + totalMuertos + ", eventos " + muertosEventos);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void registrarUnHilo() throws SQLException {
+        registrar();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void registrarConcurrente() throws SQLException {
+        registrar();
+    }
+
+    /**
+     * Registra 2 muertos, corrige el evento a 1 y uno de cada cuatro lo borra
+     * después, todo mientras los demás hilos hacen lo mismo sobre el lote.
+     */
+    @Benchmark
+    @Threads(64)
+    public void corregirConcurrente() throws SQLException {
+        String oid = registrar(2);
+        enJpa(manager -> manager.find(DailyEvent.class, oid).setMuertos(1));
+        registrados.addAndGet(-1);
+        if (ThreadLocalRandom.current().nextInt(4) == 0) {
+            enJpa(manager -> manager.remove(manager.find(DailyEvent.class, oid)));
+            registrados.addAndGet(-1);
+        }
+    }
+
+    private String registrar() throws SQLException {
+        return registrar(1);
+    }
+
+    private String registrar(int muertos) throws SQLException {
+        String oid = GeneradorIdOrdenado.siguiente();
+        ServicioMortalidad.registrar(fuente, new RegistroEvento(oid, loteOid,
+            LocalDate.of(2025, 1, 1), EventType.MORTALIDAD, null, muertos, null, null));
+        registrados.addAndGet(muertos);
+        return oid;
+    }
+
+    /**
+     * Aplica el cambio en una transacción JPA de este hilo y la repite si choca
+     * con otra, igual que los reintentos del servicio.
+     */
+    private static void enJpa(Consumer<EntityManager> cambio) {
+        BaseDatosBenchmark.usarUnidadBenchmark();
+        for (int intento = 1; ; intento++) {
+            try {
+                cambio.accept(XPersistence.getManager());
+                XPersistence.commit();
+                return;
+            }
+            catch (RuntimeException ex) {
+                XPersistence.rollback();
+                if (intento == ServicioMortalidad.MAXIMO_INTENTOS) throw ex;
+            }
+        }
+    }
+}
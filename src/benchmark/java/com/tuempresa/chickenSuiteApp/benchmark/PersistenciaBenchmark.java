@@ -0,0 +1,168 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+
+import org.hibernate.*;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openxava.jpa.XPersistence;
+import org.openxava.tab.Tab;
+import org.openxava.tab.impl.IXTableModel;
+
+import com.tuempresa.chickenSuiteApp.enums.*;
+import com.tuempresa.chickenSuiteApp.modelo.*;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Caminos de persistencia más usados, con JPA contra HSQLDB en memoria. Cada
+ * operación usa un EntityManager nuevo (XPersistence.commit() lo cierra), como
+ * una petición de OpenXava.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenciaBenchmark {
+
+    private static final String LISTA_LOTES =
+        "select f.oid, f.codigo, e.nombre, r.nombre, f.cantidadVivaActual, f.etapa " +
+        "from FarmBatch f join f.especie e join f.raza r where f.etapa <> :vendido order by f.codigo";
+
+    // Listas de módulo (@Tab) que se comprueban
+    private static final String[] LISTAS = {"FarmBatch", "DailyEvent", "Projection"};
+
+    // EntityTab de OpenXava lee la lista con una consulta por cada 120 filas
+    private static final int FILAS_POR_CONSULTA = 120;
+
+    LocalDate fecha = LocalDate.of(2025, 1, 1);
+    Tab listaEventos;
+
+    @Setup(Level.Trial)
+    public void preparar(BaseDatosBenchmark datos) {
+        BaseDatosBenchmark.usarUnidadBenchmark();
+        for (String modelo: LISTAS) {
+            comprobarSentenciasPorPagina(modelo, 20);
+            comprobarSentenciasPorPagina(modelo, 500);
+        }
+        listaEventos = lista("DailyEvent", 50);
+    }
+
+    /**
+     * Falla si una página de la lista del módulo, con las columnas de su @Tab
+     * (lote.codigo, especie.nombre...), necesita más sentencias que las consultas
+     * de EntityTab (una cada FILAS_POR_CONSULTA filas) y la del total: las
+     * referencias tienen que salir de esas consultas y no de una por fila.
+     */
+    static void comprobarSentenciasPorPagina(String modelo, int tamano) {
+        Statistics estadisticas = XPersistence.getManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        XPersistence.commit();
+        Tab tab = lista(modelo, tamano);
+        long antes = estadisticas.getPrepareStatementCount();
+        int filas = leerPagina(tab);
+        long sentencias = estadisticas.getPrepareStatementCount() - antes;
+        int maximo = (tamano + FILAS_POR_CONSULTA - 1) / FILAS_POR_CONSULTA + 1;
+        if (filas < tamano) {
+            throw new IllegalStateException("La lista de " + modelo + " solo tiene " + filas + " filas para una página de " + tamano);
+        }
+        if (sentencias > maximo) {
+            throw new IllegalStateException("Una página de " + filas + " filas de la lista de " + modelo + " costó " + sentencias +
+                " sentencias; el máximo es " + maximo);
+        }
+    }
+
+    /**
+     * La lista del módulo como la crea OpenXava, con páginas de tamano filas.
+     */
+    private static Tab lista(String modelo, int tamano) {
+        Tab tab = new Tab();
+        tab.setModelName(modelo);
+        // El tamaño de página solo se cambia sobre una lista ya creada, y vale para la siguiente consulta
+        tab.getTableModel();
+        tab.setPageRowCount(tamano);
+        tab.reset();
+        XPersistence.commit();
+        return tab;
+    }
+
+    /**
+     * Consulta la primera página y lee todas sus celdas, como la vista de la lista.
+     */
+    private static int leerPagina(Tab tab) {
+        IXTableModel tabla = tab.getTableModel();
+        int filas = 0;
+        for (; filas < tab.getPageRowCount() && filas < tabla.getRowCount(); filas++) {
+            for (int columna = 0; columna < tabla.getColumnCount(); columna++) tabla.getValueAt(filas, columna);
+        }
+        XPersistence.commit();
+        tab.reset();
+        return filas;
+    }
+
+    /**
+     * Alta de un DailyEvent por JPA, incluida la actualización de BatchKPI que hace su listener.
+     */
+    @Benchmark
+    public String insertarEvento(BaseDatosBenchmark datos) {
+        EntityManager manager = XPersistence.getManager();
+        DailyEvent evento = new DailyEvent();
+        evento.setLote(manager.getReference(FarmBatch.class, datos.lotePequenoOid));
+        evento.setFecha(fecha);
+        evento.setTipo(EventType.ALIMENTACION);
+        evento.setCosto(new BigDecimal("98.20"));
+        evento.setKilogramosAlimento(new BigDecimal("240.000"));
+        manager.persist(evento);
+        XPersistence.commit();
+        return evento.getOid();
+    }
+
+    /**
+     * Primera página de la lista de lotes en curso con su especie y raza, como la pide la lista de OpenXava.
+     */
+    @Benchmark
+    public List<?> listarLotes() {
+        List<?> filas = XPersistence.getManager().createQuery(LISTA_LOTES)
+            .setParameter("vendido", Stage.VENDIDO)
+            .setMaxResults(20)
+            .getResultList();
+        XPersistence.commit();
+        return filas;
+    }
+
+    /**
+     * Primera página de 50 filas de la lista de DailyEvent, con el código del lote de cada evento.
+     */
+    @Benchmark
+    public int listaEventosConLote() {
+        return leerPagina(listaEventos);
+    }
+
+    /**
+     * Inicializar la colección eventos completa de un lote con 5.000 eventos.
+     */
+    @Benchmark
+    public int cargarColeccionEventos(BaseDatosBenchmark datos) {
+        FarmBatch lote = XPersistence.getManager().find(FarmBatch.class, datos.loteGrandeOid);
+        int eventos = lote.getEventos().size();
+        XPersistence.commit();
+        return eventos;
+    }
+
+    /**
+     * Lo que pide ahora el editor EventosPaginados al abrir el mismo lote: la primera página.
+     */
+    @Benchmark
+    public int primeraPaginaEventos(BaseDatosBenchmark datos) {
+        int[] filas = new int[1];
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            filas[0] = PaginadorEventos.pagina(conexion, datos.loteGrandeOid, null, null, PaginadorEventos.TAMANO_PAGINA).size();
+        });
+        XPersistence.commit();
+        return filas[0];
+    }
+}
@@ -0,0 +1,57 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tuempresa.chickenSuiteApp.persistencia.PoolConexiones;
+
+/**
+ * Latencia de obtener y devolver una conexión de PoolConexiones con 200
+ * peticiones concurrentes, sobre HSQLDB en memoria y con el pool de 20
+ * conexiones de la configuración por defecto y con uno mayor. Cada petición usa
+ * la conexión un momento antes de devolverla.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(200)
+public class PoolConexionesBenchmark {
+
+    @Param({"20", "50"})
+    int maximo;
+
+    PoolConexiones pool;
+
+    @Setup(Level.Trial)
+    public void crear() throws SQLException {
+        System.setProperty("pool.url", "jdbc:hsqldb:mem:pool");
+        System.setProperty("pool.driver", "org.hsqldb.jdbc.JDBCDriver");
+        System.setProperty("pool.usuario", "sa");
+        System.setProperty("pool.maximo", String.valueOf(maximo));
+        System.setProperty("pool.esperaMaximaMilisegundos", "60000");
+        pool = PoolConexiones.crear();
+        // Abre las conexiones antes de medir
+        try (Connection conexion = pool.getConnection()) {
+            conexion.isValid(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        pool.close();
+    }
+
+    @Benchmark
+    public boolean obtenerYDevolver() throws SQLException {
+        try (Connection conexion = pool.getConnection()) {
+            Blackhole.consumeCPU(500);
+            return conexion.getAutoCommit();
+        }
+    }
+}
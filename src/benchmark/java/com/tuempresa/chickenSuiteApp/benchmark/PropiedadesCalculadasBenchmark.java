@@ -0,0 +1,76 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.math.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.tuempresa.chickenSuiteApp.modelo.*;
+
+/**
+ * Propiedades calculadas de FarmBatch y Projection, que OpenXava evalúa por cada
+ * fila de las listas. Los métodos *BigDecimal reproducen la versión anterior de
+ * las tasas de FarmBatch para comparar con PuntoFijo; con -prof gc se ven
+ * también los bytes reservados por llamada.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropiedadesCalculadasBenchmark {
+
+    FarmBatch lote;
+    Projection proyeccion;
+
+    @Setup
+    public void preparar() {
+        lote = new FarmBatch();
+        lote.setCantidadInicial(12000);
+        lote.setCantidadVivaActual(11387);
+        proyeccion = new Projection();
+        proyeccion.setPesoVivoEstimadoKilogramos(new BigDecimal("28462.50"));
+        proyeccion.setPrecioEsperadoPorKilogramo(new BigDecimal("1.85"));
+        proyeccion.setCostosEstimados(new BigDecimal("41230.00"));
+    }
+
+    @Benchmark
+    public BigDecimal tasaMortalidad() {
+        return lote.getTasaMortalidadPorcentaje();
+    }
+
+    @Benchmark
+    public BigDecimal tasaMortalidadBigDecimal() {
+        int cantidadInicial = lote.getCantidadInicial();
+        if (cantidadInicial <= 0) return BigDecimal.ZERO;
+        int muertos = cantidadInicial - lote.getCantidadVivaActual();
+        return new BigDecimal(muertos)
+                .multiply(new BigDecimal("100"))
+                .divide(new BigDecimal(cantidadInicial), 2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal tasaVivos() {
+        return lote.getTasaVivosPorcentaje();
+    }
+
+    @Benchmark
+    public BigDecimal tasaVivosBigDecimal() {
+        int cantidadInicial = lote.getCantidadInicial();
+        if (cantidadInicial <= 0) return BigDecimal.ZERO;
+        return new BigDecimal(lote.getCantidadVivaActual())
+                .multiply(new BigDecimal("100"))
+                .divide(new BigDecimal(cantidadInicial), 2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal ingresoProyectado() {
+        return proyeccion.getIngresoProyectado();
+    }
+
+    @Benchmark
+    public BigDecimal margenProyectado() {
+        return proyeccion.getMargenProyectado();
+    }
+}
@@ -0,0 +1,55 @@
+package com.tuempresa.chickenSuiteApp.benchmark;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.RepartoCostos;
+
+/**
+ * Reparto de un año de costos mensuales (varios conceptos por mes) entre miles
+ * de lotes solapados de 40 a 300 días, sin base de datos. El tiempo debe crecer
+ * casi en línea con la cantidad de lotes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepartoCostosBenchmark {
+
+    private static final long PRIMER_DIA = 20000;
+    private static final int CONCEPTOS = 4;
+
+    @Param({"1000", "10000"})
+    int cantidadLotes;
+
+    List<RepartoCostos.Lote> lotes;
+    List<RepartoCostos.Costo> costos;
+
+    @Setup
+    public void preparar() {
+        Random aleatorio = new Random(42);
+        lotes = new ArrayList<>(cantidadLotes);
+        for (int i = 0; i < cantidadLotes; i++) {
+            int dias = 40 + aleatorio.nextInt(260);
+            long[] muertos = new long[dias];
+            for (int d = 0; d < dias; d++) muertos[d] = aleatorio.nextInt(20);
+            lotes.add(new RepartoCostos.Lote("lote" + i, PRIMER_DIA - 150 + aleatorio.nextInt(500), 5000 + aleatorio.nextInt(20000), muertos));
+        }
+        costos = new ArrayList<>();
+        for (int mes = 0; mes < 12; mes++) {
+            for (int concepto = 0; concepto < CONCEPTOS; concepto++) {
+                long desde = PRIMER_DIA + mes * 30L;
+                costos.add(new RepartoCostos.Costo("costo" + mes + "-" + concepto, desde, desde + 29, 1_000_000 + aleatorio.nextInt(5_000_000)));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<RepartoCostos.Reparto> repartir() {
+        return RepartoCostos.repartir(costos, lotes);
+    }
+}
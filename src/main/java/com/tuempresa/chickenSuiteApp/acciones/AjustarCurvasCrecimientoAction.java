@@ -0,0 +1,17 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.AjusteCurvasCrecimiento;
+
+/**
+ * Ajusta ahora las curvas de crecimiento pendientes sin esperar a la pasada programada.
+ */
+public class AjustarCurvasCrecimientoAction extends TabBaseAction {
+
+    public void execute() throws Exception {
+        int curvas = AjusteCurvasCrecimiento.ajustar();
+        getTab().reset();
+        addMessage("curvas_ajustadas", curvas);
+    }
+}
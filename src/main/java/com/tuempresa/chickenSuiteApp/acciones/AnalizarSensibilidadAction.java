@@ -0,0 +1,25 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.modelo.Projection;
+import com.tuempresa.chickenSuiteApp.servicios.ServicioSensibilidad;
+
+/**
+ * Calcula cuánto mueve el margen cada entrada de la proyección mostrada.
+ */
+public class AnalizarSensibilidadAction extends ViewBaseAction {
+
+    public void execute() throws Exception {
+        String oid = (String) getView().getValue("oid");
+        if (oid == null) {
+            addError("guardar_proyeccion_antes_de_analizar");
+            return;
+        }
+        ServicioSensibilidad.analizar(oid);
+        XPersistence.getManager().refresh(XPersistence.getManager().find(Projection.class, oid));
+        getView().refresh();
+        addMessage("sensibilidad_analizada");
+    }
+}
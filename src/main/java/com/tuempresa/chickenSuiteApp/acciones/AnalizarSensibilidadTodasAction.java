@@ -0,0 +1,18 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.ServicioSensibilidad;
+
+/**
+ * Analiza la sensibilidad del margen de todas las proyecciones.
+ */
+public class AnalizarSensibilidadTodasAction extends TabBaseAction {
+
+    public void execute() throws Exception {
+        long inicio = System.currentTimeMillis();
+        int proyecciones = ServicioSensibilidad.analizarTodas();
+        getTab().reset();
+        addMessage("sensibilidades_analizadas", proyecciones, System.currentTimeMillis() - inicio);
+    }
+}
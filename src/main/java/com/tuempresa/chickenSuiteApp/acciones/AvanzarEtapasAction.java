@@ -0,0 +1,19 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import java.time.LocalDate;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.MotorEtapas;
+
+/**
+ * Ejecuta ahora una pasada del motor de etapas sin esperar a la programada.
+ */
+public class AvanzarEtapasAction extends TabBaseAction {
+
+    public void execute() throws Exception {
+        int lotes = MotorEtapas.avanzar(LocalDate.now());
+        getTab().reset();
+        addMessage("etapas_avanzadas", lotes);
+    }
+}
@@ -0,0 +1,32 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import java.util.List;
+
+import org.apache.commons.fileupload.FileItem;
+import org.openxava.actions.*;
+import org.openxava.util.Is;
+
+import lombok.*;
+
+/**
+ * Deja en la vista el FileItem subido tal cual. A diferencia de
+ * LoadFileItemAction no copia el contenido a un byte[]: si el archivo es grande
+ * sigue en el temporal de disco y se lee por streaming al importarlo.
+ */
+@Getter @Setter
+public class CargarArchivoCsvAction extends ViewBaseAction implements IProcessLoadedFileAction {
+
+    @SuppressWarnings("rawtypes")
+    List fileItems;
+    String property;
+
+    public void execute() throws Exception {
+        for (Object elemento : fileItems) {
+            FileItem archivo = (FileItem) elemento;
+            if (!Is.emptyString(archivo.getName())) {
+                getView().setValue(property, archivo);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.modelo.Scenario;
+import com.tuempresa.chickenSuiteApp.servicios.ServicioEscenarios;
+
+/**
+ * Ejecuta el escenario mostrado y muestra su clasificación de combinaciones.
+ */
+public class EjecutarEscenarioAction extends ViewBaseAction {
+
+    public void execute() throws Exception {
+        String oid = (String) getView().getValue("oid");
+        if (oid == null) {
+            addError("guardar_escenario_antes_de_ejecutar");
+            return;
+        }
+        Scenario escenario = XPersistence.getManager().find(Scenario.class, oid);
+        int combinaciones = ServicioEscenarios.ejecutar(escenario);
+        getView().refresh();
+        if (combinaciones == 0) addWarning("escenario_sin_razas");
+        else addMessage("escenario_ejecutado", combinaciones, escenario.getDuracionMilisegundos());
+    }
+}
@@ -0,0 +1,77 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.openxava.actions.*;
+import org.openxava.model.MapFacade;
+import org.openxava.util.Messages;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Guarda un evento diario. Las altas de mortalidad, y cualquier alta con
+ * muertos, pasan por ServicioMortalidad, que comprueba al momento que el lote
+ * tiene aves suficientes; el resto de altas van a la cola de ingesta y se
+ * confirman en cuanto quedan anotadas en el diario. Las modificaciones siguen el
+ * camino normal, donde DailyEventKPIListener ajusta las aves vivas del lote.
+ */
+public class GuardarEventoAction extends SaveAction {
+
+    public void execute() throws Exception {
+        Object tipo = getView().getValue("tipo");
+        Object muertos = getView().getValue("muertos");
+        // Con muertos no se encola nunca: un lote sin aves suficientes se rechazaría después, en silencio
+        boolean mortalidad = (tipo != null && tipo(tipo) == EventType.MORTALIDAD) ||
+            (muertos instanceof Number && ((Number) muertos).intValue() != 0);
+        if (!getView().isKeyEditable() || (!mortalidad && !ColaIngestaEventos.isIniciada())) {
+            super.execute();
+            return;
+        }
+        Map valores = getValuesToSave();
+        Messages errores = MapFacade.validateIncludingMissingRequired(getModelName(), valores);
+        if (!errores.isEmpty()) {
+            addErrors(errores);
+            return;
+        }
+        RegistroEvento registro = new RegistroEvento(
+            GeneradorIdOrdenado.siguiente(),
+            (String) ((Map) valores.get("lote")).get("oid"),
+            (LocalDate) valores.get("fecha"),
+            tipo(valores.get("tipo")),
+            (BigDecimal) valores.get("costo"),
+            valores.get("muertos") == null ? 0 : ((Number) valores.get("muertos")).intValue(),
+            (BigDecimal) valores.get("kilogramosAlimento"),
+            (String) valores.get("notas"));
+        if (mortalidad) {
+            // MapFacade no aplica las restricciones de Bean Validation de DailyEvent; este alta no pasa por JPA
+            if (registro.getTipo() != EventType.MORTALIDAD) {
+                addError("muertos_solo_mortalidad");
+                return;
+            }
+            try {
+                ServicioMortalidad.registrar(registro);
+            }
+            catch (IllegalArgumentException ex) {
+                addError("mortalidad_no_registrada", ex.getMessage());
+                return;
+            }
+            getView().reset();
+            addMessage("mortalidad_registrada", registro.getMuertos());
+            return;
+        }
+        ColaIngestaEventos.getInstancia().encolar(registro);
+        getView().reset();
+        addMessage("evento_encolado");
+    }
+
+    // Según el editor el enum llega como constante, como nombre o como ordinal
+    private static EventType tipo(Object valor) {
+        if (valor instanceof EventType) return (EventType) valor;
+        if (valor instanceof Number) return EventType.values()[((Number) valor).intValue()];
+        return EventType.valueOf(valor.toString());
+    }
+}
@@ -0,0 +1,18 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.modelo.DailyEventImport;
+
+/**
+ * Abre el diálogo para subir el CSV de eventos diarios.
+ */
+public class ImportarEventosCsvAction extends ViewBaseAction {
+
+    public void execute() throws Exception {
+        showDialog();
+        getView().setModelName(DailyEventImport.class.getSimpleName());
+        getView().setTitleId("importar_eventos_csv");
+        setControllers("ImportacionEventos");
+    }
+}
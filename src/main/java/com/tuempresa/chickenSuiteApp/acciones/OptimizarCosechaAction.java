@@ -0,0 +1,31 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.modelo.Projection;
+import com.tuempresa.chickenSuiteApp.servicios.ServicioCosecha;
+
+/**
+ * Calcula el día de venta de mayor margen para el lote de la proyección mostrada.
+ */
+public class OptimizarCosechaAction extends ViewBaseAction {
+
+    public void execute() throws Exception {
+        String oid = (String) getView().getValue("oid");
+        if (oid == null) {
+            addError("guardar_proyeccion_antes_de_optimizar");
+            return;
+        }
+        Projection proyeccion = XPersistence.getManager().find(Projection.class, oid);
+        // Se optimizan a la vez todas las proyecciones del lote, que comparten sus datos
+        if (ServicioCosecha.optimizarLote(proyeccion.getLote().getOid()) == 0) {
+            addWarning("cosecha_sin_optimizar");
+            return;
+        }
+        XPersistence.getManager().refresh(proyeccion);
+        getView().refresh();
+        addMessage("cosecha_optimizada", proyeccion.getFechaCosechaRecomendada(), proyeccion.getDiasCosechaRecomendada(),
+            proyeccion.getMargenCosechaRecomendada());
+    }
+}
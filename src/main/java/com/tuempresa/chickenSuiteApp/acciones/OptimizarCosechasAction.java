@@ -0,0 +1,18 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.ServicioCosecha;
+
+/**
+ * Calcula el día de venta óptimo de todas las proyecciones de lotes en curso.
+ */
+public class OptimizarCosechasAction extends TabBaseAction {
+
+    public void execute() throws Exception {
+        long inicio = System.currentTimeMillis();
+        int proyecciones = ServicioCosecha.optimizarTodas();
+        getTab().reset();
+        addMessage("cosechas_optimizadas", proyecciones, System.currentTimeMillis() - inicio);
+    }
+}
@@ -0,0 +1,55 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.util.List;
+
+import org.apache.commons.fileupload.FileItem;
+import org.openxava.actions.*;
+import org.openxava.util.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Importa el CSV subido en el diálogo e informa de las filas rechazadas. El
+ * archivo se lee por streaming desde el FileItem (CargarArchivoCsvAction), sin
+ * cargarlo entero en memoria, y se borra el temporal al terminar.
+ */
+public class ProcesarImportacionEventosAction extends ViewBaseAction {
+
+    // Errores que se muestran en pantalla; del resto solo se da la cantidad
+    private static final int ERRORES_EN_PANTALLA = 50;
+
+    public void execute() throws Exception {
+        FileItem archivo = (FileItem) getView().getValue("archivo");
+        if (archivo == null || Is.emptyString(archivo.getName())) {
+            addError("file_required");
+            return;
+        }
+
+        XavaPreferences preferencias = XavaPreferences.getInstance();
+        char separador = preferencias.getCSVSeparator().charAt(0);
+        ImportadorEventosCsv importador = new ImportadorEventosCsv(separador);
+        ResultadoImportacion resultado;
+        try (Reader lector = new InputStreamReader(archivo.getInputStream(),
+                Charset.forName(preferencias.getCSVEncoding()));
+             Connection conexion = FuenteDatos.getConexion()) {
+            resultado = importador.importar(lector, conexion);
+        }
+        finally {
+            archivo.delete();
+        }
+
+        closeDialog();
+        addMessage("eventos_importados", resultado.getImportadas(), resultado.getRechazadas());
+        List<String> errores = resultado.getErrores();
+        for (int i = 0; i < errores.size() && i < ERRORES_EN_PANTALLA; i++) {
+            addError("fila_rechazada", errores.get(i));
+        }
+        if (resultado.getRechazadas() > ERRORES_EN_PANTALLA) {
+            addWarning("mas_filas_rechazadas", resultado.getRechazadas() - ERRORES_EN_PANTALLA);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.ServicioBatchKPI;
+
+/**
+ * Recalcula todos los BatchKPI desde los eventos diarios para reparar desajustes.
+ */
+public class ReconstruirBatchKPIAction extends BaseAction {
+
+    public void execute() throws Exception {
+        int lotes = ServicioBatchKPI.reconstruirTodos();
+        addMessage("batch_kpi_reconstruido", lotes);
+    }
+}
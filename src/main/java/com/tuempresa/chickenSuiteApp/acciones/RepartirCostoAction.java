@@ -0,0 +1,23 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Reparte el costo mostrado entre los lotes vivos en su periodo.
+ */
+public class RepartirCostoAction extends ViewBaseAction {
+
+    public void execute() throws Exception {
+        String oid = (String) getView().getValue("oid");
+        if (oid == null) {
+            addError("guardar_costo_antes_de_repartir");
+            return;
+        }
+        RepartoCostos.Reparto reparto = ServicioCostosCompartidos.repartir(oid);
+        getView().refresh();
+        if (reparto == null || reparto.size() == 0) addWarning("costo_sin_lotes");
+        else addMessage("costo_repartido", reparto.size(), reparto.getTotalAvesDia());
+    }
+}
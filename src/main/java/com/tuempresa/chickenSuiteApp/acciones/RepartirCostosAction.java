@@ -0,0 +1,20 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import java.util.List;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Vuelve a repartir todos los costos comunes en una sola pasada.
+ */
+public class RepartirCostosAction extends TabBaseAction {
+
+    public void execute() throws Exception {
+        long inicio = System.currentTimeMillis();
+        List<RepartoCostos.Reparto> repartos = ServicioCostosCompartidos.repartirTodos();
+        getTab().reset();
+        addMessage("costos_repartidos", repartos.size(), System.currentTimeMillis() - inicio);
+    }
+}
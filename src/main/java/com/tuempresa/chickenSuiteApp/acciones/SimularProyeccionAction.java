@@ -0,0 +1,27 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.modelo.Projection;
+import com.tuempresa.chickenSuiteApp.persistencia.PlanesCarga;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Simula la proyección mostrada y guarda percentiles del margen y probabilidad de pérdida.
+ */
+public class SimularProyeccionAction extends ViewBaseAction {
+
+    public void execute() throws Exception {
+        String oid = (String) getView().getValue("oid");
+        if (oid == null) {
+            addError("guardar_proyeccion_antes_de_simular");
+            return;
+        }
+        // La simulación necesita la raza del lote: se lee todo en una consulta
+        Projection proyeccion = XPersistence.getManager().find(Projection.class, oid, PlanesCarga.grafo(Projection.CON_LOTE));
+        ResultadoSimulacion resultado = ServicioSimulacion.simular(proyeccion);
+        getView().refresh();
+        addMessage("proyeccion_simulada", resultado.getEnsayos());
+    }
+}
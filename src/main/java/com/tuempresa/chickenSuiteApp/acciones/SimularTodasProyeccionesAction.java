@@ -0,0 +1,18 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.ServicioSimulacion;
+
+/**
+ * Vuelve a simular todas las proyecciones.
+ */
+public class SimularTodasProyeccionesAction extends TabBaseAction {
+
+    public void execute() throws Exception {
+        long inicio = System.currentTimeMillis();
+        int proyecciones = ServicioSimulacion.simularTodas();
+        getTab().reset();
+        addMessage("proyecciones_simuladas", proyecciones, System.currentTimeMillis() - inicio);
+    }
+}
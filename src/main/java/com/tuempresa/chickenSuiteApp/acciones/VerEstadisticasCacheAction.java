@@ -0,0 +1,30 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.hibernate.stat.*;
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.EstadisticasCache;
+
+/**
+ * Muestra aciertos, fallos y elementos en memoria de la caché de catálogos.
+ */
+public class VerEstadisticasCacheAction extends BaseAction {
+
+    public void execute() throws Exception {
+        Statistics estadisticas = EstadisticasCache.getEstadisticas();
+        if (!estadisticas.isStatisticsEnabled()) {
+            addWarning("estadisticas_cache_desactivadas");
+            return;
+        }
+        for (String nombre: EstadisticasCache.REGIONES) {
+            CacheRegionStatistics region = estadisticas.getDomainDataRegionStatistics(nombre);
+            if (region == null) continue;
+            double aciertos = EstadisticasCache.getPorcentajeAciertos(region);
+            addInfo("estadisticas_cache_region",
+                nombre.substring(nombre.lastIndexOf('.') + 1),
+                region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                region.getElementCountInMemory(),
+                aciertos < 0 ? "-" : String.format("%.1f%%", aciertos));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.tuempresa.chickenSuiteApp.acciones;
+
+import org.openxava.actions.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.ColaIngestaEventos;
+
+/**
+ * Muestra cuántos eventos esperan en la cola de ingesta y cuánto tarda cada grupo en guardarse.
+ */
+public class VerEstadoIngestaAction extends BaseAction {
+
+    public void execute() throws Exception {
+        if (!ColaIngestaEventos.isIniciada()) {
+            addWarning("ingesta_no_iniciada");
+            return;
+        }
+        ColaIngestaEventos cola = ColaIngestaEventos.getInstancia();
+        addInfo("estado_ingesta", cola.getProfundidad(), cola.getEventosGuardados(), cola.getGruposGuardados(),
+            String.format("%.1f", cola.getUltimaLatenciaMilisegundos()),
+            String.format("%.1f", cola.getLatenciaMediaMilisegundos()), cola.getEventosRechazados());
+    }
+}
@@ -0,0 +1,12 @@
+package com.tuempresa.chickenSuiteApp.enums;
+
+/**
+ * Conceptos de los costos comunes que se reparten entre los lotes.
+ */
+public enum CostType {
+    ELECTRICIDAD,
+    MANO_DE_OBRA,
+    AGUA,
+    CALEFACCION,
+    OTRO
+}
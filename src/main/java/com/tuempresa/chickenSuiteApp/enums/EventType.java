@@ -2,11 +2,11 @@ package com.tuempresa.chickenSuiteApp.enums;
 
 /**
  * Tipos de eventos que pueden registrarse en un lote.
- * Cada constante representa una categora de evento manejada por el sistema.
+ * Cada constante representa una categoría de evento manejada por el sistema.
  */
 public enum EventType {
     ALIMENTACION, // Suministro de alimento
-    VACUNACION,   // Aplicacin de vacunas
+    VACUNACION,   // Aplicación de vacunas
     LIMPIEZA,     // Tareas de higiene
     MORTALIDAD    // Registro de muertes
 }
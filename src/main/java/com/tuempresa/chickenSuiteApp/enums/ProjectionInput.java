@@ -0,0 +1,12 @@
+package com.tuempresa.chickenSuiteApp.enums;
+
+/**
+ * Entradas de una proyección que varía el análisis de sensibilidad, en el orden
+ * de las columnas de AnalisisSensibilidad.
+ */
+public enum ProjectionInput {
+    PRECIO_POR_KILOGRAMO,
+    COSTOS,
+    PESO_VIVO,
+    MORTALIDAD
+}
@@ -1,10 +1,10 @@
 package com.tuempresa.chickenSuiteApp.enums;
 
 /**
- * Propsito productivo de una raza.
+ * Propósito productivo de una raza.
  */
 public enum Purpose {
-    CARNE,          // Produccin de carne
-    HUEVO,          // Produccin de huevo
+    CARNE,          // Producción de carne
+    HUEVO,          // Producción de huevo
     DOBLE_PROPOSITO // Uso doble: carne y huevo
 }
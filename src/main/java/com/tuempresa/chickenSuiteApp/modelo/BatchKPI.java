@@ -0,0 +1,42 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import javax.persistence.*;
+
+import org.openxava.annotations.*;
+import lombok.*;
+
+/**
+ * Métricas acumuladas de un lote. Hay una fila por lote, con el mismo oid,
+ * y se mantiene sumando deltas cada vez que cambian sus eventos diarios
+ * (ver DailyEventKPIListener), así que leer los totales no recorre los eventos.
+ */
+@Entity @Getter @Setter
+@Tab(properties="lote.codigo, totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos")
+public class BatchKPI {
+
+    @Id
+    @Hidden
+    @Column(length=32)
+    // Mismo oid que el lote al que pertenece
+    String oid;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name="oid", insertable=false, updatable=false)
+    @ReadOnly
+    FarmBatch lote;
+
+    @ReadOnly
+    @Column(precision=19, scale=3)
+    BigDecimal totalKilogramosAlimento;
+
+    @ReadOnly
+    long totalMuertos;
+
+    @ReadOnly
+    @Money
+    BigDecimal totalCosto;
+
+    @ReadOnly
+    long cantidadEventos;
+}
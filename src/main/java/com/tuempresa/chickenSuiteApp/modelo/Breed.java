@@ -3,22 +3,27 @@ package com.tuempresa.chickenSuiteApp.modelo;
 import javax.persistence.*;
 
 import com.tuempresa.chickenSuiteApp.enums.Purpose;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 import org.openxava.annotations.*;
 import lombok.*;
 
 /**
- * Raza: agrupa caractersticas productivas dentro de una especie.
+ * Raza: agrupa características productivas dentro de una especie.
  */
 @Entity @Getter @Setter
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = @Index(name = "idx_breed_especie", columnList = "especie_oid"))
 public class Breed {
 
     @Id
     @Hidden
     @GeneratedValue(generator="system-uuid")
-    @GenericGenerator(name="system-uuid", strategy="uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
     @Column(length=32)
-    // Identificador nico de la raza
+    // Identificador único de la raza
     String oid;
 
     @Column(length=50)
@@ -33,6 +38,20 @@ public class Breed {
     @Required
     Purpose proposito;   // CARNE, HUEVO, DOBLE_PROPOSITO
 
-    // Das estndar estimados para crecimiento hasta sacrificio
+    // Días estándar estimados para crecimiento hasta sacrificio
     int diasCrecimientoEstandar;
+
+    // Curva de Gompertz ajustada a los pesajes de sus lotes vendidos
+    @Embedded
+    CurvaCrecimiento curva;
+
+    /**
+     * Peso esperado en gramos a los días indicados desde el inicio del lote, con la
+     * curva de la raza o, si aún no tiene, la de su especie. Null si ninguna está ajustada.
+     */
+    public Double pesoEsperadoGramos(int dia) {
+        if (curva != null && curva.estaAjustada()) return curva.pesoGramos(dia);
+        CurvaCrecimiento deEspecie = especie == null ? null : especie.getCurva();
+        return deEspecie == null ? null : deEspecie.pesoGramos(dia);
+    }
 }
\ No newline at end of file
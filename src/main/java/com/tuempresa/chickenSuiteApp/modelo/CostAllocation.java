@@ -0,0 +1,48 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import javax.persistence.*;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.openxava.annotations.*;
+import lombok.*;
+
+/**
+ * Parte de un SharedCost asignada a un lote. ServicioCostosCompartidos escribe
+ * todas las del costo de una vez al repartirlo; no se editan desde la interfaz.
+ */
+@Entity @Getter @Setter
+@Tab(properties="costo.concepto, costo.fechaDesde, costo.fechaHasta, lote.codigo, avesDia, porcentaje, importe")
+@Table(indexes = {
+    @Index(name = "idx_costallocation_costo", columnList = "costo_oid"),
+    @Index(name = "idx_costallocation_lote", columnList = "lote_oid")
+})
+public class CostAllocation {
+
+    @Id
+    @Hidden
+    @GeneratedValue(generator="system-uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
+    @Column(length=32)
+    String oid;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReadOnly
+    SharedCost costo;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReadOnly
+    FarmBatch lote;
+
+    // Aves vivas del lote sumadas día a día dentro del periodo del costo
+    @ReadOnly
+    long avesDia;
+
+    @ReadOnly
+    @Column(precision=7, scale=4)
+    BigDecimal porcentaje;
+
+    @ReadOnly
+    @Money
+    BigDecimal importe;
+}
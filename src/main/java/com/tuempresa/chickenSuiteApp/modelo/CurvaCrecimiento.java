@@ -0,0 +1,62 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.time.LocalDate;
+import javax.persistence.*;
+
+import org.openxava.annotations.*;
+import lombok.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.CurvaGompertz;
+
+/**
+ * Parámetros de la curva de Gompertz ajustada a los pesajes de los lotes vendidos,
+ * que guarda AjusteCurvasCrecimiento en Breed y Species. Con ellos el peso esperado
+ * de cualquier día se calcula en el momento sin consultar la base de datos.
+ */
+@Embeddable @Getter @Setter
+public class CurvaCrecimiento {
+
+    // Null mientras no haya lotes suficientes para ajustar la curva
+    @ReadOnly
+    @Column(name = "curvaAsintotaGramos")
+    Double asintotaGramos;
+
+    @ReadOnly
+    @Column(name = "curvaDesplazamiento")
+    Double desplazamiento;
+
+    // Por día
+    @ReadOnly
+    @Column(name = "curvaTasa")
+    Double tasa;
+
+    // Raíz del error cuadrático medio respecto a los pesajes
+    @ReadOnly
+    @Column(name = "curvaErrorGramos")
+    Double errorGramos;
+
+    // Lotes vendidos con pesajes cuando se ajustó; si cambia hay que ajustar de nuevo
+    @ReadOnly
+    @Column(name = "curvaLotes")
+    Integer lotes;
+
+    @ReadOnly
+    @Column(name = "curvaPesajes")
+    Integer pesajes;
+
+    @ReadOnly
+    @Column(name = "curvaFechaAjuste")
+    LocalDate fechaAjuste;
+
+    boolean estaAjustada() {
+        return asintotaGramos != null && desplazamiento != null && tasa != null;
+    }
+
+    /**
+     * Peso esperado en gramos a los días indicados desde el inicio del lote, o
+     * null si la curva no está ajustada.
+     */
+    public Double pesoGramos(int dia) {
+        return estaAjustada() ? CurvaGompertz.peso(asintotaGramos, desplazamiento, tasa, dia) : null;
+    }
+}
@@ -3,6 +3,7 @@ package com.tuempresa.chickenSuiteApp.modelo;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import javax.persistence.*;
+import javax.validation.constraints.*;
 
 import org.hibernate.annotations.GenericGenerator;
 import org.openxava.annotations.*;
@@ -14,18 +15,28 @@ import com.tuempresa.chickenSuiteApp.enums.EventType;
  * Evento diario que registra acciones o sucesos asociados a un lote.
  */
 @Entity @Getter @Setter
+@EntityListeners(DailyEventKPIListener.class)
+@Tab(properties="lote.codigo, fecha, tipo, muertos, kilogramosAlimento, costo", defaultOrder="${fecha} desc")
+@Table(indexes = {
+    // Eventos de un lote por fecha; con oid sirve a la paginación por (fecha, oid) de la colección eventos
+    @Index(name = "idx_dailyevent_lote_fecha_oid", columnList = "lote_oid, fecha, oid"),
+    // Eventos de un lote filtrados por tipo (reportes de alimentación, mortalidad...)
+    @Index(name = "idx_dailyevent_lote_tipo_fecha", columnList = "lote_oid, tipo, fecha"),
+    // Consultas por período de todos los lotes
+    @Index(name = "idx_dailyevent_fecha", columnList = "fecha")
+})
 public class DailyEvent {
 
     @Id
     @Hidden
     @GeneratedValue(generator="system-uuid")
-    @GenericGenerator(name="system-uuid", strategy="uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
     @Column(length=32)
-    // Identificador nico del evento
+    // Identificador único del evento
     String oid;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
-    @DescriptionsList(descriptionProperties = "codigo, especie.nombre, raza.nombre")
+    @NoFrame @Editor("LoteBusqueda")
     FarmBatch lote;
 
     @Required
@@ -39,10 +50,37 @@ public class DailyEvent {
     BigDecimal costo;
 
     // Solo si tipo == MORTALIDAD
+    @Min(0)
     int muertos;
     // Solo si tipo == ALIMENTACION
     BigDecimal kilogramosAlimento;
 
     @TextArea
     String notas;
+
+    // Valores tal como se cargaron, para calcular los deltas de BatchKPI y StageKPI
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    String loteOidCargado;
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    LocalDate fechaCargada;
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    BigDecimal costoCargado;
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    int muertosCargados;
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    BigDecimal kilogramosAlimentoCargados;
+
+    // La misma regla que ImportadorEventosCsv: los muertos descuentan aves vivas del lote
+    @AssertTrue(message = "{muertos_solo_mortalidad}")
+    private boolean isMuertosSoloEnMortalidad() {
+        return muertos <= 0 || tipo == EventType.MORTALIDAD;
+    }
+
+    void recordarValoresKPI() {
+        loteOidCargado = lote == null ? null : lote.getOid();
+        fechaCargada = fecha;
+        costoCargado = costo;
+        muertosCargados = muertos;
+        kilogramosAlimentoCargados = kilogramosAlimento;
+    }
 }
@@ -0,0 +1,17 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import org.apache.commons.fileupload.FileItem;
+import org.openxava.annotations.*;
+import lombok.*;
+
+/**
+ * Diálogo para importar eventos diarios desde un archivo CSV (no se persiste).
+ */
+@Getter @Setter
+public class DailyEventImport {
+
+    @Editor("ArchivoCsv")
+    @LabelFormat(LabelFormatType.NO_LABEL)
+    // Columnas: lote, fecha, tipo, costo, muertos, kilogramosAlimento, notas
+    FileItem archivo;
+}
@@ -0,0 +1,86 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Objects;
+import javax.persistence.*;
+import javax.validation.ValidationException;
+
+import org.hibernate.Session;
+import org.openxava.jpa.XPersistence;
+import org.openxava.util.XavaResources;
+
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Mantiene BatchKPI, StageKPI y los acumulados de WeightSample al insertar,
+ * modificar o borrar un DailyEvent aplicando solo la diferencia respecto a los
+ * valores cargados. La diferencia de muertos se descuenta también de las aves
+ * vivas del lote con ServicioMortalidad; si el lote no tiene aves suficientes el
+ * cambio no se guarda.
+ */
+public class DailyEventKPIListener {
+
+    @PostLoad
+    public void recordarValores(DailyEvent evento) {
+        evento.recordarValoresKPI();
+    }
+
+    @PostPersist
+    public void sumar(DailyEvent evento) {
+        DeltaKPI delta = new DeltaKPI();
+        delta.acumular(evento.kilogramosAlimento, evento.muertos, evento.costo, 1);
+        aplicar(loteOid(evento), evento.fecha, delta);
+        evento.recordarValoresKPI();
+    }
+
+    @PostUpdate
+    public void actualizar(DailyEvent evento) {
+        String loteActual = loteOid(evento);
+        DeltaKPI anterior = new DeltaKPI();
+        anterior.acumular(evento.kilogramosAlimentoCargados, evento.muertosCargados, evento.costoCargado, -1);
+        DeltaKPI actual = new DeltaKPI();
+        actual.acumular(evento.kilogramosAlimento, evento.muertos, evento.costo, 1);
+        if (loteActual.equals(evento.loteOidCargado) && Objects.equals(evento.fecha, evento.fechaCargada)) {
+            // Mismo lote y fecha, luego misma etapa: un solo delta con la diferencia
+            anterior.acumular(evento.kilogramosAlimento, evento.muertos, evento.costo, 1);
+            aplicar(loteActual, evento.fecha, anterior);
+        }
+        else {
+            if (evento.loteOidCargado != null) aplicar(evento.loteOidCargado, evento.fechaCargada, anterior);
+            aplicar(loteActual, evento.fecha, actual);
+        }
+        evento.recordarValoresKPI();
+    }
+
+    @PostRemove
+    public void restar(DailyEvent evento) {
+        DeltaKPI delta = new DeltaKPI();
+        delta.acumular(evento.kilogramosAlimentoCargados, evento.muertosCargados, evento.costoCargado, -1);
+        aplicar(evento.loteOidCargado != null ? evento.loteOidCargado : loteOid(evento),
+            evento.fechaCargada != null ? evento.fechaCargada : evento.fecha, delta);
+    }
+
+    private static String loteOid(DailyEvent evento) {
+        // En un proxy LAZY getOid() no obliga a cargar el lote
+        return evento.lote.getOid();
+    }
+
+    private static void aplicar(String loteOid, LocalDate fecha, DeltaKPI delta) {
+        if (delta.isVacio()) return;
+        // JDBC sobre la misma conexión: no dispara un flush dentro del flush en curso
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            // Primero el lote y después los KPI, en el mismo orden que EscritorEventos
+            try {
+                ServicioMortalidad.descontar(conexion, loteOid, delta.getMuertos());
+            }
+            catch (SQLException ex) {
+                if (!ServicioMortalidad.AVES_INSUFICIENTES.equals(ex.getSQLState())) throw ex;
+                throw new ValidationException(XavaResources.getString("mortalidad_no_registrada", ex.getMessage()));
+            }
+            ServicioBatchKPI.aplicarDelta(conexion, loteOid, delta);
+            ServicioStageKPI.aplicarDelta(conexion, loteOid, fecha, delta);
+            ServicioCurvasPeso.aplicarDelta(conexion, loteOid, fecha, delta);
+        });
+    }
+}
@@ -2,37 +2,45 @@ package com.tuempresa.chickenSuiteApp.modelo;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.GenericGenerator;
 import org.openxava.annotations.*;
 import lombok.*;
 
 import java.util.Collection;
-import javax.persistence.OneToMany;
-import org.openxava.annotations.ListProperties;
 
 import com.tuempresa.chickenSuiteApp.enums.Stage;
+import com.tuempresa.chickenSuiteApp.util.PuntoFijo;
 
 /**
- * Lote de produccin: conjunto de aves gestionadas como unidad.
+ * Lote de producción: conjunto de aves gestionadas como unidad.
  */
 @Entity @Getter @Setter
+@EntityListeners(FarmBatchKPIListener.class)
+@Tab(properties="codigo, especie.nombre, raza.nombre, etapa, fechaInicio, fechaFinPlaneada, cantidadInicial, cantidadVivaActual",
+    defaultOrder="${codigo}")
+// Los lotes que se cargan por referencia (el lote de cada evento, pesaje o proyección de una lista) se leen de 50 en 50
+@BatchSize(size = 50)
+@Table(indexes = {
+    @Index(name = "idx_farmbatch_codigo", columnList = "codigo"),
+    @Index(name = "idx_farmbatch_etapa", columnList = "etapa")
+})
 public class FarmBatch {
 
-    // Versin: colecciones y propiedades en espaol y ms descriptivas
+    // Versión: colecciones y propiedades en español y más descriptivas
 
     @Id
     @Hidden
     @GeneratedValue(generator="system-uuid")
-    @GenericGenerator(name="system-uuid", strategy="uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
     @Column(length=32)
-    // Identificador nico del registro
+    // Identificador único del registro
     String oid;
 
     @Column(length=20)
     @Required
-    // Cdigo identificador del lote
+    // Código identificador del lote
     String codigo;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -43,14 +51,43 @@ public class FarmBatch {
     @DescriptionsList
     Breed raza;
 
-    // Eventos diarios del lote
+    // Eventos diarios del lote; el editor los pide por páginas sin inicializar la colección
     @OneToMany(mappedBy = "lote")
-    @ListProperties("fecha, tipo, kilogramosAlimento, muertos, costo")
+    @OrderBy("fecha, oid")
+    @BatchSize(size = 50)
+    @Editor("EventosPaginados")
     Collection<DailyEvent> eventos;
 
+    // Cambios de etapa aplicados por MotorEtapas
+    @OneToMany(mappedBy = "lote")
+    @OrderBy("fecha desc")
+    @ReadOnly
+    @ListProperties("fecha, etapaAnterior, etapaNueva, diasDesdeInicio")
+    Collection<StageTransition> historialEtapas;
+
+    // Costes y duración de cada etapa (StageKPI)
+    @OneToMany(mappedBy = "lote")
+    @OrderBy("fechaEntrada")
+    @ReadOnly
+    @ListProperties("etapa, fechaEntrada, fechaSalida, dias, totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos")
+    Collection<StageKPI> metricasPorEtapa;
+
+    // Parte de los costos comunes que le ha tocado (ver RepartoCostos)
+    @OneToMany(mappedBy = "lote")
+    @ReadOnly
+    @ListProperties("costo.concepto, costo.fechaDesde, costo.fechaHasta, avesDia, porcentaje, importe")
+    Collection<CostAllocation> costosAsignados;
+
+    // Pesajes con su conversión alimenticia y ganancia diaria
+    @OneToMany(mappedBy = "lote")
+    @OrderBy("fecha")
+    @ListProperties("fecha, diasDesdeInicio, tamanoMuestra, pesoMedioGramos, pesoEsperadoGramos, desviacionGramos, gananciaDiariaGramos, conversionAlimenticia")
+    Collection<WeightSample> pesajes;
+
     // Cantidad inicial de aves en el lote
     int cantidadInicial;
-    // Cantidad actual de aves vivas
+    // Cantidad actual de aves vivas; tras el alta solo la descuenta ServicioMortalidad
+    @ReadOnly(onCreate = false)
     int cantidadVivaActual;
     // Peso objetivo por ave en gramos
     int pesoObjetivoGramos;
@@ -62,31 +99,41 @@ public class FarmBatch {
     @Enumerated(EnumType.STRING)
     Stage etapa;              // Etapas: INCUBACION, CRIA, CRECIMIENTO, ENGORDE, VENDIDO
 
+    // Valores tal como se cargaron: un cambio de etapa a mano se anota en el historial
+    // y uno de cantidad o fecha de inicio se traslada a los pesajes
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    Stage etapaCargada;
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    int cantidadInicialCargada;
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    LocalDate fechaInicioCargada;
+
     @TextArea
     String notas;
 
+    // Bloqueo optimista; ServicioMortalidad también la incrementa al descontar aves por JDBC
+    @Version
+    @Hidden
+    int version;
+
+
+    void recordarValoresCargados() {
+        etapaCargada = etapa;
+        cantidadInicialCargada = cantidadInicial;
+        fechaInicioCargada = fechaInicio;
+    }
 
     @ReadOnly
     @Depends("cantidadInicial, cantidadVivaActual")
     public BigDecimal getTasaMortalidadPorcentaje() {
-        if (cantidadInicial <= 0) return BigDecimal.ZERO;
-        int muertos = cantidadInicial - cantidadVivaActual;
-        BigDecimal muertosBd = new BigDecimal(muertos);
-        BigDecimal initBd = new BigDecimal(cantidadInicial);
-        return muertosBd
-                .multiply(new BigDecimal("100"))
-                .divide(initBd, 2, RoundingMode.HALF_UP); // 2 decimales
+        // 2 decimales, HALF_UP
+        return PuntoFijo.porcentaje(cantidadInicial - cantidadVivaActual, cantidadInicial);
     }
 
     // Porcentaje de aves vivas respecto a las iniciales.
     @ReadOnly
     @Depends("cantidadInicial, cantidadVivaActual")
     public BigDecimal getTasaVivosPorcentaje() {
-        if (cantidadInicial <= 0) return BigDecimal.ZERO;
-        BigDecimal vivosBd = new BigDecimal(cantidadVivaActual);
-        BigDecimal initBd = new BigDecimal(cantidadInicial);
-        return vivosBd
-                .multiply(new BigDecimal("100"))
-                .divide(initBd, 2, RoundingMode.HALF_UP);
+        return PuntoFijo.porcentaje(cantidadVivaActual, cantidadInicial);
     }
 }
@@ -0,0 +1,70 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import javax.persistence.*;
+
+import org.hibernate.Session;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.enums.Stage;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Crea y borra las filas de BatchKPI y StageKPI junto con el lote, borra su parte
+ * de los costos comunes, anota en StageTransition la etapa inicial y los cambios
+ * de etapa hechos a mano, y ajusta los pesajes si cambian las aves o la fecha de inicio.
+ */
+public class FarmBatchKPIListener {
+
+    @PostLoad
+    public void recordarValores(FarmBatch lote) {
+        lote.recordarValoresCargados();
+    }
+
+    @PrePersist
+    public void etapaInicial(FarmBatch lote) {
+        // Sin etapa el historial no sabría a qué tramo asignar los primeros eventos
+        if (lote.etapa == null) lote.etapa = Stage.INCUBACION;
+    }
+
+    @PostPersist
+    public void crearKPI(FarmBatch lote) {
+        LocalDate fecha = lote.fechaInicio != null ? lote.fechaInicio : LocalDate.now();
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            ServicioBatchKPI.crear(conexion, lote.getOid());
+            ServicioStageKPI.iniciar(conexion, lote.getOid(), lote.etapa, fecha, lote.version);
+        });
+        lote.recordarValoresCargados();
+    }
+
+    @PostUpdate
+    public void anotarCambios(FarmBatch lote) {
+        // Un lote sin etapa cuenta como INCUBACION, igual que en MotorEtapas
+        Stage anterior = lote.etapaCargada != null ? lote.etapaCargada : Stage.INCUBACION;
+        boolean cambiaEtapa = lote.etapa != null && lote.etapa != anterior;
+        boolean cambiaFechaInicio = !Objects.equals(lote.fechaInicio, lote.fechaInicioCargada);
+        int diferenciaAves = lote.cantidadInicial - lote.cantidadInicialCargada;
+        if (!cambiaEtapa && !cambiaFechaInicio && diferenciaAves == 0) return;
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            if (cambiaEtapa) {
+                LocalDate hoy = LocalDate.now();
+                int dias = lote.fechaInicio == null ? 0 : (int) ChronoUnit.DAYS.between(lote.fechaInicio, hoy);
+                ServicioStageKPI.cambiarEtapa(conexion, lote.getOid(), anterior, lote.etapa, hoy, dias, lote.version);
+            }
+            ServicioCurvasPeso.cambiarCantidadInicial(conexion, lote.getOid(), diferenciaAves);
+            if (cambiaFechaInicio) ServicioCurvasPeso.cambiarFechaInicio(conexion, lote.getOid(), lote.fechaInicio);
+        });
+        lote.recordarValoresCargados();
+    }
+
+    @PreRemove
+    public void eliminarKPI(FarmBatch lote) {
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            ServicioBatchKPI.eliminar(conexion, lote.getOid());
+            ServicioStageKPI.eliminar(conexion, lote.getOid());
+            ServicioCostosCompartidos.eliminarRepartoLote(conexion, lote.getOid());
+        });
+    }
+}
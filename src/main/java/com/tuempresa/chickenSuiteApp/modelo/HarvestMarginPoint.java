@@ -0,0 +1,49 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import javax.persistence.*;
+
+import org.openxava.annotations.*;
+import lombok.*;
+
+/**
+ * Margen esperado de una proyección si el lote se vende en una fecha. Lo escribe
+ * ServicioCosecha para cada día de la ventana estudiada.
+ */
+@Entity @Getter @Setter
+@Table(indexes = @Index(name = "idx_harvestmarginpoint_proyeccion", columnList = "proyeccion_oid, fecha"))
+public class HarvestMarginPoint {
+
+    @Id
+    @Hidden
+    @Column(length=32)
+    String oid;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReadOnly
+    Projection proyeccion;
+
+    @ReadOnly
+    LocalDate fecha;
+
+    @ReadOnly
+    int diasDesdeInicio;
+
+    @ReadOnly
+    long avesVivas;
+
+    @ReadOnly
+    @Column(precision=9, scale=1)
+    BigDecimal pesoMedioGramos;
+
+    @ReadOnly @Money
+    BigDecimal ingreso;
+
+    // Alimento y costos comunes desde hoy hasta la venta
+    @ReadOnly @Money
+    BigDecimal costoAdicional;
+
+    @ReadOnly @Money
+    BigDecimal margen;
+}
@@ -1,28 +1,43 @@
 package com.tuempresa.chickenSuiteApp.modelo;
 
 import javax.persistence.*;
+import javax.validation.constraints.Max;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import org.hibernate.Session;
 import org.hibernate.annotations.GenericGenerator;
 import org.openxava.annotations.*;
+import org.openxava.jpa.XPersistence;
 import lombok.*;
+import com.tuempresa.chickenSuiteApp.servicios.*;
 
 /**
- * Proyeccin econmica para un lote, usada para estimar ingresos y mrgenes.
+ * Proyección económica para un lote, usada para estimar ingresos y márgenes.
  */
 @Entity @Getter @Setter
+@Tab(properties="lote.codigo, precioEsperadoPorKilogramo, costosEstimados, pesoVivoEstimadoKilogramos, margenP50, " +
+    "fechaCosechaRecomendada, margenCosechaRecomendada")
+@NamedEntityGraph(name = Projection.CON_LOTE,
+    attributeNodes = @NamedAttributeNode(value = "lote", subgraph = "catalogos"),
+    subgraphs = @NamedSubgraph(name = "catalogos", attributeNodes = {@NamedAttributeNode("especie"), @NamedAttributeNode("raza")}))
+@Table(indexes = @Index(name = "idx_projection_lote", columnList = "lote_oid"))
 public class Projection {
 
+    // Grafo para leer la proyección con su lote, la especie y la raza del lote en la misma consulta
+    public static final String CON_LOTE = "Projection.lote";
+
     @Id
     @Hidden
     @GeneratedValue(generator="system-uuid")
-    @GenericGenerator(name="system-uuid", strategy="uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
     @Column(length=32)
-    // Identificador nico de la proyeccin
+    // Identificador único de la proyección
     String oid;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
-    @DescriptionsList(descriptionProperties = "codigo, especie.nombre, raza.nombre")
-    // Lote asociado a la proyeccin
+    @NoFrame @Editor("LoteBusqueda")
+    // Lote asociado a la proyección
     FarmBatch lote;
 
     @Required
@@ -38,6 +53,77 @@ public class Projection {
     @Money
     BigDecimal pesoVivoEstimadoKilogramos;
 
+    // ===== SIMULACIÓN MONTE CARLO =====
+
+    // Desviación típica del precio por kg, en % del esperado (10 si se deja vacío)
+    @Column(precision=5, scale=2)
+    BigDecimal desviacionPrecioPorcentaje;
+
+    // Desviación típica del peso vivo final, en % del estimado (8 si se deja vacío)
+    @Column(precision=5, scale=2)
+    BigDecimal desviacionPesoPorcentaje;
+
+    // Ensayos por simulación (100.000 si se deja vacío)
+    @Max(5_000_000)
+    Integer ensayosSimulacion;
+
+    // Resultado de la última simulación; la mortalidad se sortea según la historia de la raza
+    @ReadOnly @Money
+    BigDecimal margenP5;
+
+    @ReadOnly @Money
+    BigDecimal margenP50;
+
+    @ReadOnly @Money
+    BigDecimal margenP95;
+
+    @ReadOnly
+    @Column(precision=5, scale=2)
+    BigDecimal probabilidadPerdidaPorcentaje;
+
+    @ReadOnly
+    LocalDate fechaSimulacion;
+
+    // ===== DÍA DE VENTA ÓPTIMO =====
+
+    // Día de mayor margen esperado según la curva de crecimiento de la raza
+    @ReadOnly
+    LocalDate fechaCosechaRecomendada;
+
+    @ReadOnly
+    Integer diasCosechaRecomendada;
+
+    @ReadOnly @Money
+    BigDecimal margenCosechaRecomendada;
+
+    @ReadOnly
+    @Column(precision=9, scale=1)
+    BigDecimal pesoCosechaRecomendadaGramos;
+
+    @ReadOnly
+    LocalDate fechaOptimizacionCosecha;
+
+    // Margen esperado para cada día de venta de la ventana estudiada
+    @OneToMany(mappedBy = "proyeccion")
+    @OrderBy("fecha")
+    @ReadOnly
+    @Chart(labelProperties = "fecha", dataProperties = "margen")
+    @ListProperties("fecha, diasDesdeInicio, avesVivas, pesoMedioGramos, ingreso, costoAdicional, margen")
+    Collection<HarvestMarginPoint> margenPorDiaVenta;
+
+    // ===== SENSIBILIDAD =====
+
+    @ReadOnly
+    LocalDate fechaSensibilidad;
+
+    // Cambio del margen proyectado al mover cada entrada, de la que más influye a la que menos
+    @OneToMany(mappedBy = "proyeccion")
+    @OrderBy("puesto")
+    @ReadOnly
+    @Chart(labelProperties = "entrada", dataProperties = "impactoBajo, impactoAlto")
+    @ListProperties("entrada, valorBase, valorMargenBajo, valorMargenAlto, margenBajo, margenAlto, impactoBajo, impactoAlto, amplitud")
+    Collection<ProjectionSensitivity> sensibilidad;
+
     // ===== PROPIEDADES CALCULADAS =====
 
     /**
@@ -64,4 +150,12 @@ public class Projection {
         if (costosEstimados == null) return ingreso;
         return ingreso.subtract(costosEstimados);
     }
+
+    @PreRemove
+    void eliminarResultados() {
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            ServicioCosecha.eliminarCurva(conexion, oid);
+            ServicioSensibilidad.eliminar(conexion, oid);
+        });
+    }
 }
@@ -0,0 +1,64 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import javax.persistence.*;
+
+import org.openxava.annotations.*;
+import lombok.*;
+import com.tuempresa.chickenSuiteApp.enums.ProjectionInput;
+
+/**
+ * Cuánto cambia el margen proyectado al mover una entrada de la proyección con las
+ * demás fijas. Lo escribe ServicioSensibilidad; puesto ordena las entradas de la
+ * que más mueve el margen a la que menos, como las barras de un gráfico de tornado.
+ */
+@Entity @Getter @Setter
+@Table(indexes = @Index(name = "idx_projectionsensitivity_proyeccion", columnList = "proyeccion_oid, puesto"))
+public class ProjectionSensitivity {
+
+    @Id
+    @Hidden
+    @Column(length=32)
+    String oid;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReadOnly
+    Projection proyeccion;
+
+    @ReadOnly
+    int puesto;
+
+    @Enumerated(EnumType.STRING)
+    @ReadOnly
+    ProjectionInput entrada;
+
+    // Valor de la entrada en la proyección; la mortalidad es la fracción final esperada
+    @ReadOnly
+    @Column(precision=19, scale=4)
+    BigDecimal valorBase;
+
+    // Valores de la entrada con los que se obtienen el menor y el mayor margen
+    @ReadOnly
+    @Column(precision=19, scale=4)
+    BigDecimal valorMargenBajo;
+
+    @ReadOnly
+    @Column(precision=19, scale=4)
+    BigDecimal valorMargenAlto;
+
+    @ReadOnly @Money
+    BigDecimal margenBajo;
+
+    @ReadOnly @Money
+    BigDecimal margenAlto;
+
+    // Diferencia de margenBajo y margenAlto con el margen proyectado
+    @ReadOnly @Money
+    BigDecimal impactoBajo;
+
+    @ReadOnly @Money
+    BigDecimal impactoAlto;
+
+    @ReadOnly @Money
+    BigDecimal amplitud;
+}
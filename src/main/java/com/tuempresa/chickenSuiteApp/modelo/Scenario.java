@@ -0,0 +1,139 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import org.hibernate.Session;
+import org.hibernate.annotations.GenericGenerator;
+import org.openxava.annotations.*;
+import org.openxava.jpa.XPersistence;
+import lombok.*;
+
+import com.tuempresa.chickenSuiteApp.servicios.ServicioEscenarios;
+
+/**
+ * Escenario productivo hipotético: un lote que aún no existe, probado con cada
+ * raza elegida y cada combinación de precios de venta y de alimento. Al ejecutarlo
+ * ServicioEscenarios deja en resultados la clasificación de las combinaciones por
+ * margen.
+ */
+@Entity @Getter @Setter
+@Tab(properties="nombre, especie.nombre, cantidadInicial, fechaInicio, combinaciones, mejorMargenP50, fechaEjecucion",
+    defaultOrder="${fechaEjecucion} desc")
+public class Scenario {
+
+    @Id
+    @Hidden
+    @GeneratedValue(generator="system-uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
+    @Column(length=32)
+    String oid;
+
+    @Column(length=60)
+    @Required
+    String nombre;
+
+    // Limita las razas a una especie cuando no se eligen razas concretas
+    @ManyToOne(fetch = FetchType.LAZY)
+    @DescriptionsList
+    Species especie;
+
+    // Razas a comparar; si se deja vacía entran todas las de la especie, o todas
+    @ManyToMany
+    @JoinTable(name = "ScenarioBreed", joinColumns = @JoinColumn(name = "escenario_oid"),
+        inverseJoinColumns = @JoinColumn(name = "raza_oid"))
+    @ListProperties("nombre, especie.nombre, proposito, diasCrecimientoEstandar")
+    Collection<Breed> razas;
+
+    // ===== LOTE HIPOTÉTICO =====
+
+    @Required
+    @Min(1)
+    int cantidadInicial;
+
+    @Required
+    LocalDate fechaInicio;
+
+    // Precio de compra de cada ave al iniciar el lote
+    @Money
+    @DecimalMin("0")
+    BigDecimal costoPorAve;
+
+    // Días candidatos para la venta desde fechaInicio (120 si se deja vacío)
+    @Min(1) @Max(730)
+    Integer diasMaximos;
+
+    // ===== SUPUESTOS DE PRECIOS =====
+
+    // Precio de venta por kg: pasosPrecio valores repartidos entre el mínimo y el máximo
+    @Required
+    @Money
+    @DecimalMin("0")
+    BigDecimal precioMinimoPorKilogramo;
+
+    @Money
+    @DecimalMin("0")
+    BigDecimal precioMaximoPorKilogramo;
+
+    @Min(1) @Max(50)
+    Integer pasosPrecio;
+
+    // Precio del alimento por kg; vacío usa la media reciente de los eventos
+    @Money
+    @DecimalMin("0")
+    BigDecimal precioAlimentoMinimoPorKilogramo;
+
+    @Money
+    @DecimalMin("0")
+    BigDecimal precioAlimentoMaximoPorKilogramo;
+
+    @Min(1) @Max(50)
+    Integer pasosPrecioAlimento;
+
+    // Desviación típica del precio de venta, en % (10 si se deja vacío)
+    @Column(precision=5, scale=2)
+    BigDecimal desviacionPrecioPorcentaje;
+
+    // Ensayos de Monte Carlo por combinación (10.000 si se deja vacío)
+    @Min(100) @Max(1_000_000)
+    Integer ensayosSimulacion;
+
+    // ===== ÚLTIMA EJECUCIÓN =====
+
+    @ReadOnly
+    Integer combinaciones;
+
+    @ReadOnly @Money
+    BigDecimal mejorMargenP50;
+
+    @ReadOnly
+    Long duracionMilisegundos;
+
+    @ReadOnly
+    LocalDate fechaEjecucion;
+
+    @OneToMany(mappedBy = "escenario")
+    @OrderBy("puesto")
+    @ReadOnly
+    @ListProperties("puesto, raza.nombre, precioVentaPorKilogramo, precioAlimentoPorKilogramo, diasVenta, pesoMedioGramos, " +
+        "margen, margenP5, margenP50, margenP95, probabilidadPerdidaPorcentaje")
+    Collection<ScenarioResult> resultados;
+
+    @AssertTrue(message = "{rango_precios_escenario_invalido}")
+    private boolean isRangoPreciosValido() {
+        return valido(precioMinimoPorKilogramo, precioMaximoPorKilogramo) &&
+            valido(precioAlimentoMinimoPorKilogramo, precioAlimentoMaximoPorKilogramo);
+    }
+
+    private static boolean valido(BigDecimal minimo, BigDecimal maximo) {
+        return minimo == null || maximo == null || maximo.compareTo(minimo) >= 0;
+    }
+
+    @PreRemove
+    void eliminarResultados() {
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> ServicioEscenarios.eliminarResultados(conexion, oid));
+    }
+}
@@ -0,0 +1,80 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import javax.persistence.*;
+
+import org.openxava.annotations.*;
+import lombok.*;
+
+/**
+ * Resultado de una combinación de raza y precios de un escenario, en el día de
+ * venta de mayor margen esperado. puesto ordena las combinaciones por margenP50.
+ */
+@Entity @Getter @Setter
+@Tab(properties="escenario.nombre, puesto, raza.nombre, precioVentaPorKilogramo, precioAlimentoPorKilogramo, diasVenta, " +
+    "margen, margenP5, margenP50, margenP95, probabilidadPerdidaPorcentaje", defaultOrder="${escenario.nombre}, ${puesto}")
+@Table(indexes = @Index(name = "idx_scenarioresult_escenario", columnList = "escenario_oid, puesto"))
+public class ScenarioResult {
+
+    @Id
+    @Hidden
+    @Column(length=32)
+    String oid;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReadOnly
+    Scenario escenario;
+
+    @ReadOnly
+    int puesto;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReadOnly
+    @DescriptionsList
+    Breed raza;
+
+    @ReadOnly @Money
+    BigDecimal precioVentaPorKilogramo;
+
+    @ReadOnly @Money
+    BigDecimal precioAlimentoPorKilogramo;
+
+    // Edad y fecha de venta recomendadas
+    @ReadOnly
+    int diasVenta;
+
+    @ReadOnly
+    LocalDate fechaVenta;
+
+    @ReadOnly
+    long avesVendidas;
+
+    @ReadOnly
+    @Column(precision=9, scale=1)
+    BigDecimal pesoMedioGramos;
+
+    @ReadOnly @Money
+    BigDecimal ingreso;
+
+    @ReadOnly @Money
+    BigDecimal costoTotal;
+
+    // Margen esperado con la mortalidad media de la raza
+    @ReadOnly @Money
+    BigDecimal margen;
+
+    // Percentiles de la simulación con precio, peso y mortalidad inciertos
+    @ReadOnly @Money
+    BigDecimal margenP5;
+
+    @ReadOnly @Money
+    BigDecimal margenP50;
+
+    @ReadOnly @Money
+    BigDecimal margenP95;
+
+    @ReadOnly
+    @Column(precision=5, scale=2)
+    BigDecimal probabilidadPerdidaPorcentaje;
+}
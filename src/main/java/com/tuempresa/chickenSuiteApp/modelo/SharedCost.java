@@ -0,0 +1,76 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import org.hibernate.Session;
+import org.hibernate.annotations.GenericGenerator;
+import org.openxava.annotations.*;
+import org.openxava.jpa.XPersistence;
+import lombok.*;
+
+import com.tuempresa.chickenSuiteApp.enums.CostType;
+import com.tuempresa.chickenSuiteApp.servicios.ServicioCostosCompartidos;
+
+/**
+ * Costo común de un periodo (electricidad, mano de obra...) que se reparte entre
+ * los lotes vivos en esas fechas en proporción a sus aves-día (ver RepartoCostos).
+ */
+@Entity @Getter @Setter
+@Tab(properties="concepto, tipo, fechaDesde, fechaHasta, importe, totalAvesDia, fechaReparto", defaultOrder="${fechaDesde} desc")
+@Table(indexes = @Index(name = "idx_sharedcost_fechas", columnList = "fechaDesde, fechaHasta"))
+public class SharedCost {
+
+    @Id
+    @Hidden
+    @GeneratedValue(generator="system-uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
+    @Column(length=32)
+    String oid;
+
+    @Column(length=60)
+    @Required
+    String concepto;
+
+    @Enumerated(EnumType.STRING)
+    @Required
+    CostType tipo;
+
+    // Periodo cubierto, con ambos días incluidos; normalmente un mes
+    @Required
+    LocalDate fechaDesde;
+
+    @Required
+    LocalDate fechaHasta;
+
+    @Required
+    @Money
+    @DecimalMin("0")
+    BigDecimal importe;
+
+    // Resultado del último reparto
+    @ReadOnly
+    Long totalAvesDia;
+
+    @ReadOnly
+    LocalDate fechaReparto;
+
+    @OneToMany(mappedBy = "costo")
+    @OrderBy("importe desc")
+    @ReadOnly
+    @ListProperties("lote.codigo, avesDia, porcentaje, importe")
+    Collection<CostAllocation> reparto;
+
+    @AssertTrue(message = "{periodo_costo_invalido}")
+    private boolean isPeriodoValido() {
+        return fechaDesde == null || fechaHasta == null || !fechaHasta.isBefore(fechaDesde);
+    }
+
+    @PreRemove
+    void eliminarReparto() {
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> ServicioCostosCompartidos.eliminarReparto(conexion, oid));
+    }
+}
@@ -2,28 +2,34 @@ package com.tuempresa.chickenSuiteApp.modelo;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 import org.openxava.annotations.Hidden;
 import org.openxava.annotations.Required;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 
 /**
  * Especie animal (por ejemplo: Gallina, Pato).
- * Representa la clasificacin biolgica usada en el sistema.
+ * Representa la clasificación biológica usada en el sistema.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter @Setter
 public class Species {
     @Id
     @Hidden
     @GeneratedValue(generator = "system-uuid")
-    @GenericGenerator(name = "system-uuid", strategy = "uuid")
+    @GenericGenerator(name = "system-uuid", strategy = "com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
     @Column(length = 32)
-    // Identificador nico del registro
+    // Identificador único del registro
     String oid;
 
     @Column(length = 40)
@@ -32,4 +38,8 @@ public class Species {
 
     @Column(length = 100)
     String descripcion;
+
+    // Curva de Gompertz ajustada a los pesajes de los lotes vendidos de todas sus razas
+    @Embedded
+    CurvaCrecimiento curva;
 }
@@ -0,0 +1,64 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import javax.persistence.*;
+
+import org.openxava.annotations.*;
+import lombok.*;
+
+import com.tuempresa.chickenSuiteApp.enums.Stage;
+
+/**
+ * Métricas de un lote en una etapa: los eventos diarios se reparten según la
+ * etapa activa en su fecha (ver StageTransition). Igual que BatchKPI se mantiene
+ * sumando deltas al escribir eventos y al cambiar de etapa (ServicioStageKPI).
+ */
+@Entity @Getter @Setter
+@Tab(properties="lote.codigo, etapa, fechaEntrada, fechaSalida, dias, totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos")
+@Table(indexes = @Index(name = "idx_stagekpi_lote_etapa", columnList = "lote_oid, etapa"))
+public class StageKPI {
+
+    @Id
+    @Hidden
+    @Column(length=50)
+    // Oid del lote, ':' y la etapa
+    String oid;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ReadOnly
+    FarmBatch lote;
+
+    @Enumerated(EnumType.STRING)
+    @ReadOnly
+    Stage etapa;
+
+    @ReadOnly
+    LocalDate fechaEntrada;
+
+    // Vacía mientras el lote sigue en la etapa
+    @ReadOnly
+    LocalDate fechaSalida;
+
+    @ReadOnly
+    @Column(precision=19, scale=3)
+    BigDecimal totalKilogramosAlimento;
+
+    @ReadOnly
+    long totalMuertos;
+
+    @ReadOnly
+    @Money
+    BigDecimal totalCosto;
+
+    @ReadOnly
+    long cantidadEventos;
+
+    @ReadOnly
+    @Depends("fechaEntrada, fechaSalida")
+    public long getDias() {
+        if (fechaEntrada == null) return 0;
+        return ChronoUnit.DAYS.between(fechaEntrada, fechaSalida == null ? LocalDate.now() : fechaSalida);
+    }
+}
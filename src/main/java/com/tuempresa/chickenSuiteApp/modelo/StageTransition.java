@@ -0,0 +1,55 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.time.LocalDate;
+import javax.persistence.*;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.openxava.annotations.*;
+import lombok.*;
+
+import com.tuempresa.chickenSuiteApp.enums.Stage;
+
+/**
+ * Cambio de etapa de un lote aplicado por MotorEtapas. Se escribe una fila por
+ * lote y transición; no se edita desde la interfaz.
+ */
+@Entity @Getter @Setter
+@Tab(properties="lote.codigo, fecha, etapaAnterior, etapaNueva, diasDesdeInicio", defaultOrder="${fecha} desc")
+@Table(indexes = {
+    @Index(name = "idx_stagetransition_lote_fecha", columnList = "lote_oid, fecha"),
+    @Index(name = "idx_stagetransition_ejecucion", columnList = "ejecucion")
+})
+public class StageTransition {
+
+    @Id
+    @Hidden
+    @GeneratedValue(generator="system-uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
+    @Column(length=32)
+    String oid;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReadOnly
+    FarmBatch lote;
+
+    @Enumerated(EnumType.STRING)
+    @ReadOnly
+    Stage etapaAnterior;
+
+    @Enumerated(EnumType.STRING)
+    @ReadOnly
+    Stage etapaNueva;
+
+    // Día evaluado por el motor
+    @ReadOnly
+    LocalDate fecha;
+
+    @ReadOnly
+    int diasDesdeInicio;
+
+    // Pasada del motor que escribió la fila y versión del lote que leyó
+    @Hidden @Column(length=32)
+    String ejecucion;
+    @Hidden
+    int versionLote;
+}
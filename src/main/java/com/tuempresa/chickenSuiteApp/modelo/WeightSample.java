@@ -0,0 +1,115 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.math.*;
+import java.time.LocalDate;
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.openxava.annotations.*;
+import lombok.*;
+
+/**
+ * Pesaje de una muestra de aves de un lote. Junto al peso guarda el alimento
+ * consumido y las aves vivas del lote hasta ese día, que mantiene
+ * ServicioCurvasPeso, así la conversión alimenticia y la ganancia diaria de cada
+ * pesaje se leen sin recorrer los eventos.
+ */
+@Entity @Getter @Setter
+@EntityListeners(WeightSampleKPIListener.class)
+@Tab(properties="lote.codigo, fecha, diasDesdeInicio, tamanoMuestra, pesoMedioGramos, desviacionGramos, gananciaDiariaGramos, conversionAlimenticia",
+    defaultOrder="${fecha} desc")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_weightsample_lote_fecha", columnNames = {"lote_oid", "fecha"}))
+public class WeightSample {
+
+    @Id
+    @Hidden
+    @GeneratedValue(generator="system-uuid")
+    @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado")
+    @Column(length=32)
+    String oid;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @NoFrame @Editor("LoteBusqueda")
+    FarmBatch lote;
+
+    // Un pesaje por lote y día
+    @Required
+    LocalDate fecha;
+
+    // Aves pesadas
+    @Required
+    @Min(1)
+    int tamanoMuestra;
+
+    @Required
+    @DecimalMin("0")
+    @Column(precision=9, scale=1)
+    BigDecimal pesoMedioGramos;
+
+    @DecimalMin("0")
+    @Column(precision=9, scale=1)
+    BigDecimal desviacionGramos;
+
+    // ===== ACUMULADOS DEL LOTE HASTA LA FECHA (ServicioCurvasPeso) =====
+
+    @ReadOnly
+    int diasDesdeInicio;
+
+    @ReadOnly
+    @Column(precision=19, scale=3)
+    BigDecimal alimentoAcumuladoKilogramos;
+
+    @ReadOnly
+    long avesVivas;
+
+    // Respecto al pesaje anterior del lote; vacía en el primero
+    @ReadOnly
+    @Column(precision=9, scale=2)
+    BigDecimal gananciaDiariaGramos;
+
+    // Lote y fecha tal como se cargaron, para corregir el pesaje siguiente si cambian
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    String loteOidCargado;
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    LocalDate fechaCargada;
+
+    void recordarValoresCargados() {
+        loteOidCargado = lote == null ? null : lote.getOid();
+        fechaCargada = fecha;
+    }
+
+    // ===== PROPIEDADES CALCULADAS =====
+
+    /**
+     * Peso vivo del lote estimado con el peso medio de la muestra.
+     */
+    @ReadOnly
+    @Depends("avesVivas, pesoMedioGramos")
+    public BigDecimal getBiomasaKilogramos() {
+        if (pesoMedioGramos == null) return BigDecimal.ZERO;
+        return pesoMedioGramos.multiply(BigDecimal.valueOf(avesVivas)).movePointLeft(3).setScale(3, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Peso que marca para ese día la curva de crecimiento de la raza del lote.
+     */
+    @ReadOnly
+    @Depends("diasDesdeInicio")
+    public BigDecimal getPesoEsperadoGramos() {
+        if (lote == null || lote.getRaza() == null) return null;
+        Double peso = lote.getRaza().pesoEsperadoGramos(diasDesdeInicio);
+        return peso == null ? null : BigDecimal.valueOf(peso).setScale(1, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Conversión alimenticia acumulada (FCR): kg de alimento por kg de peso vivo.
+     */
+    @ReadOnly
+    @Depends("alimentoAcumuladoKilogramos, avesVivas, pesoMedioGramos")
+    public BigDecimal getConversionAlimenticia() {
+        BigDecimal biomasa = getBiomasaKilogramos();
+        if (alimentoAcumuladoKilogramos == null || biomasa.signum() == 0) return null;
+        return alimentoAcumuladoKilogramos.divide(biomasa, 3, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,54 @@
+package com.tuempresa.chickenSuiteApp.modelo;
+
+import java.time.LocalDate;
+import javax.persistence.*;
+
+import org.hibernate.Session;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Calcula los acumulados de un pesaje al guardarlo y corrige la ganancia diaria
+ * del pesaje siguiente, que se mide respecto a él.
+ */
+public class WeightSampleKPIListener {
+
+    @PostLoad
+    public void recordarValores(WeightSample muestra) {
+        muestra.recordarValoresCargados();
+    }
+
+    @PrePersist @PreUpdate
+    public void calcular(WeightSample muestra) {
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            ServicioCurvasPeso.Punto punto = ServicioCurvasPeso.calcular(conexion, muestra.lote.getOid(), muestra.oid,
+                muestra.fecha, muestra.pesoMedioGramos);
+            muestra.diasDesdeInicio = punto.getDiasDesdeInicio();
+            muestra.alimentoAcumuladoKilogramos = punto.getAlimentoAcumuladoKilogramos();
+            muestra.avesVivas = punto.getAvesVivas();
+            muestra.gananciaDiariaGramos = punto.getGananciaDiariaGramos();
+        });
+    }
+
+    @PostPersist @PostUpdate
+    public void corregirSiguiente(WeightSample muestra) {
+        String loteOid = muestra.lote.getOid();
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            if (muestra.loteOidCargado != null && muestra.fechaCargada != null &&
+                    (!muestra.loteOidCargado.equals(loteOid) || !muestra.fechaCargada.equals(muestra.fecha))) {
+                ServicioCurvasPeso.actualizarSiguiente(conexion, muestra.loteOidCargado, muestra.fechaCargada);
+            }
+            ServicioCurvasPeso.actualizarSiguiente(conexion, loteOid, muestra.fecha);
+        });
+        muestra.recordarValoresCargados();
+    }
+
+    @PostRemove
+    public void corregirSiguienteAlBorrar(WeightSample muestra) {
+        String loteOid = muestra.loteOidCargado != null ? muestra.loteOidCargado : muestra.lote.getOid();
+        LocalDate fecha = muestra.fechaCargada != null ? muestra.fechaCargada : muestra.fecha;
+        XPersistence.getManager().unwrap(Session.class)
+            .doWork(conexion -> ServicioCurvasPeso.actualizarSiguiente(conexion, loteOid, fecha));
+    }
+}
@@ -0,0 +1,200 @@
+package com.tuempresa.chickenSuiteApp.persistencia;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+import com.tuempresa.chickenSuiteApp.servicios.RegistroEvento;
+
+/**
+ * Diario local de eventos pendientes de guardar en la base de datos.
+ *
+ * Cada apunte se escribe al final de eventos.diario y se fuerza a disco antes de
+ * devolver, con el formato [longitud][secuencia][datos][CRC32]. El archivo
+ * "confirmado" guarda la secuencia del último apunte que ya está en la base de
+ * datos; al arrancar se recuperan los posteriores. Un apunte a medio escribir
+ * (caída durante la escritura) no pasa el CRC y se descarta junto con lo que
+ * venga detrás.
+ */
+public class DiarioEventos implements Closeable {
+
+    private static final String ARCHIVO = "eventos.diario";
+    private static final String CONFIRMADO = "confirmado";
+
+    // Al confirmar todo lo anotado, el diario se vacía si ya ocupa más de esto
+    private static final long TAMANO_COMPACTAR = 16L * 1024 * 1024;
+
+    /**
+     * Un evento anotado con su número de secuencia.
+     */
+    public static class Apunte {
+
+        final long secuencia;
+        final RegistroEvento registro;
+
+        public Apunte(long secuencia, RegistroEvento registro) {
+            this.secuencia = secuencia;
+            this.registro = registro;
+        }
+
+        public long getSecuencia() {
+            return secuencia;
+        }
+
+        public RegistroEvento getRegistro() {
+            return registro;
+        }
+    }
+
+    private final Path directorio;
+    private final FileChannel canal;
+    private long ultimaSecuencia;
+    private long confirmada;
+
+    public DiarioEventos(Path directorio) throws IOException {
+        this.directorio = directorio;
+        Files.createDirectories(directorio);
+        canal = FileChannel.open(directorio.resolve(ARCHIVO),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Path confirmado = directorio.resolve(CONFIRMADO);
+        if (Files.exists(confirmado)) {
+            confirmada = Long.parseLong(new String(Files.readAllBytes(confirmado), StandardCharsets.US_ASCII).trim());
+        }
+    }
+
+    /**
+     * Lee el diario completo y devuelve los apuntes posteriores a la última
+     * confirmación. Se llama una vez al arrancar, antes de anotar nada.
+     */
+    public synchronized List<Apunte> recuperar() throws IOException {
+        List<Apunte> pendientes = new ArrayList<>();
+        long posicion = 0, tamano = canal.size();
+        ByteBuffer cabecera = ByteBuffer.allocate(12);
+        ultimaSecuencia = confirmada;
+        while (posicion + 12 <= tamano) {
+            cabecera.clear();
+            leer(cabecera, posicion);
+            int longitud = cabecera.getInt(0);
+            long secuencia = cabecera.getLong(4);
+            if (longitud <= 0 || posicion + 12 + longitud + 4 > tamano) break;
+            ByteBuffer cuerpo = ByteBuffer.allocate(longitud + 4);
+            leer(cuerpo, posicion + 12);
+            CRC32 crc = new CRC32();
+            crc.update(cabecera.array(), 4, 8);
+            crc.update(cuerpo.array(), 0, longitud);
+            if ((int) crc.getValue() != cuerpo.getInt(longitud)) break;
+            if (secuencia > confirmada) {
+                pendientes.add(new Apunte(secuencia, deserializar(cuerpo.array(), longitud)));
+            }
+            ultimaSecuencia = Math.max(ultimaSecuencia, secuencia);
+            posicion += 12 + longitud + 4;
+        }
+        if (posicion < tamano) {
+            // Cola dañada por una escritura interrumpida
+            canal.truncate(posicion);
+            canal.force(true);
+        }
+        canal.position(posicion);
+        return pendientes;
+    }
+
+    /**
+     * Añade el evento al diario y lo fuerza a disco.
+     *
+     * @return secuencia asignada
+     */
+    public synchronized long anotar(RegistroEvento registro) throws IOException {
+        byte[] datos = serializar(registro);
+        long secuencia = ++ultimaSecuencia;
+        ByteBuffer apunte = ByteBuffer.allocate(12 + datos.length + 4);
+        apunte.putInt(datos.length).putLong(secuencia).put(datos);
+        CRC32 crc = new CRC32();
+        crc.update(apunte.array(), 4, 8 + datos.length);
+        apunte.putInt((int) crc.getValue());
+        apunte.flip();
+        while (apunte.hasRemaining()) canal.write(apunte);
+        canal.force(false);
+        return secuencia;
+    }
+
+    /**
+     * Marca como guardados en la base de datos todos los apuntes hasta secuencia.
+     */
+    public void confirmar(long secuencia) throws IOException {
+        Path temporal = directorio.resolve(CONFIRMADO + ".tmp");
+        try (FileChannel archivo = FileChannel.open(temporal,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            archivo.write(ByteBuffer.wrap(Long.toString(secuencia).getBytes(StandardCharsets.US_ASCII)));
+            archivo.force(true);
+        }
+        Files.move(temporal, directorio.resolve(CONFIRMADO), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        synchronized (this) {
+            confirmada = secuencia;
+            if (confirmada == ultimaSecuencia && canal.size() > TAMANO_COMPACTAR) {
+                canal.truncate(0);
+                canal.position(0);
+                canal.force(true);
+            }
+        }
+    }
+
+    public synchronized long getPendientes() {
+        return ultimaSecuencia - confirmada;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        canal.close();
+    }
+
+    private void leer(ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            if (canal.read(destino, posicion + destino.position()) < 0) throw new EOFException();
+        }
+    }
+
+    private static byte[] serializar(RegistroEvento registro) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream salida = new DataOutputStream(bytes);
+        salida.writeUTF(registro.getOid());
+        salida.writeUTF(registro.getLoteOid());
+        salida.writeLong(registro.getFecha().toEpochDay());
+        salida.writeUTF(registro.getTipo().name());
+        escribirOpcional(salida, registro.getCosto() == null ? null : registro.getCosto().toPlainString());
+        salida.writeInt(registro.getMuertos());
+        escribirOpcional(salida, registro.getKilogramosAlimento() == null ? null : registro.getKilogramosAlimento().toPlainString());
+        escribirOpcional(salida, registro.getNotas());
+        salida.flush();
+        return bytes.toByteArray();
+    }
+
+    private static RegistroEvento deserializar(byte[] datos, int longitud) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(datos, 0, longitud));
+        String oid = entrada.readUTF();
+        String loteOid = entrada.readUTF();
+        LocalDate fecha = LocalDate.ofEpochDay(entrada.readLong());
+        EventType tipo = EventType.valueOf(entrada.readUTF());
+        String costo = leerOpcional(entrada);
+        int muertos = entrada.readInt();
+        String kilogramos = leerOpcional(entrada);
+        String notas = leerOpcional(entrada);
+        return new RegistroEvento(oid, loteOid, fecha, tipo, costo == null ? null : new BigDecimal(costo), muertos,
+            kilogramos == null ? null : new BigDecimal(kilogramos), notas);
+    }
+
+    private static void escribirOpcional(DataOutputStream salida, String valor) throws IOException {
+        salida.writeBoolean(valor != null);
+        if (valor != null) salida.writeUTF(valor);
+    }
+
+    private static String leerOpcional(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.tuempresa.chickenSuiteApp.persistencia;
+
+import java.sql.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.naming.*;
+import javax.sql.*;
+
+import org.apache.tomcat.dbcp.dbcp2.DataSourceMXBean;
+
+/**
+ * Acceso a la fuente de datos de la aplicación para los procesos que
+ * trabajan directamente con JDBC (importaciones, cargas masivas, etc.).
+ */
+public class FuenteDatos {
+
+    // Mismo recurso que usa persistence.xml
+    public static final String NOMBRE_JNDI = "java:comp/env/jdbc/chickenSuiteAppDS";
+
+    private static DataSource dataSource;
+
+    // Conexiones pedidas con getConexion() y tiempo total esperando al pool
+    private static final LongAdder conexionesObtenidas = new LongAdder();
+    private static final LongAdder nanosegundosEsperando = new LongAdder();
+
+    /**
+     * El pool propio (PoolConexiones) si chickenSuiteApp.properties define
+     * pool.url; si no, el recurso JNDI de context.xml.
+     */
+    public static synchronized DataSource getDataSource() {
+        if (dataSource == null) {
+            if (PoolConexiones.isConfigurado()) {
+                dataSource = PoolConexiones.crear();
+                return dataSource;
+            }
+            try {
+                dataSource = (DataSource) new InitialContext().lookup(NOMBRE_JNDI);
+            }
+            catch (NamingException ex) {
+                throw new IllegalStateException("No se encontró la fuente de datos " + NOMBRE_JNDI, ex);
+            }
+        }
+        return dataSource;
+    }
+
+    /** El pool propio de la aplicación, o null si se usa el recurso JNDI. */
+    public static synchronized PoolConexiones getPoolPropio() {
+        DataSource fuente = getDataSource();
+        return fuente instanceof PoolConexiones ? (PoolConexiones) fuente : null;
+    }
+
+    /** Cierra el pool propio al parar la aplicación; el recurso JNDI lo cierra Tomcat. */
+    public static synchronized void cerrar() {
+        if (dataSource instanceof PoolConexiones) {
+            try {
+                ((PoolConexiones) dataSource).close();
+            }
+            catch (SQLException ex) {
+                throw new IllegalStateException("No se pudo cerrar el pool de conexiones", ex);
+            }
+        }
+        dataSource = null;
+    }
+
+    /**
+     * Conexión nueva sin autocommit; quien la pide la confirma y la cierra.
+     * Sus sentencias las cronometra MonitorConsultas.
+     */
+    public static Connection getConexion() throws SQLException {
+        long inicio = System.nanoTime();
+        Connection conexion = getDataSource().getConnection();
+        nanosegundosEsperando.add(System.nanoTime() - inicio);
+        conexionesObtenidas.increment();
+        conexion.setAutoCommit(false);
+        return MonitorConsultas.vigilar(conexion);
+    }
+
+    public static long getConexionesObtenidas() {
+        return conexionesObtenidas.sum();
+    }
+
+    public static double getSegundosEsperando() {
+        return nanosegundosEsperando.sum() / 1e9;
+    }
+
+    /**
+     * Estado del pool (DBCP, propio o detrás del recurso JNDI): conexiones
+     * prestadas, libres y máximas, o null si el pool no lo publica.
+     */
+    public static int[] getEstadoPool() {
+        DataSource fuente = getDataSource();
+        if (!(fuente instanceof DataSourceMXBean)) return null;
+        DataSourceMXBean pool = (DataSourceMXBean) fuente;
+        return new int[] {pool.getNumActive(), pool.getNumIdle(), pool.getMaxTotal()};
+    }
+}
@@ -0,0 +1,65 @@
+package com.tuempresa.chickenSuiteApp.persistencia;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Genera oids con el formato de un UUID versión 7 en 32 caracteres hexadecimales:
+ * 48 bits de milisegundos, versión, 12 bits de contador y 62 bits aleatorios.
+ *
+ * Al empezar por la marca de tiempo, los oids nuevos quedan ordenados por fecha de
+ * creación y las inserciones van al final de los índices B-tree en lugar de
+ * repartirse por todo el árbol. Mantiene el mismo ancho que la estrategia "uuid"
+ * de Hibernate, así que convive con los oids ya existentes sin migrar datos.
+ *
+ * Se usa con @GenericGenerator(name="system-uuid", strategy="com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado").
+ */
+public class GeneradorIdOrdenado implements IdentifierGenerator {
+
+    private static final char[] HEXADECIMAL = "0123456789abcdef".toCharArray();
+
+    // (milisegundos << 12) | contador del último oid generado
+    private static final AtomicLong ultimaMarca = new AtomicLong();
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        return siguiente();
+    }
+
+    /**
+     * Nuevo oid; también lo usan los procesos que insertan por JDBC.
+     */
+    public static String siguiente() {
+        long marca = siguienteMarca();
+        long milisegundos = marca >>> 12;
+        long contador = marca & 0xFFF;
+        long alto = (milisegundos << 16) | 0x7000L | contador;
+        long bajo = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        char[] oid = new char[32];
+        escribirHexadecimal(alto, oid, 0);
+        escribirHexadecimal(bajo, oid, 16);
+        return new String(oid);
+    }
+
+    // Estrictamente creciente dentro de la JVM: si el reloj no avanza, avanza el contador
+    private static long siguienteMarca() {
+        while (true) {
+            long previa = ultimaMarca.get();
+            long ahora = System.currentTimeMillis() << 12;
+            long marca = ahora > previa ? ahora : previa + 1;
+            if (ultimaMarca.compareAndSet(previa, marca)) return marca;
+        }
+    }
+
+    private static void escribirHexadecimal(long valor, char[] destino, int desde) {
+        for (int i = 15; i >= 0; i--) {
+            destino[desde + i] = HEXADECIMAL[(int) (valor & 0xF)];
+            valor >>>= 4;
+        }
+    }
+}
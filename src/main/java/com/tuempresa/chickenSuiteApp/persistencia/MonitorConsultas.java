@@ -0,0 +1,381 @@
+package com.tuempresa.chickenSuiteApp.persistencia;
+
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Vigila las sentencias JDBC de la aplicación, tanto las de Hibernate
+ * (ProveedorConexionesVigiladas) como las de FuenteDatos.
+ *
+ * Cada sentencia se cronometra y, si pasa de consultas.lentaMilisegundos, se anota
+ * en el log con sus parámetros. Dentro de una petición a un módulo (MetricasFiltro
+ * llama a iniciar y terminar) además se cuentan las sentencias por forma, la SQL
+ * con los literales cambiados por ?: una forma que se repite
+ * consultas.umbralRepeticiones veces o más en la misma petición es la firma de un
+ * N+1, por ejemplo cargar el lote de cada evento de una lista de uno en uno. Al
+ * terminar la petición lo contado se suma al resumen del módulo, que muestra
+ * InformeConsultasServlet.
+ *
+ * Con consultas.activo=false las conexiones se devuelven sin envolver.
+ */
+public class MonitorConsultas {
+
+    private static final Log log = LogFactory.getLog(MonitorConsultas.class);
+
+    // Formas distintas que se guardan por módulo y en la caché de normalización
+    private static final int MAXIMO_FORMAS = 200;
+    private static final int MAXIMO_NORMALIZADAS = 5000;
+    private static final int LONGITUD_MAXIMA_PARAMETRO = 100;
+
+    private static final Pattern TEXTOS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMEROS = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern LISTAS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private static final boolean activo = Configuracion.getBoolean("consultas.activo", true);
+    private static final long lentaNanosegundos = Configuracion.getInt("consultas.lentaMilisegundos", 500) * 1_000_000L;
+    private static final int umbralRepeticiones = Configuracion.getInt("consultas.umbralRepeticiones", 10);
+
+    private static final ThreadLocal<Peticion> peticion = new ThreadLocal<>();
+    private static final ConcurrentMap<String, String> normalizadas = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, ResumenModulo> resumenes = new ConcurrentHashMap<>();
+
+    // Lo contado en la petición en curso del hilo
+    private static class Peticion {
+        final String modulo;
+        final Map<String, int[]> formas = new HashMap<>();
+        int sentencias;
+        long nanosegundos;
+
+        Peticion(String modulo) {
+            this.modulo = modulo;
+        }
+    }
+
+    /**
+     * Sentencias de un módulo desde el arranque.
+     */
+    public static class ResumenModulo {
+
+        final String modulo;
+        long peticiones;
+        long sentencias;
+        long nanosegundos;
+        int maximoSentencias;
+        long peticionesConRepeticiones;
+        final Map<String, Forma> formas = new HashMap<>();
+
+        ResumenModulo(String modulo) {
+            this.modulo = modulo;
+        }
+
+        public synchronized String getModulo() {
+            return modulo;
+        }
+
+        public synchronized long getPeticiones() {
+            return peticiones;
+        }
+
+        public synchronized long getSentencias() {
+            return sentencias;
+        }
+
+        public synchronized double getSegundos() {
+            return nanosegundos / 1e9;
+        }
+
+        public synchronized int getMaximoSentencias() {
+            return maximoSentencias;
+        }
+
+        public synchronized long getPeticionesConRepeticiones() {
+            return peticionesConRepeticiones;
+        }
+
+        /**
+         * Copia de las formas ordenadas de más a menos repeticiones en peticiones con N+1.
+         */
+        public synchronized List<Forma> getFormas() {
+            List<Forma> copia = new ArrayList<>();
+            for (Forma forma: formas.values()) copia.add(forma.copia());
+            copia.sort(Comparator.comparingLong(Forma::getRepeticiones).thenComparingLong(Forma::getLentas).reversed());
+            return copia;
+        }
+
+        synchronized void sumar(Peticion p) {
+            peticiones++;
+            sentencias += p.sentencias;
+            nanosegundos += p.nanosegundos;
+            maximoSentencias = Math.max(maximoSentencias, p.sentencias);
+            boolean repeticiones = false;
+            for (Map.Entry<String, int[]> entrada: p.formas.entrySet()) {
+                int veces = entrada.getValue()[0];
+                if (veces < umbralRepeticiones) continue;
+                repeticiones = true;
+                Forma forma = forma(entrada.getKey());
+                if (forma == null) continue;
+                forma.peticiones++;
+                forma.repeticiones += veces;
+                forma.maximoRepeticiones = Math.max(forma.maximoRepeticiones, veces);
+            }
+            if (repeticiones) peticionesConRepeticiones++;
+        }
+
+        synchronized void sumarLenta(String sql, long duracion) {
+            Forma forma = forma(sql);
+            if (forma == null) return;
+            forma.lentas++;
+            forma.maximoNanosegundos = Math.max(forma.maximoNanosegundos, duracion);
+        }
+
+        private Forma forma(String sql) {
+            Forma forma = formas.get(sql);
+            if (forma == null && formas.size() < MAXIMO_FORMAS) {
+                forma = new Forma(sql);
+                formas.put(sql, forma);
+            }
+            return forma;
+        }
+    }
+
+    /**
+     * Una forma de sentencia con repeticiones o lentitud en un módulo.
+     */
+    public static class Forma {
+
+        final String sql;
+        // Peticiones en que se repitió umbralRepeticiones veces o más, y repeticiones en ellas
+        long peticiones;
+        long repeticiones;
+        int maximoRepeticiones;
+        long lentas;
+        long maximoNanosegundos;
+
+        Forma(String sql) {
+            this.sql = sql;
+        }
+
+        Forma copia() {
+            Forma copia = new Forma(sql);
+            copia.peticiones = peticiones;
+            copia.repeticiones = repeticiones;
+            copia.maximoRepeticiones = maximoRepeticiones;
+            copia.lentas = lentas;
+            copia.maximoNanosegundos = maximoNanosegundos;
+            return copia;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getPeticiones() {
+            return peticiones;
+        }
+
+        public long getRepeticiones() {
+            return repeticiones;
+        }
+
+        public int getMaximoRepeticiones() {
+            return maximoRepeticiones;
+        }
+
+        public long getLentas() {
+            return lentas;
+        }
+
+        public double getMaximoMilisegundos() {
+            return maximoNanosegundos / 1e6;
+        }
+    }
+
+    public static boolean isActivo() {
+        return activo;
+    }
+
+    public static int getUmbralRepeticiones() {
+        return umbralRepeticiones;
+    }
+
+    /**
+     * Empieza a contar las sentencias del hilo para una petición al módulo.
+     */
+    public static void iniciar(String modulo) {
+        if (activo) peticion.set(new Peticion(modulo));
+    }
+
+    /**
+     * Deja de contar, avisa en el log de las formas repetidas y suma la petición al resumen de su módulo.
+     */
+    public static void terminar() {
+        Peticion p = peticion.get();
+        if (p == null) return;
+        peticion.remove();
+        if (p.sentencias == 0) return;
+        for (Map.Entry<String, int[]> forma: p.formas.entrySet()) {
+            if (forma.getValue()[0] >= umbralRepeticiones) {
+                log.warn("Posible N+1 en el módulo " + p.modulo + ": " + forma.getValue()[0] + " veces en una petición " +
+                    forma.getKey());
+            }
+        }
+        resumenes.computeIfAbsent(p.modulo, ResumenModulo::new).sumar(p);
+    }
+
+    public static List<ResumenModulo> getResumenes() {
+        List<ResumenModulo> lista = new ArrayList<>(resumenes.values());
+        lista.sort(Comparator.comparingLong(ResumenModulo::getSentencias).reversed());
+        return lista;
+    }
+
+    public static void reiniciar() {
+        resumenes.clear();
+    }
+
+    /**
+     * La conexión envuelta para cronometrar sus sentencias, o la misma si la vigilancia está desactivada.
+     */
+    public static Connection vigilar(Connection conexion) {
+        if (!activo || conexion == null) return conexion;
+        return (Connection) Proxy.newProxyInstance(MonitorConsultas.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new ConexionVigilada(conexion));
+    }
+
+    static void registrar(String sql, Object[] parametros, int cantidadParametros, long duracion) {
+        Peticion p = peticion.get();
+        if (p == null && duracion < lentaNanosegundos) return;
+        String forma = normalizar(sql);
+        if (p != null) {
+            p.sentencias++;
+            p.nanosegundos += duracion;
+            int[] veces = p.formas.get(forma);
+            if (veces == null) p.formas.put(forma, new int[] {1});
+            else veces[0]++;
+        }
+        if (duracion >= lentaNanosegundos) {
+            String modulo = p == null ? null : p.modulo;
+            log.warn("Sentencia lenta (" + duracion / 1_000_000 + " ms)" + (modulo == null ? "" : " en el módulo " + modulo) +
+                ": " + sql + (parametros == null ? "" : " " + parametros(parametros, cantidadParametros)));
+            if (modulo != null) resumenes.computeIfAbsent(modulo, ResumenModulo::new).sumarLenta(forma, duracion);
+        }
+    }
+
+    // SQL con los literales y las listas de parámetros de IN reducidos a ?, para agrupar las que solo cambian en los valores
+    static String normalizar(String sql) {
+        if (sql == null) return "";
+        String forma = normalizadas.get(sql);
+        if (forma != null) return forma;
+        forma = TEXTOS.matcher(sql).replaceAll("?");
+        forma = NUMEROS.matcher(forma).replaceAll("?");
+        forma = LISTAS.matcher(forma).replaceAll("(?)");
+        // Las sentencias de Hibernate se repiten; las de texto con literales pueden no hacerlo y no se guardan sin límite
+        if (normalizadas.size() < MAXIMO_NORMALIZADAS) normalizadas.put(sql, forma);
+        return forma;
+    }
+
+    private static String parametros(Object[] parametros, int cantidad) {
+        StringBuilder texto = new StringBuilder("[");
+        for (int i = 1; i <= cantidad; i++) {
+            if (i > 1) texto.append(", ");
+            Object valor = parametros[i];
+            if (valor == null) texto.append("null");
+            else {
+                String cadena = String.valueOf(valor);
+                if (cadena.length() > LONGITUD_MAXIMA_PARAMETRO) cadena = cadena.substring(0, LONGITUD_MAXIMA_PARAMETRO) + "...";
+                if (valor instanceof CharSequence) texto.append('\'').append(cadena).append('\'');
+                else texto.append(cadena);
+            }
+        }
+        return texto.append(']').toString();
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] argumentos) throws Throwable {
+        try {
+            return metodo.invoke(destino, argumentos);
+        }
+        catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static class ConexionVigilada implements InvocationHandler {
+
+        final Connection conexion;
+
+        ConexionVigilada(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+            Object resultado = invocar(conexion, metodo, argumentos);
+            switch (metodo.getName()) {
+                case "prepareStatement":
+                    return sentencia(PreparedStatement.class, resultado, (String) argumentos[0]);
+                case "prepareCall":
+                    return sentencia(CallableStatement.class, resultado, (String) argumentos[0]);
+                case "createStatement":
+                    return sentencia(Statement.class, resultado, null);
+                default:
+                    return resultado;
+            }
+        }
+
+        private static Object sentencia(Class<?> tipo, Object sentencia, String sql) {
+            return Proxy.newProxyInstance(MonitorConsultas.class.getClassLoader(), new Class<?>[] {tipo},
+                new SentenciaVigilada((Statement) sentencia, sql));
+        }
+    }
+
+    private static class SentenciaVigilada implements InvocationHandler {
+
+        final Statement sentencia;
+        // Null en las sentencias sin preparar, que reciben la SQL en cada ejecución
+        final String sql;
+        // Parámetros por posición, desde 1, hasta el último puesto; solo se muestran si la sentencia es lenta
+        Object[] parametros;
+        int ultimoParametro;
+        String ultimaSql;
+
+        SentenciaVigilada(Statement sentencia, String sql) {
+            this.sentencia = sentencia;
+            this.sql = sql;
+        }
+
+        public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.startsWith("execute")) {
+                String ejecutada = sql;
+                if (ejecutada == null) ejecutada = argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String ?
+                    (String) argumentos[0] : ultimaSql;
+                long inicio = System.nanoTime();
+                try {
+                    return invocar(sentencia, metodo, argumentos);
+                }
+                finally {
+                    registrar(ejecutada, parametros, ultimoParametro, System.nanoTime() - inicio);
+                }
+            }
+            if (nombre.startsWith("set") && argumentos != null && argumentos.length >= 2 && argumentos[0] instanceof Integer) {
+                int posicion = (Integer) argumentos[0];
+                if (parametros == null || posicion >= parametros.length) {
+                    parametros = Arrays.copyOf(parametros == null ? new Object[0] : parametros, Math.max(posicion + 1, parametros == null ? 8 : parametros.length * 2));
+                }
+                if (posicion > 0) parametros[posicion] = nombre.equals("setNull") ? null : argumentos[1];
+                ultimoParametro = Math.max(ultimoParametro, posicion);
+            }
+            else if (nombre.equals("clearParameters")) {
+                parametros = null;
+                ultimoParametro = 0;
+            }
+            else if (nombre.equals("addBatch") && argumentos != null && argumentos.length == 1) ultimaSql = (String) argumentos[0];
+            return invocar(sentencia, metodo, argumentos);
+        }
+    }
+}
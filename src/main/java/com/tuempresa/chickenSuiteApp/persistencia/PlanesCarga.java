@@ -0,0 +1,23 @@
+package com.tuempresa.chickenSuiteApp.persistencia;
+
+import java.util.*;
+
+import org.openxava.jpa.XPersistence;
+
+/**
+ * Aplica los grafos de entidades con nombre (@NamedEntityGraph) como grafos de
+ * carga: las asociaciones del grafo se leen con la entidad en la misma consulta y
+ * el resto conserva el fetch de su mapeo. Las listas de OpenXava no los
+ * necesitan: su consulta sale de @Tab y ya trae las columnas de las referencias.
+ */
+public class PlanesCarga {
+
+    public static final String GRAFO_CARGA = "javax.persistence.loadgraph";
+
+    /**
+     * Propiedades para EntityManager.find con el grafo.
+     */
+    public static Map<String, Object> grafo(String nombre) {
+        return Collections.singletonMap(GRAFO_CARGA, XPersistence.getManager().getEntityGraph(nombre));
+    }
+}
@@ -0,0 +1,216 @@
+package com.tuempresa.chickenSuiteApp.persistencia;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.sql.*;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.*;
+import org.apache.tomcat.dbcp.dbcp2.BasicDataSource;
+import org.apache.tomcat.dbcp.pool2.impl.GenericObjectPool;
+
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Pool de conexiones propio de la aplicación, configurado con las propiedades
+ * pool.* de chickenSuiteApp.properties en lugar del Resource de context.xml.
+ * Pasa al driver las propiedades de pool.propiedadesDriver y valida las
+ * conexiones al prestarlas.
+ *
+ * Vigila las fugas sin tocar las conexiones, como leakDetectionThreshold de
+ * Hikari: cada conexión prestada recuerda cuándo y desde qué pila se pidió, y un
+ * hilo anota en el log, una vez, la que lleva más de pool.fugaSegundos sin
+ * devolverse, y después si se devuelve. Aparte, con pool.cerrarAbandonadasSegundos
+ * mayor que 0, DBCP cierra la conexión que lleva ese tiempo sin usarse: la
+ * petición que aún la tuviera falla con ella.
+ */
+public class PoolConexiones extends BasicDataSource {
+
+    private static final Log log = LogFactory.getLog(PoolConexiones.class);
+
+    // Conexiones prestadas mientras se vigilan las fugas
+    private final Set<Prestamo> prestadas = ConcurrentHashMap.newKeySet();
+    private final LongAdder posiblesFugas = new LongAdder();
+    private long fugaNanosegundos;
+    private ScheduledExecutorService vigilante;
+
+    // pgjdbc ya guarda por conexión las sentencias preparadas en el servidor
+    // (256 consultas, 5 MiB); solo se adelanta a la tercera ejecución, en lugar
+    // de la quinta, el paso a sentencia preparada en el servidor
+    private static final String PROPIEDADES_POSTGRESQL = "prepareThreshold=3";
+
+    /**
+     * Si hay pool.url la aplicación crea su propio pool; si no, se usa el
+     * recurso JNDI.
+     */
+    public static boolean isConfigurado() {
+        return Configuracion.get("pool.url", null) != null;
+    }
+
+    public static PoolConexiones crear() {
+        PoolConexiones pool = new PoolConexiones();
+        String url = Configuracion.get("pool.url", null);
+        pool.setUrl(url);
+        pool.setDriverClassName(Configuracion.get("pool.driver", "org.postgresql.Driver"));
+        pool.setUsername(Configuracion.get("pool.usuario", null));
+        pool.setPassword(Configuracion.get("pool.clave", ""));
+        String propiedadesDriver = Configuracion.get("pool.propiedadesDriver",
+            url.startsWith("jdbc:postgresql:") ? PROPIEDADES_POSTGRESQL : null);
+        if (propiedadesDriver != null) pool.setConnectionProperties(propiedadesDriver);
+
+        int maximo = Configuracion.getInt("pool.maximo", 20);
+        pool.setMaxTotal(maximo);
+        pool.setMaxIdle(maximo);
+        pool.setMinIdle(Configuracion.getInt("pool.minimoLibres", 5));
+        pool.setInitialSize(pool.getMinIdle());
+        pool.setMaxWait(Duration.ofMillis(Configuracion.getInt("pool.esperaMaximaMilisegundos", 10000)));
+        pool.setMaxConn(Duration.ofMinutes(Configuracion.getInt("pool.vidaMaximaMinutos", 30)));
+
+        // Las conexiones prestadas se validan con isValid() del driver, sin consulta de prueba
+        pool.setTestOnBorrow(true);
+        pool.setValidationQueryTimeout(Duration.ofSeconds(5));
+        pool.setDurationBetweenEvictionRuns(Duration.ofSeconds(30));
+        pool.setMinEvictableIdle(Duration.ofMinutes(Configuracion.getInt("pool.libreMaximoMinutos", 10)));
+
+        int fugaSegundos = Configuracion.getInt("pool.fugaSegundos", 300);
+        if (fugaSegundos > 0) pool.vigilarFugas(Duration.ofSeconds(fugaSegundos));
+        int cerrarAbandonadasSegundos = Configuracion.getInt("pool.cerrarAbandonadasSegundos", 0);
+        if (cerrarAbandonadasSegundos > 0) {
+            pool.setRemoveAbandonedOnMaintenance(true);
+            pool.setRemoveAbandonedTimeout(Duration.ofSeconds(cerrarAbandonadasSegundos));
+            pool.setLogAbandoned(true);
+            pool.setAbandonedLogWriter(new PrintWriter(new EscritorLog()));
+        }
+        log.info("Pool de conexiones propio sobre " + url + " con " + maximo + " conexiones como máximo");
+        return pool;
+    }
+
+    private void vigilarFugas(Duration umbral) {
+        fugaNanosegundos = umbral.toNanos();
+        vigilante = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "vigilante-fugas-conexiones");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodo = Math.max(1, Math.min(umbral.getSeconds() / 2, 30));
+        vigilante.scheduleAtFixedRate(this::revisarPrestadas, periodo, periodo, TimeUnit.SECONDS);
+    }
+
+    private void revisarPrestadas() {
+        long ahora = System.nanoTime();
+        for (Prestamo prestamo: prestadas) {
+            if (prestamo.avisada || ahora - prestamo.inicio < fugaNanosegundos) continue;
+            prestamo.avisada = true;
+            posiblesFugas.increment();
+            log.warn("Posible fuga de conexión: lleva " + (ahora - prestamo.inicio) / 1_000_000_000L +
+                " s prestada sin devolverse", prestamo.pila);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection conexion = super.getConnection();
+        if (vigilante == null) return conexion;
+        Prestamo prestamo = new Prestamo(conexion);
+        prestadas.add(prestamo);
+        return (Connection) Proxy.newProxyInstance(PoolConexiones.class.getClassLoader(), new Class<?>[] {Connection.class}, prestamo);
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        if (vigilante != null) vigilante.shutdownNow();
+        super.close();
+    }
+
+    /** Conexiones anotadas en el log como posible fuga desde el arranque. */
+    public long getPosiblesFugas() {
+        return posiblesFugas.sum();
+    }
+
+    /** Peticiones esperando una conexión libre en este momento. */
+    public int getEsperando() {
+        GenericObjectPool<?> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getNumWaiters();
+    }
+
+    public long getPrestadas() {
+        GenericObjectPool<?> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getBorrowedCount();
+    }
+
+    public long getCreadas() {
+        GenericObjectPool<?> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getCreatedCount();
+    }
+
+    public long getDestruidas() {
+        GenericObjectPool<?> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getDestroyedCount();
+    }
+
+    /** Espera media en milisegundos de los últimos préstamos. */
+    public long getEsperaMediaMilisegundos() {
+        GenericObjectPool<?> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getMeanBorrowWaitDuration().toMillis();
+    }
+
+    public long getEsperaMaximaMilisegundos() {
+        GenericObjectPool<?> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getMaxBorrowWaitDuration().toMillis();
+    }
+
+    /**
+     * Conexión prestada: recuerda cuándo y desde dónde se pidió y sale de las
+     * prestadas al cerrarla.
+     */
+    private class Prestamo implements InvocationHandler {
+
+        final Connection conexion;
+        final long inicio = System.nanoTime();
+        final Throwable pila = new Throwable("Conexión pedida por el hilo " + Thread.currentThread().getName());
+        volatile boolean avisada;
+
+        Prestamo(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+            if (metodo.getName().equals("close") && prestadas.remove(this) && avisada) {
+                log.info("La conexión anotada como posible fuga se devolvió tras " +
+                    (System.nanoTime() - inicio) / 1_000_000_000L + " s");
+            }
+            try {
+                return metodo.invoke(conexion, argumentos);
+            }
+            catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    /** Lleva al log lo que el pool escribe sobre conexiones abandonadas. */
+    private static class EscritorLog extends Writer {
+
+        private final StringBuilder texto = new StringBuilder();
+
+        @Override
+        public synchronized void write(char[] caracteres, int desde, int cantidad) {
+            texto.append(caracteres, desde, cantidad);
+        }
+
+        @Override
+        public synchronized void flush() {
+            if (texto.length() == 0) return;
+            log.warn("Posible fuga de conexión: " + texto.toString().trim());
+            texto.setLength(0);
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
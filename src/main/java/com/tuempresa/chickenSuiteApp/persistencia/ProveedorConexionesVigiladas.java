@@ -0,0 +1,27 @@
+package com.tuempresa.chickenSuiteApp.persistencia;
+
+import java.sql.*;
+import java.util.Map;
+
+import org.hibernate.engine.jdbc.connections.internal.DatasourceConnectionProviderImpl;
+
+/**
+ * Proveedor de conexiones de Hibernate sobre la misma fuente de datos JNDI que
+ * pasa cada conexión por MonitorConsultas. Se activa en persistence.xml con
+ * hibernate.connection.provider_class. Si la aplicación tiene su propio pool
+ * (PoolConexiones), Hibernate lo comparte con los procesos JDBC.
+ */
+public class ProveedorConexionesVigiladas extends DatasourceConnectionProviderImpl {
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void configure(Map valores) {
+        if (PoolConexiones.isConfigurado()) setDataSource(FuenteDatos.getDataSource());
+        super.configure(valores);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return MonitorConsultas.vigilar(super.getConnection());
+    }
+}
@@ -0,0 +1,520 @@
+package com.tuempresa.chickenSuiteApp.run;
+
+import java.math.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.tuempresa.chickenSuiteApp.enums.*;
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Carga datos sintéticos (especies, razas, lotes, eventos diarios, historial de
+ * etapas, pesajes semanales, métricas y proyecciones) para pruebas de escala y
+ * de resistencia.
+ *
+ * Las tablas han de existir: arranca antes la aplicación una vez contra la base
+ * de datos para que Hibernate las cree. Ejemplo:
+ *
+ *   java -cp ... com.tuempresa.chickenSuiteApp.run.GeneradorDatosSinteticos
+ *       --url "jdbc:postgresql://localhost/chickenSuitedb?reWriteBatchedInserts=true"
+ *       --usuario postgres --clave 123 --granjas 50 --lotes 20000 --eventos 50000000
+ *
+ * Cada lote sigue la curva de su propósito: mortalidad diaria más alta en la
+ * primera semana, consumo de alimento por ave que crece con la edad, peso según
+ * una curva de Gompertz y vacunas y limpiezas en días fijos. Los lotes se reparten entre varios hilos, cada uno con
+ * su conexión e inserciones JDBC por lotes. Con la misma semilla se generan los
+ * mismos valores (los oids sí cambian).
+ */
+public class GeneradorDatosSinteticos {
+
+    private static final int TAMANO_LOTE_JDBC = 5000;
+    private static final int LOTES_POR_TRANSACCION = 20;
+
+    private static final BigDecimal PRECIO_ALIMENTO_KG = new BigDecimal("0.46");
+    private static final double PESO_INICIAL_GRAMOS = 40;
+
+    private static final String INSERTAR_ESPECIE = "insert into Species (oid, nombre, descripcion) values (?, ?, ?)";
+    private static final String INSERTAR_RAZA =
+        "insert into Breed (oid, nombre, especie_oid, proposito, diasCrecimientoEstandar) values (?, ?, ?, ?, ?)";
+    private static final String INSERTAR_LOTE =
+        "insert into FarmBatch (oid, codigo, especie_oid, raza_oid, cantidadInicial, cantidadVivaActual, pesoObjetivoGramos, " +
+        "fechaInicio, fechaFinPlaneada, etapa, notas, version) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERTAR_EVENTO =
+        "insert into DailyEvent (oid, lote_oid, fecha, tipo, costo, muertos, kilogramosAlimento, notas) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERTAR_KPI =
+        "insert into BatchKPI (oid, totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos) values (?, ?, ?, ?, ?)";
+    private static final String INSERTAR_TRANSICION =
+        "insert into StageTransition (oid, lote_oid, etapaAnterior, etapaNueva, fecha, diasDesdeInicio, versionLote) " +
+        "values (?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERTAR_KPI_ETAPA =
+        "insert into StageKPI (oid, lote_oid, etapa, fechaEntrada, fechaSalida, totalKilogramosAlimento, totalMuertos, " +
+        "totalCosto, cantidadEventos) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERTAR_PESAJE =
+        "insert into WeightSample (oid, lote_oid, fecha, tamanoMuestra, pesoMedioGramos, desviacionGramos, diasDesdeInicio, " +
+        "alimentoAcumuladoKilogramos, avesVivas, gananciaDiariaGramos) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERTAR_PROYECCION =
+        "insert into Projection (oid, lote_oid, precioEsperadoPorKilogramo, costosEstimados, pesoVivoEstimadoKilogramos) " +
+        "values (?, ?, ?, ?, ?)";
+
+    /**
+     * Curva productiva de un propósito: duración del ciclo, mortalidad diaria,
+     * gramos de alimento por ave y día según la edad, peso final y precio.
+     * El peso sigue una Gompertz que parte de PESO_INICIAL_GRAMOS, llega al peso
+     * final el último día y tiende a 1,5 veces ese peso.
+     */
+    enum Curva {
+
+        CARNE(42, 0.0035, 0.0004, 7, 2600, 1.85) {
+            double gramosAlimento(int dia) { return Math.min(20 + 4.6 * dia, 210); }
+        },
+        HUEVO(420, 0.0015, 0.00025, 10, 1900, 0.90) {
+            double gramosAlimento(int dia) { return dia < 126 ? 12 + 0.75 * dia : 112; }
+        },
+        DOBLE_PROPOSITO(120, 0.0025, 0.0003, 8, 2900, 1.60) {
+            double gramosAlimento(int dia) { return Math.min(15 + 1.3 * dia, 135); }
+        };
+
+        final int dias;
+        final double mortalidadPrimeraSemana;
+        final double mortalidadDiaria;
+        final int vacunas;
+        final int pesoFinalGramos;
+        final double precioKilogramo;
+
+        Curva(int dias, double mortalidadPrimeraSemana, double mortalidadDiaria, int vacunas, int pesoFinalGramos,
+                double precioKilogramo) {
+            this.dias = dias;
+            this.mortalidadPrimeraSemana = mortalidadPrimeraSemana;
+            this.mortalidadDiaria = mortalidadDiaria;
+            this.vacunas = vacunas;
+            this.pesoFinalGramos = pesoFinalGramos;
+            this.precioKilogramo = precioKilogramo;
+        }
+
+        abstract double gramosAlimento(int dia);
+
+        double pesoGramos(int dia) {
+            double asintota = 1.5 * pesoFinalGramos;
+            double b = Math.log(asintota / PESO_INICIAL_GRAMOS);
+            double k = -Math.log(Math.log(asintota / pesoFinalGramos) / b) / dias;
+            return asintota * Math.exp(-b * Math.exp(-k * dia));
+        }
+
+        double mortalidad(int dia) {
+            return dia < 7 ? mortalidadPrimeraSemana : mortalidadDiaria;
+        }
+
+        boolean esDiaVacuna(int dia) {
+            // Vacunas concentradas al principio del ciclo: días 1, 7, 14, 21...
+            return dia == 1 || (dia % 7 == 0 && dia / 7 < vacunas);
+        }
+
+        static Curva de(Purpose proposito) {
+            return valueOf(proposito.name());
+        }
+    }
+
+    static class Raza {
+        final String oid, especieOid;
+        final Curva curva;
+
+        Raza(String oid, String especieOid, Curva curva) {
+            this.oid = oid;
+            this.especieOid = especieOid;
+            this.curva = curva;
+        }
+    }
+
+    final Map<String, String> opciones;
+    final int granjas, lotes, hilos;
+    final long eventos, semilla;
+    final LocalDate hoy = LocalDate.now();
+    final List<Raza> razas = new ArrayList<>();
+    final AtomicLong eventosInsertados = new AtomicLong();
+    final AtomicLong lotesInsertados = new AtomicLong();
+    int tomasDiarias;
+
+    GeneradorDatosSinteticos(Map<String, String> opciones) {
+        this.opciones = opciones;
+        granjas = Integer.parseInt(opciones.getOrDefault("granjas", "50"));
+        lotes = Integer.parseInt(opciones.getOrDefault("lotes", "20000"));
+        eventos = Long.parseLong(opciones.getOrDefault("eventos", "50000000"));
+        hilos = Integer.parseInt(opciones.getOrDefault("hilos", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        semilla = Long.parseLong(opciones.getOrDefault("semilla", "20240101"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Opción no válida: " + args[i]);
+            opciones.put(args[i].substring(2), args[i + 1]);
+        }
+        new GeneradorDatosSinteticos(opciones).generar();
+    }
+
+    Connection conectar() throws SQLException {
+        Connection conexion = DriverManager.getConnection(
+            opciones.getOrDefault("url", "jdbc:postgresql://localhost/chickenSuitedb?reWriteBatchedInserts=true"),
+            opciones.getOrDefault("usuario", "postgres"), opciones.getOrDefault("clave", "123"));
+        conexion.setAutoCommit(false);
+        return conexion;
+    }
+
+    void generar() throws Exception {
+        long inicio = System.currentTimeMillis();
+        try (Connection conexion = conectar()) {
+            crearCatalogo(conexion);
+        }
+        tomasDiarias = calcularTomasDiarias();
+        System.out.println("Generando " + lotes + " lotes en " + granjas + " granjas, unos " + eventos + " eventos (" +
+            tomasDiarias + " tomas de alimento al día) con " + hilos + " hilos");
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                tareas.add(ejecutor.submit(() -> { generarLotes(hilo); return null; }));
+            }
+            ScheduledExecutorService progreso = Executors.newSingleThreadScheduledExecutor();
+            progreso.scheduleAtFixedRate(() -> informar(inicio), 10, 10, TimeUnit.SECONDS);
+            try {
+                for (Future<?> tarea: tareas) tarea.get();
+            }
+            finally {
+                progreso.shutdownNow();
+            }
+        }
+        finally {
+            ejecutor.shutdown();
+        }
+        informar(inicio);
+    }
+
+    private void informar(long inicio) {
+        long segundos = Math.max(1, (System.currentTimeMillis() - inicio) / 1000);
+        System.out.println(lotesInsertados.get() + " lotes, " + eventosInsertados.get() + " eventos en " + segundos + " s (" +
+            eventosInsertados.get() / segundos + " eventos/s)");
+    }
+
+    private void crearCatalogo(Connection conexion) throws SQLException {
+        Object[][] especies = {
+            { "Gallina", "Gallus gallus domesticus", new Object[][] {
+                { "Cobb 500", Purpose.CARNE }, { "Ross 308", Purpose.CARNE },
+                { "Hy-Line Brown", Purpose.HUEVO }, { "Lohmann LSL", Purpose.HUEVO },
+                { "Plymouth Rock", Purpose.DOBLE_PROPOSITO } } },
+            { "Pato", "Anas platyrhynchos domesticus", new Object[][] {
+                { "Pekín", Purpose.CARNE }, { "Khaki Campbell", Purpose.HUEVO } } },
+            { "Codorniz", "Coturnix japonica", new Object[][] {
+                { "Japonesa", Purpose.HUEVO } } }
+        };
+        try (PreparedStatement especie = conexion.prepareStatement(INSERTAR_ESPECIE);
+             PreparedStatement raza = conexion.prepareStatement(INSERTAR_RAZA)) {
+            for (Object[] datosEspecie: especies) {
+                String especieOid = GeneradorIdOrdenado.siguiente();
+                especie.setString(1, especieOid);
+                especie.setString(2, (String) datosEspecie[0]);
+                especie.setString(3, (String) datosEspecie[1]);
+                especie.executeUpdate();
+                for (Object[] datosRaza: (Object[][]) datosEspecie[2]) {
+                    Purpose proposito = (Purpose) datosRaza[1];
+                    Raza nueva = new Raza(GeneradorIdOrdenado.siguiente(), especieOid, Curva.de(proposito));
+                    raza.setString(1, nueva.oid);
+                    raza.setString(2, (String) datosRaza[0]);
+                    raza.setString(3, especieOid);
+                    raza.setString(4, proposito.name());
+                    raza.setInt(5, nueva.curva.dias);
+                    raza.executeUpdate();
+                    razas.add(nueva);
+                }
+            }
+        }
+        conexion.commit();
+    }
+
+    /**
+     * Tomas de alimento por día necesarias para acercarse al total de eventos pedido,
+     * contando los días ya transcurridos de cada lote. Además de las tomas, casi todos
+     * los días hay un evento de mortalidad y de vez en cuando vacuna o limpieza.
+     */
+    private int calcularTomasDiarias() {
+        long dias = 0;
+        for (int i = 0; i < lotes; i++) dias += diasTranscurridos(i, new SplittableRandom(semilla + i));
+        return (int) Math.max(1, Math.round((double) eventos / Math.max(1, dias) - 1.15));
+    }
+
+    // Los lotes empiezan repartidos en los últimos tres años
+    private LocalDate fechaInicio(SplittableRandom aleatorio) {
+        return hoy.minusDays(aleatorio.nextInt(3 * 365));
+    }
+
+    private Raza raza(int lote) {
+        return razas.get(lote % razas.size());
+    }
+
+    private int diasTranscurridos(int lote, SplittableRandom aleatorio) {
+        LocalDate inicio = fechaInicio(aleatorio);
+        return (int) Math.min(raza(lote).curva.dias, hoy.toEpochDay() - inicio.toEpochDay() + 1);
+    }
+
+    /**
+     * Sentencias de inserción de un hilo, cada una con su lote JDBC pendiente.
+     */
+    private static class Sentencias implements AutoCloseable {
+
+        final Connection conexion;
+        final PreparedStatement lote, evento, kpi, transicion, kpiEtapa, pesaje, proyeccion;
+
+        Sentencias(Connection conexion) throws SQLException {
+            this.conexion = conexion;
+            lote = conexion.prepareStatement(INSERTAR_LOTE);
+            evento = conexion.prepareStatement(INSERTAR_EVENTO);
+            kpi = conexion.prepareStatement(INSERTAR_KPI);
+            transicion = conexion.prepareStatement(INSERTAR_TRANSICION);
+            kpiEtapa = conexion.prepareStatement(INSERTAR_KPI_ETAPA);
+            pesaje = conexion.prepareStatement(INSERTAR_PESAJE);
+            proyeccion = conexion.prepareStatement(INSERTAR_PROYECCION);
+        }
+
+        // Los lotes antes que sus eventos, métricas y proyecciones por las claves ajenas
+        void enviar() throws SQLException {
+            lote.executeBatch();
+            evento.executeBatch();
+            kpi.executeBatch();
+            transicion.executeBatch();
+            kpiEtapa.executeBatch();
+            pesaje.executeBatch();
+            proyeccion.executeBatch();
+            conexion.commit();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement sentencia: new PreparedStatement[] { lote, evento, kpi, transicion, kpiEtapa, pesaje, proyeccion }) {
+                sentencia.close();
+            }
+            conexion.close();
+        }
+    }
+
+    // Cada hilo genera los lotes hilo, hilo + hilos, hilo + 2 * hilos...
+    private void generarLotes(int hilo) throws SQLException {
+        try (Sentencias sentencias = new Sentencias(conectar())) {
+            int pendientes = 0, lotesTransaccion = 0;
+            for (int i = hilo; i < lotes; i += hilos) {
+                pendientes += generarLote(i, sentencias);
+                lotesTransaccion++;
+                if (pendientes >= TAMANO_LOTE_JDBC || lotesTransaccion >= LOTES_POR_TRANSACCION) {
+                    sentencias.enviar();
+                    eventosInsertados.addAndGet(pendientes);
+                    lotesInsertados.addAndGet(lotesTransaccion);
+                    pendientes = 0;
+                    lotesTransaccion = 0;
+                }
+            }
+            if (lotesTransaccion > 0) {
+                sentencias.enviar();
+                eventosInsertados.addAndGet(pendientes);
+                lotesInsertados.addAndGet(lotesTransaccion);
+            }
+        }
+    }
+
+    /**
+     * Simula un lote día a día y deja sus filas en los lotes JDBC.
+     *
+     * @return eventos añadidos
+     */
+    private int generarLote(int indice, Sentencias sentencias) throws SQLException {
+        PreparedStatement lote = sentencias.lote, evento = sentencias.evento, kpi = sentencias.kpi, proyeccion = sentencias.proyeccion;
+        // Mismo orden de sorteos que calcularTomasDiarias() para la fecha de inicio
+        SplittableRandom aleatorio = new SplittableRandom(semilla + indice);
+        LocalDate inicio = fechaInicio(aleatorio);
+        Raza raza = raza(indice);
+        Curva curva = raza.curva;
+        int dias = (int) Math.min(curva.dias, hoy.toEpochDay() - inicio.toEpochDay() + 1);
+        String oid = GeneradorIdOrdenado.siguiente();
+        int cantidadInicial = (curva == Curva.HUEVO ? 3000 : 8000) + aleatorio.nextInt(20000);
+        // Cada lote tiene su propio factor de sanidad: unos salen mejor que otros
+        double factorMortalidad = 0.6 + aleatorio.nextDouble() * 0.9;
+        // Sorteos de los pesajes aparte, para no cambiar los eventos de una semilla
+        SplittableRandom aleatorioPesajes = new SplittableRandom(~(semilla + indice));
+        BigDecimal pesoAnterior = null;
+
+        int vivas = cantidadInicial, eventos = 0;
+        long totalMuertos = 0;
+        BigDecimal totalKilogramos = BigDecimal.ZERO, totalCosto = BigDecimal.ZERO;
+        // Historial de etapas y totales de cada una, con la misma curva que la etapa final del lote
+        Map<Stage, DeltaKPI> porEtapa = new EnumMap<>(Stage.class);
+        Map<Stage, LocalDate[]> fechasEtapa = new EnumMap<>(Stage.class);
+        Stage etapa = null;
+        DeltaKPI enEtapa = null;
+        for (int dia = 0; dia < dias; dia++) {
+            Date fecha = Date.valueOf(inicio.plusDays(dia));
+            if (etapa != etapa(dia, curva.dias)) {
+                etapa = cambiarEtapa(sentencias.transicion, oid, etapa, etapa(dia, curva.dias), inicio, dia, fechasEtapa);
+                enEtapa = porEtapa.computeIfAbsent(etapa, nueva -> new DeltaKPI());
+            }
+            int muertos = muertes(aleatorio, vivas, curva.mortalidad(dia) * factorMortalidad);
+            if (muertos > 0) {
+                vivas -= muertos;
+                totalMuertos += muertos;
+                agregarEvento(evento, enEtapa, oid, fecha, EventType.MORTALIDAD, null, muertos, null);
+                eventos++;
+            }
+            double kilogramosDia = vivas * curva.gramosAlimento(dia) * (0.95 + aleatorio.nextDouble() * 0.1) / 1000;
+            for (int toma = 0; toma < tomasDiarias; toma++) {
+                BigDecimal kilogramos = BigDecimal.valueOf(kilogramosDia / tomasDiarias).setScale(2, RoundingMode.HALF_UP);
+                BigDecimal costo = kilogramos.multiply(PRECIO_ALIMENTO_KG).setScale(2, RoundingMode.HALF_UP);
+                agregarEvento(evento, enEtapa, oid, fecha, EventType.ALIMENTACION, costo, 0, kilogramos);
+                totalKilogramos = totalKilogramos.add(kilogramos);
+                totalCosto = totalCosto.add(costo);
+                eventos++;
+            }
+            if (curva.esDiaVacuna(dia)) {
+                BigDecimal costo = BigDecimal.valueOf(vivas * 0.025).setScale(2, RoundingMode.HALF_UP);
+                agregarEvento(evento, enEtapa, oid, fecha, EventType.VACUNACION, costo, 0, null);
+                totalCosto = totalCosto.add(costo);
+                eventos++;
+            }
+            if (dia > 0 && dia % 7 == 0) {
+                BigDecimal costo = BigDecimal.valueOf(120 + aleatorio.nextInt(80));
+                agregarEvento(evento, enEtapa, oid, fecha, EventType.LIMPIEZA, costo, 0, null);
+                totalCosto = totalCosto.add(costo);
+                eventos++;
+            }
+            // Pesaje semanal al final del día, con sus muertes y su alimento ya acumulados
+            if (dia % 7 == 0) {
+                pesoAnterior = agregarPesaje(sentencias.pesaje, aleatorioPesajes, oid, inicio, dia, curva, totalKilogramos, vivas, pesoAnterior);
+            }
+        }
+
+        if (etapa != etapa(dias, curva.dias)) {
+            etapa = cambiarEtapa(sentencias.transicion, oid, etapa, etapa(dias, curva.dias), inicio, dias, fechasEtapa);
+        }
+        for (Map.Entry<Stage, LocalDate[]> fechas: fechasEtapa.entrySet()) {
+            DeltaKPI totales = porEtapa.getOrDefault(fechas.getKey(), new DeltaKPI());
+            PreparedStatement kpiEtapa = sentencias.kpiEtapa;
+            kpiEtapa.setString(1, ServicioStageKPI.clave(oid, fechas.getKey()));
+            kpiEtapa.setString(2, oid);
+            kpiEtapa.setString(3, fechas.getKey().name());
+            kpiEtapa.setDate(4, Date.valueOf(fechas.getValue()[0]));
+            kpiEtapa.setDate(5, fechas.getValue()[1] == null ? null : Date.valueOf(fechas.getValue()[1]));
+            kpiEtapa.setBigDecimal(6, totales.getKilogramosAlimento());
+            kpiEtapa.setLong(7, totales.getMuertos());
+            kpiEtapa.setBigDecimal(8, totales.getCosto());
+            kpiEtapa.setLong(9, totales.getEventos());
+            kpiEtapa.addBatch();
+        }
+
+        int granja = 1 + indice % granjas;
+        lote.setString(1, oid);
+        lote.setString(2, String.format("G%02d-L%06d", granja, indice));
+        lote.setString(3, raza.especieOid);
+        lote.setString(4, raza.oid);
+        lote.setInt(5, cantidadInicial);
+        lote.setInt(6, vivas);
+        lote.setInt(7, curva.pesoFinalGramos);
+        lote.setDate(8, Date.valueOf(inicio));
+        lote.setDate(9, Date.valueOf(inicio.plusDays(curva.dias)));
+        lote.setString(10, etapa(dias, curva.dias).name());
+        lote.setString(11, null);
+        lote.addBatch();
+
+        kpi.setString(1, oid);
+        kpi.setBigDecimal(2, totalKilogramos);
+        kpi.setLong(3, totalMuertos);
+        kpi.setBigDecimal(4, totalCosto);
+        kpi.setLong(5, eventos);
+        kpi.addBatch();
+
+        // Proyección al cierre del ciclo con el coste que falta al ritmo actual
+        double pesoVivo = vivas * curva.pesoFinalGramos / 1000.0;
+        double costoEstimado = totalCosto.doubleValue() * curva.dias / Math.max(1, dias);
+        proyeccion.setString(1, GeneradorIdOrdenado.siguiente());
+        proyeccion.setString(2, oid);
+        proyeccion.setBigDecimal(3, BigDecimal.valueOf(curva.precioKilogramo * (0.9 + aleatorio.nextDouble() * 0.2))
+            .setScale(2, RoundingMode.HALF_UP));
+        proyeccion.setBigDecimal(4, BigDecimal.valueOf(costoEstimado).setScale(2, RoundingMode.HALF_UP));
+        proyeccion.setBigDecimal(5, BigDecimal.valueOf(pesoVivo).setScale(2, RoundingMode.HALF_UP));
+        proyeccion.addBatch();
+        return eventos;
+    }
+
+    // Anota la transición y devuelve la etapa nueva; fechasEtapa guarda entrada y salida de cada etapa
+    private static Stage cambiarEtapa(PreparedStatement transicion, String loteOid, Stage anterior, Stage nueva, LocalDate inicio,
+            int dia, Map<Stage, LocalDate[]> fechasEtapa) throws SQLException {
+        LocalDate fecha = inicio.plusDays(dia);
+        transicion.setString(1, GeneradorIdOrdenado.siguiente());
+        transicion.setString(2, loteOid);
+        transicion.setString(3, anterior == null ? null : anterior.name());
+        transicion.setString(4, nueva.name());
+        transicion.setDate(5, Date.valueOf(fecha));
+        transicion.setInt(6, dia);
+        transicion.addBatch();
+        if (anterior != null) fechasEtapa.get(anterior)[1] = fecha;
+        fechasEtapa.put(nueva, new LocalDate[] { fecha, null });
+        return nueva;
+    }
+
+    private static void agregarEvento(PreparedStatement evento, DeltaKPI enEtapa, String loteOid, Date fecha, EventType tipo,
+            BigDecimal costo, int muertos, BigDecimal kilogramos) throws SQLException {
+        enEtapa.acumular(kilogramos, muertos, costo, 1);
+        evento.setString(1, GeneradorIdOrdenado.siguiente());
+        evento.setString(2, loteOid);
+        evento.setDate(3, fecha);
+        evento.setString(4, tipo.name());
+        evento.setBigDecimal(5, costo);
+        evento.setInt(6, muertos);
+        evento.setBigDecimal(7, kilogramos);
+        evento.setString(8, null);
+        evento.addBatch();
+    }
+
+    // Devuelve el peso medio de la muestra, que es el anterior del pesaje siguiente
+    private static BigDecimal agregarPesaje(PreparedStatement pesaje, SplittableRandom aleatorio, String loteOid, LocalDate inicio,
+            int dia, Curva curva, BigDecimal alimentoAcumulado, int vivas, BigDecimal pesoAnterior) throws SQLException {
+        double normal = Math.sqrt(-2 * Math.log(1 - aleatorio.nextDouble())) * Math.cos(2 * Math.PI * aleatorio.nextDouble());
+        BigDecimal peso = BigDecimal.valueOf(curva.pesoGramos(dia) * (1 + 0.03 * normal)).setScale(1, RoundingMode.HALF_UP);
+        BigDecimal desviacion = peso.multiply(BigDecimal.valueOf(0.08 + aleatorio.nextDouble() * 0.04)).setScale(1, RoundingMode.HALF_UP);
+        pesaje.setString(1, GeneradorIdOrdenado.siguiente());
+        pesaje.setString(2, loteOid);
+        pesaje.setDate(3, Date.valueOf(inicio.plusDays(dia)));
+        pesaje.setInt(4, 50 + aleatorio.nextInt(51));
+        pesaje.setBigDecimal(5, peso);
+        pesaje.setBigDecimal(6, desviacion);
+        pesaje.setInt(7, dia);
+        pesaje.setBigDecimal(8, alimentoAcumulado);
+        pesaje.setLong(9, vivas);
+        pesaje.setBigDecimal(10, ServicioCurvasPeso.ganancia(pesoAnterior, inicio.plusDays(dia - 7), peso, inicio.plusDays(dia)));
+        pesaje.addBatch();
+        return peso;
+    }
+
+    // Binomial(vivas, probabilidad) aproximada por una normal, suficiente para lotes de miles de aves
+    private static int muertes(SplittableRandom aleatorio, int vivas, double probabilidad) {
+        double media = vivas * probabilidad;
+        double desviacion = Math.sqrt(media * (1 - probabilidad));
+        double u = 1 - aleatorio.nextDouble();
+        double normal = Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * aleatorio.nextDouble());
+        return (int) Math.max(0, Math.min(vivas, Math.round(media + desviacion * normal)));
+    }
+
+    private static Stage etapa(int diasTranscurridos, int diasCiclo) {
+        if (diasTranscurridos >= diasCiclo) return Stage.VENDIDO;
+        double avance = (double) diasTranscurridos / diasCiclo;
+        if (avance < 0.05) return Stage.INCUBACION;
+        if (avance < 0.30) return Stage.CRIA;
+        if (avance < 0.65) return Stage.CRECIMIENTO;
+        return Stage.ENGORDE;
+    }
+}
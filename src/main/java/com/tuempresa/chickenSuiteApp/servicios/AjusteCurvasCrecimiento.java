@@ -0,0 +1,269 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.persistence.Cache;
+
+import org.apache.commons.logging.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.modelo.*;
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Ajuste en segundo plano de la curva de Gompertz de cada raza y especie con los
+ * pesajes de sus lotes vendidos.
+ *
+ * Cada pasada cuenta primero, con una consulta sobre FarmBatch, los lotes vendidos
+ * con pesajes de cada raza y solo vuelve a ajustar las razas cuyo número ha cambiado
+ * desde el último ajuste, y las especies de esas razas. Los pesajes se leen ya
+ * agrupados por raza y día, una consulta por especie, y el ajuste parte de los
+ * parámetros anteriores, así que suele converger en pocas iteraciones. Breed y
+ * Species están en la caché de segundo nivel; como se actualizan por JDBC, al
+ * terminar se sacan de ella las filas cambiadas.
+ */
+public class AjusteCurvasCrecimiento {
+
+    private static final Log log = LogFactory.getLog(AjusteCurvasCrecimiento.class);
+
+    private static final String LOTES_VENDIDOS =
+        "select f.raza_oid, count(*) from FarmBatch f where f.etapa = 'VENDIDO' " +
+        "and exists (select 1 from WeightSample w where w.lote_oid = f.oid) group by f.raza_oid";
+
+    private static final String PARAMETROS = "oid, curvaAsintotaGramos, curvaDesplazamiento, curvaTasa, curvaLotes";
+
+    private static final String PESAJES =
+        "select f.raza_oid, w.diasDesdeInicio, count(*), sum(w.pesoMedioGramos), sum(w.pesoMedioGramos * w.pesoMedioGramos) " +
+        "from WeightSample w join FarmBatch f on f.oid = w.lote_oid join Breed r on r.oid = f.raza_oid " +
+        "where r.especie_oid = ? and f.etapa = 'VENDIDO' and w.diasDesdeInicio >= 0 " +
+        "group by f.raza_oid, w.diasDesdeInicio order by f.raza_oid, w.diasDesdeInicio";
+
+    private static final String GUARDAR =
+        " set curvaAsintotaGramos = ?, curvaDesplazamiento = ?, curvaTasa = ?, curvaErrorGramos = ?, " +
+        "curvaLotes = ?, curvaPesajes = ?, curvaFechaAjuste = ? where oid = ?";
+
+    private static ScheduledExecutorService planificador;
+
+    /**
+     * Programa una pasada al arrancar y luego cada curvas.intervaloMinutos.
+     */
+    public static synchronized void iniciar() {
+        if (planificador != null || !Configuracion.getBoolean("curvas.activo", true)) return;
+        int intervalo = Configuracion.getInt("curvas.intervaloMinutos", 360);
+        planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "ajuste-curvas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador.scheduleWithFixedDelay(() -> {
+            try {
+                ajustar();
+            }
+            catch (Exception ex) {
+                // Sin relanzar: una excepción cancelaría las pasadas siguientes
+                log.error("Falló el ajuste de las curvas de crecimiento", ex);
+            }
+        }, 2, intervalo, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void detener() {
+        if (planificador == null) return;
+        planificador.shutdownNow();
+        planificador = null;
+    }
+
+    /**
+     * Ajusta las curvas de las razas con lotes vendidos nuevos y las de sus especies.
+     *
+     * @return curvas guardadas, contando razas y especies
+     */
+    public static synchronized int ajustar() throws SQLException {
+        Set<String> razas = new HashSet<>();
+        Set<String> especies = new HashSet<>();
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try {
+                ajustar(conexion, LocalDate.now(), razas, especies);
+                conexion.commit();
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+        if (!razas.isEmpty() || !especies.isEmpty()) {
+            sacarDeCache(razas, especies);
+            HistoriaRazas.invalidar();
+        }
+        return razas.size() + especies.size();
+    }
+
+    /**
+     * Pasada completa sobre una conexión abierta, sin confirmar. Deja en razas y
+     * especies los oid de las filas guardadas.
+     */
+    public static void ajustar(Connection conexion, LocalDate hoy, Set<String> razas, Set<String> especies) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        int minimoLotes = Configuracion.getInt("curvas.minimoLotes", 3);
+
+        Map<String, Integer> vendidos = new HashMap<>();
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery(LOTES_VENDIDOS)) {
+            while (rs.next()) vendidos.put(rs.getString(1), rs.getInt(2));
+        }
+        Map<String, Anterior> anterioresRaza = new HashMap<>();
+        Map<String, String> especieDeRaza = new HashMap<>();
+        Map<String, Integer> vendidosEspecie = new HashMap<>();
+        Set<String> especiesPendientes = new HashSet<>();
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery("select " + PARAMETROS + ", especie_oid from Breed")) {
+            while (rs.next()) {
+                Anterior anterior = new Anterior(rs);
+                String especie = rs.getString(6);
+                int lotes = vendidos.getOrDefault(anterior.oid, 0);
+                anterioresRaza.put(anterior.oid, anterior);
+                especieDeRaza.put(anterior.oid, especie);
+                vendidosEspecie.merge(especie, lotes, Integer::sum);
+                if (lotes != anterior.lotes) especiesPendientes.add(especie);
+            }
+        }
+        Map<String, Anterior> anterioresEspecie = new HashMap<>();
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery("select " + PARAMETROS + " from Species")) {
+            while (rs.next()) {
+                Anterior anterior = new Anterior(rs);
+                anterioresEspecie.put(anterior.oid, anterior);
+                if (vendidosEspecie.getOrDefault(anterior.oid, 0) != anterior.lotes) especiesPendientes.add(anterior.oid);
+            }
+        }
+        if (especiesPendientes.isEmpty()) return;
+
+        try (PreparedStatement pesajes = conexion.prepareStatement(PESAJES);
+             PreparedStatement guardarRaza = conexion.prepareStatement("update Breed" + GUARDAR);
+             PreparedStatement guardarEspecie = conexion.prepareStatement("update Species" + GUARDAR)) {
+            for (String especie: especiesPendientes) {
+                Anterior anteriorEspecie = anterioresEspecie.get(especie);
+                if (anteriorEspecie == null) continue;
+                Map<String, Pesajes> porRaza = new LinkedHashMap<>();
+                Pesajes deEspecie = new Pesajes();
+                pesajes.setString(1, especie);
+                try (ResultSet rs = pesajes.executeQuery()) {
+                    while (rs.next()) {
+                        Pesajes deRaza = porRaza.computeIfAbsent(rs.getString(1), oid -> new Pesajes());
+                        int dia = rs.getInt(2);
+                        long cantidad = rs.getLong(3);
+                        double suma = rs.getDouble(4), sumaCuadrados = rs.getDouble(5);
+                        deRaza.sumar(dia, cantidad, suma, sumaCuadrados);
+                        deEspecie.sumar(dia, cantidad, suma, sumaCuadrados);
+                    }
+                }
+                for (Map.Entry<String, String> raza: especieDeRaza.entrySet()) {
+                    if (!especie.equals(raza.getValue())) continue;
+                    Anterior anterior = anterioresRaza.get(raza.getKey());
+                    int lotes = vendidos.getOrDefault(raza.getKey(), 0);
+                    if (lotes == anterior.lotes) continue;
+                    Pesajes deRaza = porRaza.getOrDefault(raza.getKey(), new Pesajes());
+                    guardar(guardarRaza, anterior, lotes, lotes < minimoLotes ? null : deRaza, hoy);
+                    razas.add(raza.getKey());
+                }
+                int lotes = vendidosEspecie.getOrDefault(especie, 0);
+                guardar(guardarEspecie, anteriorEspecie, lotes, lotes < minimoLotes ? null : deEspecie, hoy);
+                especies.add(especie);
+            }
+            guardarRaza.executeBatch();
+            guardarEspecie.executeBatch();
+        }
+        log.info("Curvas de crecimiento ajustadas para " + razas.size() + " razas y " + especies.size() +
+            " especies en " + (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    // Sin pesajes suficientes la curva queda vacía, pero se anotan los lotes para no repetir el intento
+    private static void guardar(PreparedStatement sentencia, Anterior anterior, int lotes, Pesajes pesajes, LocalDate hoy)
+            throws SQLException {
+        CurvaGompertz curva = pesajes == null ? null : pesajes.ajustar(anterior.curva);
+        if (curva == null) {
+            for (int i = 1; i <= 4; i++) sentencia.setNull(i, Types.DOUBLE);
+        }
+        else {
+            sentencia.setDouble(1, curva.getAsintota());
+            sentencia.setDouble(2, curva.getDesplazamiento());
+            sentencia.setDouble(3, curva.getTasa());
+            sentencia.setDouble(4, pesajes.errorCuadraticoMedio(curva));
+        }
+        sentencia.setInt(5, lotes);
+        sentencia.setLong(6, pesajes == null ? 0 : pesajes.total);
+        sentencia.setDate(7, Date.valueOf(hoy));
+        sentencia.setString(8, anterior.oid);
+        sentencia.addBatch();
+    }
+
+    private static void sacarDeCache(Collection<String> razas, Collection<String> especies) {
+        try {
+            Cache cache = XPersistence.getManager().getEntityManagerFactory().getCache();
+            for (String oid: razas) cache.evict(Breed.class, oid);
+            for (String oid: especies) cache.evict(Species.class, oid);
+        }
+        finally {
+            XPersistence.commit();
+        }
+    }
+
+    // Curva y lotes del último ajuste de una raza o especie
+    private static class Anterior {
+
+        final String oid;
+        final CurvaGompertz curva;
+        final int lotes;
+
+        Anterior(ResultSet rs) throws SQLException {
+            oid = rs.getString(1);
+            double asintota = rs.getDouble(2);
+            curva = rs.wasNull() ? null : new CurvaGompertz(asintota, rs.getDouble(3), rs.getDouble(4));
+            // Null si nunca se ajustó, distinto de cero lotes, para que la primera pasada la guarde
+            int lotes = rs.getInt(5);
+            this.lotes = rs.wasNull() ? -1 : lotes;
+        }
+    }
+
+    // Pesajes agrupados por día: cantidad, suma y suma de cuadrados del peso medio
+    private static class Pesajes {
+
+        final SortedMap<Integer, double[]> porDia = new TreeMap<>();
+        long total;
+
+        void sumar(int dia, long cantidad, double suma, double sumaCuadrados) {
+            double[] acumulado = porDia.computeIfAbsent(dia, d -> new double[3]);
+            acumulado[0] += cantidad;
+            acumulado[1] += suma;
+            acumulado[2] += sumaCuadrados;
+            total += cantidad;
+        }
+
+        CurvaGompertz ajustar(CurvaGompertz inicial) {
+            double[] dias = new double[porDia.size()], pesajes = new double[porDia.size()], medias = new double[porDia.size()];
+            int i = 0;
+            for (Map.Entry<Integer, double[]> dia: porDia.entrySet()) {
+                dias[i] = dia.getKey();
+                pesajes[i] = dia.getValue()[0];
+                medias[i] = dia.getValue()[1] / dia.getValue()[0];
+                i++;
+            }
+            return CurvaGompertz.ajustar(dias, pesajes, medias, inicial);
+        }
+
+        // Sobre cada pesaje, no sobre las medias: suma de (peso - esperado)^2 desarrollada con las sumas del día
+        double errorCuadraticoMedio(CurvaGompertz curva) {
+            double suma = 0;
+            for (Map.Entry<Integer, double[]> dia: porDia.entrySet()) {
+                double esperado = curva.peso(dia.getKey());
+                double[] d = dia.getValue();
+                suma += d[2] - 2 * esperado * d[1] + d[0] * esperado * esperado;
+            }
+            return Math.sqrt(Math.max(suma, 0) / total);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.util.stream.IntStream;
+
+import lombok.*;
+
+/**
+ * Análisis de sensibilidad del margen de las proyecciones: cada entrada se mueve
+ * en puntos valores repartidos entre -variacion y +variacion (fracción de su valor
+ * base) con las demás fijas, y se guarda el menor y el mayor margen obtenidos.
+ *
+ * El margen es el de Projection.getMargenProyectado(), peso * precio - costos,
+ * con la mortalidad final como cuarta entrada: el peso estimado corresponde a la
+ * mortalidad base y cambia con las aves que sobreviven respecto a ella. Todo es
+ * aritmética de double sobre arrays y las proyecciones se reparten en tramos que
+ * se calculan en paralelo.
+ */
+public class AnalisisSensibilidad {
+
+    public static final int ENTRADAS = 4;
+    public static final int PRECIO = 0, COSTOS = 1, PESO = 2, MORTALIDAD = 3;
+
+    private static final int PROYECCIONES_POR_TRAMO = 1024;
+
+    /**
+     * Valores base de las proyecciones: [proyeccion * ENTRADAS + entrada].
+     */
+    public static class Entradas {
+
+        final int cantidad;
+        final double[] valores;
+        // Mortalidad ya ocurrida, por debajo de la cual no puede bajar la final
+        final double[] mortalidadActual;
+
+        public Entradas(int cantidad) {
+            this.cantidad = cantidad;
+            valores = new double[cantidad * ENTRADAS];
+            mortalidadActual = new double[cantidad];
+        }
+
+        public void poner(int i, double precio, double costos, double peso, double mortalidadFinal, double mortalidadActual) {
+            valores[i * ENTRADAS + PRECIO] = precio;
+            valores[i * ENTRADAS + COSTOS] = costos;
+            valores[i * ENTRADAS + PESO] = peso;
+            valores[i * ENTRADAS + MORTALIDAD] = mortalidadFinal;
+            this.mortalidadActual[i] = mortalidadActual;
+        }
+    }
+
+    /**
+     * Margen base y, por entrada, los valores y márgenes extremos: [proyeccion * ENTRADAS + entrada].
+     */
+    @Getter
+    public static class Resultado {
+
+        final double[] margenBase;
+        // Menor y mayor margen al mover la entrada y el valor de la entrada con que se obtiene cada uno
+        final double[] margenBajo;
+        final double[] margenAlto;
+        final double[] valorMargenBajo;
+        final double[] valorMargenAlto;
+
+        Resultado(int cantidad) {
+            margenBase = new double[cantidad];
+            margenBajo = new double[cantidad * ENTRADAS];
+            margenAlto = new double[cantidad * ENTRADAS];
+            valorMargenBajo = new double[cantidad * ENTRADAS];
+            valorMargenAlto = new double[cantidad * ENTRADAS];
+        }
+    }
+
+    /**
+     * @param variacion fracción del valor base que se sube y se baja cada entrada, por ejemplo 0.2
+     * @param puntos valores evaluados por entrada, incluidos los dos extremos
+     */
+    public static Resultado analizar(Entradas entradas, double variacion, int puntos) {
+        Resultado resultado = new Resultado(entradas.cantidad);
+        int tramos = (entradas.cantidad + PROYECCIONES_POR_TRAMO - 1) / PROYECCIONES_POR_TRAMO;
+        IntStream.range(0, tramos).parallel().forEach(tramo -> {
+            int hasta = Math.min(entradas.cantidad, (tramo + 1) * PROYECCIONES_POR_TRAMO);
+            for (int i = tramo * PROYECCIONES_POR_TRAMO; i < hasta; i++) analizar(entradas, resultado, i, variacion, Math.max(puntos, 2));
+        });
+        return resultado;
+    }
+
+    private static void analizar(Entradas entradas, Resultado resultado, int i, double variacion, int puntos) {
+        int base = i * ENTRADAS;
+        double[] v = entradas.valores;
+        double supervivientesBase = 1 - v[base + MORTALIDAD];
+        resultado.margenBase[i] = margen(v[base + PRECIO], v[base + COSTOS], v[base + PESO], 1, 1);
+        for (int entrada = 0; entrada < ENTRADAS; entrada++) {
+            double valorBase = v[base + entrada];
+            double menor = Double.POSITIVE_INFINITY, mayor = Double.NEGATIVE_INFINITY;
+            double valorMenor = valorBase, valorMayor = valorBase;
+            for (int p = 0; p < puntos; p++) {
+                double valor = valorBase * (1 - variacion + 2 * variacion * p / (puntos - 1));
+                if (entrada == MORTALIDAD) valor = Math.max(entradas.mortalidadActual[i], Math.min(1, valor));
+                double precio = entrada == PRECIO ? valor : v[base + PRECIO];
+                double costos = entrada == COSTOS ? valor : v[base + COSTOS];
+                double peso = entrada == PESO ? valor : v[base + PESO];
+                double margen = entrada == MORTALIDAD ? margen(precio, costos, peso, 1 - valor, supervivientesBase) :
+                    margen(precio, costos, peso, 1, 1);
+                if (margen < menor) {
+                    menor = margen;
+                    valorMenor = valor;
+                }
+                if (margen > mayor) {
+                    mayor = margen;
+                    valorMayor = valor;
+                }
+            }
+            resultado.margenBajo[base + entrada] = menor;
+            resultado.margenAlto[base + entrada] = mayor;
+            resultado.valorMargenBajo[base + entrada] = valorMenor;
+            resultado.valorMargenAlto[base + entrada] = valorMayor;
+        }
+    }
+
+    // El peso estimado es el de supervivientesBase; con otra mortalidad cambia en proporción
+    private static double margen(double precio, double costos, double peso, double supervivientes, double supervivientesBase) {
+        double factor = supervivientesBase > 0 ? supervivientes / supervivientesBase : 1;
+        return peso * factor * precio - costos;
+    }
+}
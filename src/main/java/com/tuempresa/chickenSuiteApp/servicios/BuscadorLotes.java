@@ -0,0 +1,42 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Búsqueda de lotes por prefijo del código para los editores de referencia.
+ * Devuelve como mucho un número fijo de filas, así que su coste no depende
+ * de cuántos lotes históricos haya.
+ */
+public class BuscadorLotes {
+
+    public static final int LIMITE_POR_DEFECTO = 20;
+    public static final int LIMITE_MAXIMO = 50;
+
+    // Apoyada en idx_farmbatch_codigo_activos (db/postgresql/002-busqueda-lotes.sql)
+    private static final String ACTIVOS =
+        "select oid, codigo from FarmBatch where upper(codigo) like ? escape '\\' " +
+        "and (etapa is null or etapa <> 'VENDIDO') order by upper(codigo)";
+    private static final String TODOS =
+        "select oid, codigo from FarmBatch where upper(codigo) like ? escape '\\' order by upper(codigo)";
+
+    /**
+     * @return pares {oid, codigo} ordenados por código
+     */
+    public static List<String[]> buscar(Connection conexion, String prefijo, int limite, boolean incluirVendidos)
+            throws SQLException {
+        List<String[]> lotes = new ArrayList<>();
+        try (PreparedStatement sentencia = conexion.prepareStatement(incluirVendidos ? TODOS : ACTIVOS)) {
+            sentencia.setString(1, escaparLike(prefijo == null ? "" : prefijo.trim().toUpperCase()) + "%");
+            sentencia.setMaxRows(Math.max(1, Math.min(limite, LIMITE_MAXIMO)));
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) lotes.add(new String[] { rs.getString(1), rs.getString(2) });
+            }
+        }
+        return lotes;
+    }
+
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,259 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+import com.tuempresa.chickenSuiteApp.persistencia.DiarioEventos.Apunte;
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Ingesta diferida de eventos diarios.
+ *
+ * encolar() anota el evento en el DiarioEventos local y vuelve en cuanto está en
+ * disco, sin tocar la base de datos. Un único hilo escritor recoge los eventos en
+ * grupos de hasta ingesta.maximoGrupo y guarda cada grupo con una sola conexión y
+ * una sola transacción, así que muchas altas simultáneas ocupan una conexión del
+ * pool en lugar de una cada una.
+ *
+ * Al arrancar se vuelven a enviar los apuntes que no llegaron a confirmarse. Un
+ * grupo puede estar ya en la base de datos si la caída fue entre el commit y la
+ * confirmación en el diario; por eso al reenviar se descartan los oids que ya
+ * existen.
+ */
+public class ColaIngestaEventos {
+
+    private static final Log log = LogFactory.getLog(ColaIngestaEventos.class);
+
+    private static final long ESPERA_REINTENTO_MILISEGUNDOS = 2000;
+
+    private static ColaIngestaEventos instancia;
+
+    private final DiarioEventos diario;
+    private final Path rechazados;
+    private final int maximoGrupo;
+    private final long esperaMilisegundos;
+    private final BlockingQueue<Apunte> pendientes = new LinkedBlockingQueue<>();
+    private final Thread escritor;
+    private volatile boolean activa = true;
+    // Hasta esta secuencia los apuntes vienen del diario y pueden estar ya guardados
+    private long ultimaRecuperada;
+
+    private final AtomicInteger profundidad = new AtomicInteger();
+    private final AtomicLong eventosGuardados = new AtomicLong();
+    private final AtomicLong gruposGuardados = new AtomicLong();
+    private final AtomicLong eventosRechazados = new AtomicLong();
+    private final AtomicLong nanosegundosGuardando = new AtomicLong();
+    private volatile long ultimaLatenciaNanosegundos;
+
+    private ColaIngestaEventos(Path directorio, int maximoGrupo, long esperaMilisegundos) throws IOException {
+        this.diario = new DiarioEventos(directorio);
+        this.rechazados = directorio.resolve("rechazados.log");
+        this.maximoGrupo = maximoGrupo;
+        this.esperaMilisegundos = esperaMilisegundos;
+        this.escritor = new Thread(this::escribirGrupos, "ingesta-eventos");
+        this.escritor.setDaemon(true);
+    }
+
+    /**
+     * Abre el diario, reenvía lo que quedó pendiente y arranca el hilo escritor.
+     * Si ingesta.activa es false no hace nada y las altas van directas por JPA.
+     */
+    public static synchronized void iniciar() throws IOException {
+        if (instancia != null || !isActiva()) return;
+        Path directorio = Paths.get(Configuracion.get("ingesta.directorio",
+            System.getProperty("user.home") + File.separator + ".chickenSuiteApp" + File.separator + "ingesta"));
+        ColaIngestaEventos cola = new ColaIngestaEventos(directorio,
+            Configuracion.getInt("ingesta.maximoGrupo", 500), Configuracion.getInt("ingesta.esperaMilisegundos", 100));
+        List<Apunte> recuperados = cola.diario.recuperar();
+        if (!recuperados.isEmpty()) {
+            log.info("Reenviando " + recuperados.size() + " eventos pendientes del diario " + directorio);
+            cola.profundidad.addAndGet(recuperados.size());
+            cola.ultimaRecuperada = recuperados.get(recuperados.size() - 1).getSecuencia();
+            cola.pendientes.addAll(recuperados);
+        }
+        cola.escritor.start();
+        instancia = cola;
+    }
+
+    /**
+     * Deja de aceptar eventos y espera a que el escritor guarde lo que queda en la cola.
+     */
+    public static synchronized void detener() throws IOException, InterruptedException {
+        if (instancia == null) return;
+        instancia.activa = false;
+        instancia.escritor.join(30_000);
+        instancia.diario.close();
+        instancia = null;
+    }
+
+    public static boolean isActiva() {
+        return Configuracion.getBoolean("ingesta.activa", true);
+    }
+
+    public static synchronized boolean isIniciada() {
+        return instancia != null;
+    }
+
+    public static synchronized ColaIngestaEventos getInstancia() {
+        if (instancia == null) throw new IllegalStateException("La cola de ingesta de eventos no está iniciada");
+        return instancia;
+    }
+
+    /**
+     * Anota el evento en el diario y lo deja en cola para el escritor. Al volver
+     * el evento ya sobrevive a un reinicio aunque todavía no esté en la base de datos.
+     */
+    public void encolar(RegistroEvento registro) throws IOException {
+        // Un descuento de aves rechazado al guardar el grupo solo quedaría en rechazados.log
+        if (registro.getMuertos() != 0) {
+            throw new IllegalArgumentException("Los eventos con muertos se registran con ServicioMortalidad, no se encolan");
+        }
+        if (!activa) throw new IllegalStateException("La cola de ingesta de eventos se está deteniendo");
+        // Mismo orden en la cola que en el diario, así confirmar un grupo confirma todo lo anterior
+        synchronized (diario) {
+            long secuencia = diario.anotar(registro);
+            pendientes.add(new DiarioEventos.Apunte(secuencia, registro));
+        }
+        profundidad.incrementAndGet();
+    }
+
+    private void escribirGrupos() {
+        List<Apunte> grupo = new ArrayList<>(maximoGrupo);
+        while (activa || !pendientes.isEmpty()) {
+            try {
+                Apunte primero = pendientes.poll(esperaMilisegundos, TimeUnit.MILLISECONDS);
+                if (primero == null) continue;
+                grupo.add(primero);
+                pendientes.drainTo(grupo, maximoGrupo - 1);
+                guardarConReintentos(grupo, grupo.get(0).getSecuencia() <= ultimaRecuperada);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    private void guardarConReintentos(List<Apunte> grupo, boolean descartarExistentes) throws InterruptedException {
+        while (true) {
+            try {
+                long inicio = System.nanoTime();
+                try {
+                    guardar(grupo, descartarExistentes);
+                }
+                catch (SQLException ex) {
+                    // Puede ser un evento concreto (lote borrado, dato fuera de rango): se prueban uno a uno
+                    log.warn("Falló el guardado de un grupo de " + grupo.size() + " eventos, se guardan uno a uno", ex);
+                    guardarUnoAUno(grupo);
+                }
+                diario.confirmar(grupo.get(grupo.size() - 1).getSecuencia());
+                long latencia = System.nanoTime() - inicio;
+                ultimaLatenciaNanosegundos = latencia;
+                nanosegundosGuardando.addAndGet(latencia);
+                gruposGuardados.incrementAndGet();
+                profundidad.addAndGet(-grupo.size());
+                return;
+            }
+            catch (SQLException | IOException | RuntimeException ex) {
+                // Base de datos o disco no disponibles: el grupo sigue en el diario, se reintenta
+                log.error("No se pudieron guardar " + grupo.size() + " eventos, se reintenta en " +
+                    ESPERA_REINTENTO_MILISEGUNDOS + " ms", ex);
+                Thread.sleep(ESPERA_REINTENTO_MILISEGUNDOS);
+                descartarExistentes = true;
+            }
+        }
+    }
+
+    private void guardar(List<Apunte> grupo, boolean descartarExistentes) throws SQLException {
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try (EscritorEventos escritor = new EscritorEventos(conexion)) {
+                Set<String> existentes = descartarExistentes ? existentes(conexion, grupo) : Collections.<String>emptySet();
+                for (Apunte apunte: grupo) {
+                    if (!existentes.contains(apunte.getRegistro().getOid())) escritor.agregar(apunte.getRegistro());
+                }
+                eventosGuardados.addAndGet(escritor.vaciar());
+                conexion.commit();
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    // Los eventos que fallan por sus datos (SQLState 22 o 23) se apartan a rechazados.log
+    private void guardarUnoAUno(List<Apunte> grupo) throws SQLException, IOException {
+        for (Apunte apunte: grupo) {
+            try {
+                guardar(Collections.singletonList(apunte), true);
+            }
+            catch (SQLException ex) {
+                String estado = ex.getSQLState();
+                if (estado == null || !(estado.startsWith("22") || estado.startsWith("23"))) throw ex;
+                rechazar(apunte, ex);
+            }
+        }
+    }
+
+    private void rechazar(Apunte apunte, SQLException causa) throws IOException {
+        RegistroEvento registro = apunte.getRegistro();
+        log.error("Evento " + registro.getOid() + " del lote " + registro.getLoteOid() + " rechazado por la base de datos", causa);
+        String linea = String.join(";", registro.getOid(), registro.getLoteOid(), registro.getFecha().toString(),
+            registro.getTipo().name(), String.valueOf(registro.getCosto()), String.valueOf(registro.getMuertos()),
+            String.valueOf(registro.getKilogramosAlimento()), String.valueOf(causa.getMessage()).replace('\n', ' ')) + System.lineSeparator();
+        Files.write(rechazados, linea.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        eventosRechazados.incrementAndGet();
+    }
+
+    private static Set<String> existentes(Connection conexion, List<Apunte> grupo) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        StringBuilder sql = new StringBuilder("select oid from DailyEvent where oid in (");
+        for (int i = 0; i < grupo.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql.append(')').toString())) {
+            for (int i = 0; i < grupo.size(); i++) sentencia.setString(i + 1, grupo.get(i).getRegistro().getOid());
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) existentes.add(rs.getString(1));
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Eventos anotados que aún no están en la base de datos.
+     */
+    public int getProfundidad() {
+        return profundidad.get();
+    }
+
+    public long getEventosGuardados() {
+        return eventosGuardados.get();
+    }
+
+    public long getGruposGuardados() {
+        return gruposGuardados.get();
+    }
+
+    public long getEventosRechazados() {
+        return eventosRechazados.get();
+    }
+
+    public double getUltimaLatenciaMilisegundos() {
+        return ultimaLatenciaNanosegundos / 1_000_000.0;
+    }
+
+    public double getLatenciaMediaMilisegundos() {
+        long grupos = gruposGuardados.get();
+        return grupos == 0 ? 0 : nanosegundosGuardando.get() / 1_000_000.0 / grupos;
+    }
+}
@@ -0,0 +1,169 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.util.Arrays;
+
+import lombok.*;
+
+/**
+ * Curva de Gompertz del peso vivo en gramos según los días desde el inicio del lote:
+ * peso(t) = asintota * exp(-desplazamiento * exp(-tasa * t)).
+ *
+ * El ajuste es por mínimos cuadrados con Levenberg-Marquardt sobre los pesos
+ * medios agrupados por día, cada uno con el número de pesajes de ese día como
+ * peso. Da el mismo óptimo que ajustar pesaje a pesaje, pero cada iteración solo
+ * recorre los días distintos, no todos los pesajes.
+ */
+@Getter @AllArgsConstructor
+public class CurvaGompertz {
+
+    // Con menos días distintos no hay grados de libertad para tres parámetros
+    public static final int MINIMO_DIAS = 4;
+
+    private static final int MAXIMO_ITERACIONES = 200;
+    private static final double TOLERANCIA = 1e-10;
+    // Tope de la asíntota respecto al mayor peso medio: con razas de curvas distintas
+    // mezcladas (el ajuste de una especie) el óptimo libre puede irse a pesos absurdos
+    private static final double MAXIMA_ASINTOTA_RELATIVA = 3;
+
+    final double asintota;
+    final double desplazamiento;
+    final double tasa;
+
+    public static double peso(double asintota, double desplazamiento, double tasa, double dia) {
+        return asintota * Math.exp(-desplazamiento * Math.exp(-tasa * dia));
+    }
+
+    public double peso(double dia) {
+        return peso(asintota, desplazamiento, tasa, dia);
+    }
+
+    /**
+     * Ajusta la curva a los pesos medios de cada día.
+     *
+     * @param dias días desde el inicio, sin repetir
+     * @param pesajes pesajes de cada día, que ponderan su media
+     * @param medias peso medio de cada día en gramos
+     * @param inicial curva de la que partir, por ejemplo el ajuste anterior; si es
+     *        null se estima linealizando la curva
+     * @return la curva ajustada, o null si no hay datos suficientes o no converge
+     */
+    public static CurvaGompertz ajustar(double[] dias, double[] pesajes, double[] medias, CurvaGompertz inicial) {
+        if (dias.length < MINIMO_DIAS) return null;
+        double[] p = inicial != null && inicial.esValida() ? new double[] {inicial.asintota, inicial.desplazamiento, inicial.tasa} :
+            estimar(dias, pesajes, medias);
+        if (p == null) return null;
+        double maximaAsintota = MAXIMA_ASINTOTA_RELATIVA * maximo(medias);
+        p[0] = Math.min(p[0], maximaAsintota);
+        double error = error(dias, pesajes, medias, p);
+        double lambda = 1e-3;
+        double[][] jtj = new double[3][3];
+        double[] jtr = new double[3];
+        double[] q = new double[3];
+        for (int iteracion = 0; iteracion < MAXIMO_ITERACIONES; iteracion++) {
+            for (double[] fila: jtj) Arrays.fill(fila, 0);
+            Arrays.fill(jtr, 0);
+            for (int i = 0; i < dias.length; i++) {
+                double e = Math.exp(-p[2] * dias[i]);
+                double g = Math.exp(-p[1] * e);
+                double residuo = medias[i] - p[0] * g;
+                // Derivadas respecto a asintota, desplazamiento y tasa
+                double j0 = g, j1 = -p[0] * g * e, j2 = p[0] * g * p[1] * dias[i] * e;
+                double w = pesajes[i];
+                jtj[0][0] += w * j0 * j0; jtj[0][1] += w * j0 * j1; jtj[0][2] += w * j0 * j2;
+                jtj[1][1] += w * j1 * j1; jtj[1][2] += w * j1 * j2; jtj[2][2] += w * j2 * j2;
+                jtr[0] += w * j0 * residuo; jtr[1] += w * j1 * residuo; jtr[2] += w * j2 * residuo;
+            }
+            jtj[1][0] = jtj[0][1]; jtj[2][0] = jtj[0][2]; jtj[2][1] = jtj[1][2];
+
+            boolean mejora = false;
+            while (lambda < 1e12) {
+                double[] paso = resolver(jtj, jtr, lambda);
+                if (paso != null) {
+                    for (int k = 0; k < 3; k++) q[k] = p[k] + paso[k];
+                    double nuevo = q[0] > 0 && q[0] <= maximaAsintota && q[1] > 0 && q[2] > 0 ? error(dias, pesajes, medias, q) : Double.NaN;
+                    if (nuevo < error) {
+                        boolean convergido = error - nuevo <= TOLERANCIA * error;
+                        System.arraycopy(q, 0, p, 0, 3);
+                        error = nuevo;
+                        lambda = Math.max(lambda / 10, 1e-12);
+                        mejora = !convergido;
+                        break;
+                    }
+                }
+                lambda *= 10;
+            }
+            if (!mejora) break;
+        }
+        CurvaGompertz curva = new CurvaGompertz(p[0], p[1], p[2]);
+        return curva.esValida() ? curva : null;
+    }
+
+    boolean esValida() {
+        return asintota > 0 && desplazamiento > 0 && tasa > 0 &&
+            Double.isFinite(asintota) && Double.isFinite(desplazamiento) && Double.isFinite(tasa);
+    }
+
+    // Suma ponderada de los cuadrados de los residuos de las medias
+    private static double error(double[] dias, double[] pesajes, double[] medias, double[] p) {
+        double suma = 0;
+        for (int i = 0; i < dias.length; i++) {
+            double residuo = medias[i] - peso(p[0], p[1], p[2], dias[i]);
+            suma += pesajes[i] * residuo * residuo;
+        }
+        return suma;
+    }
+
+    // (JtJ + lambda diag(JtJ)) paso = Jtr por eliminación de Gauss con pivote
+    private static double[] resolver(double[][] jtj, double[] jtr, double lambda) {
+        double[][] a = new double[3][4];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) a[i][j] = jtj[i][j];
+            a[i][i] += lambda * jtj[i][i];
+            a[i][3] = jtr[i];
+        }
+        for (int c = 0; c < 3; c++) {
+            int pivote = c;
+            for (int f = c + 1; f < 3; f++) if (Math.abs(a[f][c]) > Math.abs(a[pivote][c])) pivote = f;
+            if (a[pivote][c] == 0) return null;
+            double[] fila = a[c]; a[c] = a[pivote]; a[pivote] = fila;
+            for (int f = c + 1; f < 3; f++) {
+                double factor = a[f][c] / a[c][c];
+                for (int j = c; j < 4; j++) a[f][j] -= factor * a[c][j];
+            }
+        }
+        double[] x = new double[3];
+        for (int i = 2; i >= 0; i--) {
+            double suma = a[i][3];
+            for (int j = i + 1; j < 3; j++) suma -= a[i][j] * x[j];
+            x[i] = suma / a[i][i];
+        }
+        return x;
+    }
+
+    private static double maximo(double[] medias) {
+        double maximo = 0;
+        for (double media: medias) maximo = Math.max(maximo, media);
+        return maximo;
+    }
+
+    // Punto de partida: con la asíntota fijada algo por encima del mayor peso,
+    // ln(ln(asintota / peso)) = ln(desplazamiento) - tasa * dia es una recta
+    private static double[] estimar(double[] dias, double[] pesajes, double[] medias) {
+        double maximo = maximo(medias);
+        if (maximo <= 0) return null;
+        double asintota = 1.5 * maximo;
+        double sw = 0, sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < dias.length; i++) {
+            if (medias[i] <= 0) continue;
+            double y = Math.log(Math.log(asintota / medias[i]));
+            double w = pesajes[i];
+            sw += w; sx += w * dias[i]; sy += w * y; sxx += w * dias[i] * dias[i]; sxy += w * dias[i] * y;
+        }
+        double varianza = sw * sxx - sx * sx;
+        if (sw == 0 || varianza <= 0) return null;
+        double pendiente = (sw * sxy - sx * sy) / varianza;
+        double corte = (sy - pendiente * sx) / sw;
+        double tasa = pendiente < 0 ? -pendiente : 0.03;
+        return new double[] {asintota, Math.exp(corte), tasa};
+    }
+}
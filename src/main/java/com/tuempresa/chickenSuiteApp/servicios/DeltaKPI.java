@@ -0,0 +1,53 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.BigDecimal;
+
+import lombok.*;
+
+/**
+ * Variación que hay que sumar a los totales de un BatchKPI.
+ */
+@Getter
+public class DeltaKPI {
+
+    BigDecimal kilogramosAlimento = BigDecimal.ZERO;
+    long muertos;
+    BigDecimal costo = BigDecimal.ZERO;
+    long eventos;
+
+    /**
+     * Suma (signo 1) o resta (signo -1) los valores de un evento.
+     */
+    public void acumular(BigDecimal kilogramosAlimento, int muertos, BigDecimal costo, int signo) {
+        if (kilogramosAlimento != null) {
+            this.kilogramosAlimento = signo > 0 ? this.kilogramosAlimento.add(kilogramosAlimento) : this.kilogramosAlimento.subtract(kilogramosAlimento);
+        }
+        if (costo != null) {
+            this.costo = signo > 0 ? this.costo.add(costo) : this.costo.subtract(costo);
+        }
+        this.muertos += signo * (long) muertos;
+        this.eventos += signo;
+    }
+
+    public void acumular(RegistroEvento registro) {
+        acumular(registro.getKilogramosAlimento(), registro.getMuertos(), registro.getCosto(), 1);
+    }
+
+    /**
+     * Suma (signo 1) o resta (signo -1) los totales ya agregados de varios eventos.
+     */
+    public void acumular(BigDecimal kilogramosAlimento, long muertos, BigDecimal costo, long eventos, int signo) {
+        this.kilogramosAlimento = signo > 0 ? this.kilogramosAlimento.add(kilogramosAlimento) : this.kilogramosAlimento.subtract(kilogramosAlimento);
+        this.costo = signo > 0 ? this.costo.add(costo) : this.costo.subtract(costo);
+        this.muertos += signo * muertos;
+        this.eventos += signo * eventos;
+    }
+
+    public void acumular(DeltaKPI otro) {
+        acumular(otro.kilogramosAlimento, otro.muertos, otro.costo, otro.eventos, 1);
+    }
+
+    public boolean isVacio() {
+        return eventos == 0 && muertos == 0 && kilogramosAlimento.signum() == 0 && costo.signum() == 0;
+    }
+}
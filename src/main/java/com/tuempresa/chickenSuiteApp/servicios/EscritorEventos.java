@@ -0,0 +1,87 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inserta eventos diarios en sentencias JDBC agrupadas (addBatch/executeBatch).
+ * Como estas filas no pasan por JPA, acumula también los deltas de BatchKPI
+ * y de StageKPI y los aplica en cada vaciado, después de descontar los muertos
+ * de cada lote con ServicioMortalidad. No confirma la transacción: eso queda a cargo
+ * de quien aporta la conexión.
+ */
+public class EscritorEventos implements AutoCloseable {
+
+    private static final String INSERTAR =
+        "insert into DailyEvent (oid, lote_oid, fecha, tipo, costo, muertos, kilogramosAlimento, notas) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final Connection conexion;
+    private final PreparedStatement sentencia;
+    private final Map<String, DeltaKPI> deltas = new HashMap<>();
+    // Los mismos deltas por lote y fecha, para repartirlos por etapa
+    private final Map<String, Map<LocalDate, DeltaKPI>> deltasPorFecha = new HashMap<>();
+    private int pendientes;
+
+    public EscritorEventos(Connection conexion) throws SQLException {
+        this.conexion = conexion;
+        this.sentencia = conexion.prepareStatement(INSERTAR);
+    }
+
+    public void agregar(RegistroEvento registro) throws SQLException {
+        sentencia.setString(1, registro.getOid());
+        sentencia.setString(2, registro.getLoteOid());
+        sentencia.setDate(3, Date.valueOf(registro.getFecha()));
+        sentencia.setString(4, registro.getTipo().name());
+        sentencia.setBigDecimal(5, registro.getCosto());
+        sentencia.setInt(6, registro.getMuertos());
+        sentencia.setBigDecimal(7, registro.getKilogramosAlimento());
+        sentencia.setString(8, registro.getNotas());
+        sentencia.addBatch();
+        deltas.computeIfAbsent(registro.getLoteOid(), oid -> new DeltaKPI()).acumular(registro);
+        deltasPorFecha.computeIfAbsent(registro.getLoteOid(), oid -> new HashMap<>())
+            .computeIfAbsent(registro.getFecha(), fecha -> new DeltaKPI()).acumular(registro);
+        pendientes++;
+    }
+
+    /**
+     * Envía al servidor las filas acumuladas. Devuelve cuántas se enviaron.
+     *
+     * @throws SQLException con SQLState ServicioMortalidad.AVES_INSUFICIENTES si un lote
+     * no tiene aves vivas para sus muertos. Si falla, las filas acumuladas se descartan
+     * y quien aporta la conexión debe deshacer la transacción.
+     */
+    public int vaciar() throws SQLException {
+        if (pendientes == 0) return 0;
+        int enviadas = pendientes;
+        try {
+            // Primero los lotes, en orden de oid, y después los KPI, para no cruzar bloqueos
+            for (Map.Entry<String, DeltaKPI> delta: new TreeMap<>(deltas).entrySet()) {
+                ServicioMortalidad.descontar(conexion, delta.getKey(), delta.getValue().getMuertos());
+            }
+            sentencia.executeBatch();
+            ServicioBatchKPI.aplicarDeltas(conexion, deltas);
+            ServicioStageKPI.aplicarDeltas(conexion, deltasPorFecha);
+            ServicioCurvasPeso.aplicarDeltas(conexion, deltasPorFecha);
+            return enviadas;
+        }
+        finally {
+            sentencia.clearBatch();
+            deltas.clear();
+            deltasPorFecha.clear();
+            pendientes = 0;
+        }
+    }
+
+    public int getPendientes() {
+        return pendientes;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        sentencia.close();
+    }
+}
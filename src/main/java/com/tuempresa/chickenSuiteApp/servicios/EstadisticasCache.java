@@ -0,0 +1,33 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.util.*;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.*;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.modelo.*;
+
+/**
+ * Lectura de las estadísticas de la caché de segundo nivel de Hibernate.
+ */
+public class EstadisticasCache {
+
+    // Regiones configuradas en ehcache.xml
+    public static final List<String> REGIONES = Collections.unmodifiableList(Arrays.asList(
+        Species.class.getName(), Breed.class.getName()));
+
+    public static Statistics getEstadisticas() {
+        return XPersistence.getManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Porcentaje de aciertos de una región, o -1 si aún no tuvo accesos.
+     */
+    public static double getPorcentajeAciertos(CacheRegionStatistics region) {
+        long accesos = region.getHitCount() + region.getMissCount();
+        if (accesos == 0) return -1;
+        return region.getHitCount() * 100.0 / accesos;
+    }
+}
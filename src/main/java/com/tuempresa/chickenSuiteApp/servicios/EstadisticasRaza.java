@@ -0,0 +1,68 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.util.*;
+
+import lombok.*;
+
+/**
+ * Mortalidad final de los lotes ya vendidos de una raza: media y varianza de la
+ * proporción de aves muertas, que la simulación usa como distribución Beta.
+ */
+@Getter
+public class EstadisticasRaza {
+
+    // Con menos lotes vendidos la varianza no es fiable y se usa SIN_HISTORIA
+    public static final int MINIMO_LOTES = 3;
+
+    public static final EstadisticasRaza SIN_HISTORIA = new EstadisticasRaza(0, 0.05, 0.03 * 0.03);
+
+    private static final String TASA =
+        "cast(cantidadInicial - cantidadVivaActual as double precision) / cantidadInicial";
+    private static final String AGREGAR =
+        "select raza_oid, count(*), sum(" + TASA + "), sum(" + TASA + " * " + TASA + ") from FarmBatch " +
+        "where etapa = 'VENDIDO' and cantidadInicial > 0 ";
+
+    int lotes;
+    double mortalidadMedia;
+    double mortalidadVarianza;
+
+    EstadisticasRaza(int lotes, double mortalidadMedia, double mortalidadVarianza) {
+        this.lotes = lotes;
+        this.mortalidadMedia = mortalidadMedia;
+        this.mortalidadVarianza = mortalidadVarianza;
+    }
+
+    public static EstadisticasRaza de(Connection conexion, String razaOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(AGREGAR + "and raza_oid = ? group by raza_oid")) {
+            sentencia.setString(1, razaOid);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                return rs.next() ? leer(rs) : SIN_HISTORIA;
+            }
+        }
+    }
+
+    /**
+     * Estadísticas de todas las razas con una sola consulta; las razas sin
+     * historia suficiente no aparecen en el mapa.
+     */
+    public static Map<String, EstadisticasRaza> todas(Connection conexion) throws SQLException {
+        Map<String, EstadisticasRaza> estadisticas = new HashMap<>();
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery(AGREGAR + "group by raza_oid")) {
+            while (rs.next()) {
+                EstadisticasRaza raza = leer(rs);
+                if (raza != SIN_HISTORIA) estadisticas.put(rs.getString(1), raza);
+            }
+        }
+        return estadisticas;
+    }
+
+    private static EstadisticasRaza leer(ResultSet rs) throws SQLException {
+        int lotes = rs.getInt(2);
+        if (lotes < MINIMO_LOTES) return SIN_HISTORIA;
+        double media = rs.getDouble(3) / lotes;
+        double varianza = (rs.getDouble(4) - lotes * media * media) / (lotes - 1);
+        return new EstadisticasRaza(lotes, media, Math.max(varianza, 0));
+    }
+}
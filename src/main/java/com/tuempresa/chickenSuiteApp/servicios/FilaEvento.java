@@ -0,0 +1,22 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.*;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+
+/**
+ * Fila de la colección de eventos de un lote tal como se muestra en el detalle.
+ */
+@Getter @AllArgsConstructor
+public class FilaEvento {
+
+    String oid;
+    LocalDate fecha;
+    EventType tipo;
+    BigDecimal kilogramosAlimento;
+    int muertos;
+    BigDecimal costo;
+}
@@ -0,0 +1,176 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+import org.apache.commons.logging.*;
+
+import lombok.*;
+
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Datos históricos de cada raza que usan los escenarios: curva de crecimiento (la
+ * de la especie si la raza no tiene), mortalidad de sus lotes vendidos y consumo
+ * de alimento por kg de peso vivo y día, más el precio medio reciente del alimento
+ * y el costo común por ave-día.
+ *
+ * Calcularlos recorre los pesajes de todos los lotes vendidos, así que se guardan
+ * en memoria escenarios.cacheMinutos y todas las ejecuciones de escenarios de ese
+ * tiempo los reutilizan. AjusteCurvasCrecimiento los invalida al cambiar las curvas.
+ */
+public class HistoriaRazas {
+
+    private static final Log log = LogFactory.getLog(HistoriaRazas.class);
+
+    private static final String RAZAS =
+        "select r.oid, r.especie_oid, r.diasCrecimientoEstandar, coalesce(r.curvaAsintotaGramos, s.curvaAsintotaGramos), " +
+        "coalesce(r.curvaDesplazamiento, s.curvaDesplazamiento), coalesce(r.curvaTasa, s.curvaTasa) " +
+        "from Breed r join Species s on s.oid = r.especie_oid";
+
+    // Entre dos pesajes seguidos de un lote: alimento consumido y peso vivo medio por los días transcurridos
+    private static final String PESAJES_VENDIDOS =
+        "select f.raza_oid, w.lote_oid, w.diasDesdeInicio, w.alimentoAcumuladoKilogramos, w.avesVivas, w.pesoMedioGramos " +
+        "from WeightSample w join FarmBatch f on f.oid = w.lote_oid where f.etapa = 'VENDIDO' order by w.lote_oid, w.fecha";
+
+    private static final String PRECIO_ALIMENTO =
+        "select sum(costo), sum(kilogramosAlimento) from DailyEvent where fecha >= ? and kilogramosAlimento > 0 and costo is not null";
+
+    private static final String COSTO_AVE_DIA = "select sum(importe), sum(avesDia) from CostAllocation";
+
+    private static volatile HistoriaRazas actual;
+
+    /**
+     * Historia de una raza.
+     */
+    @Getter
+    public static class Raza {
+        String oid;
+        String especieOid;
+        int diasCrecimientoEstandar;
+        // Null si ni la raza ni su especie tienen curva ajustada
+        CurvaGompertz curva;
+        EstadisticasRaza estadisticas = EstadisticasRaza.SIN_HISTORIA;
+        // Kg de alimento al día por kg de peso vivo; NaN sin pesajes de lotes vendidos
+        double consumoRelativo = Double.NaN;
+    }
+
+    @Getter
+    final long momento;
+    final Map<String, Raza> razas;
+    @Getter
+    final double consumoRelativoGeneral;
+    @Getter
+    final double precioAlimento;
+    @Getter
+    final double costoAveDia;
+
+    private HistoriaRazas(Map<String, Raza> razas, double consumoRelativoGeneral, double precioAlimento, double costoAveDia) {
+        this.momento = System.currentTimeMillis();
+        this.razas = razas;
+        this.consumoRelativoGeneral = consumoRelativoGeneral;
+        this.precioAlimento = precioAlimento;
+        this.costoAveDia = costoAveDia;
+    }
+
+    public Raza getRaza(String oid) {
+        return razas.get(oid);
+    }
+
+    public Collection<Raza> getRazas() {
+        return Collections.unmodifiableCollection(razas.values());
+    }
+
+    /**
+     * La historia guardada si aún está vigente; si no, la lee de nuevo con la conexión.
+     */
+    public static HistoriaRazas get(Connection conexion) throws SQLException {
+        HistoriaRazas historia = actual;
+        long vigencia = Configuracion.getInt("escenarios.cacheMinutos", 10) * 60_000L;
+        if (historia != null && System.currentTimeMillis() - historia.momento < vigencia) return historia;
+        synchronized (HistoriaRazas.class) {
+            if (actual == historia || actual == null) actual = leer(conexion);
+            return actual;
+        }
+    }
+
+    public static void invalidar() {
+        actual = null;
+    }
+
+    private static HistoriaRazas leer(Connection conexion) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        Map<String, Raza> razas = new HashMap<>();
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery(RAZAS)) {
+            while (rs.next()) {
+                Raza raza = new Raza();
+                raza.oid = rs.getString(1);
+                raza.especieOid = rs.getString(2);
+                raza.diasCrecimientoEstandar = rs.getInt(3);
+                double asintota = rs.getDouble(4);
+                if (!rs.wasNull()) raza.curva = new CurvaGompertz(asintota, rs.getDouble(5), rs.getDouble(6));
+                razas.put(raza.oid, raza);
+            }
+        }
+        for (Map.Entry<String, EstadisticasRaza> estadisticas: EstadisticasRaza.todas(conexion).entrySet()) {
+            Raza raza = razas.get(estadisticas.getKey());
+            if (raza != null) raza.estadisticas = estadisticas.getValue();
+        }
+
+        Map<String, double[]> consumos = new HashMap<>();
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.setFetchSize(1000);
+            try (ResultSet rs = sentencia.executeQuery(PESAJES_VENDIDOS)) {
+                String loteAnterior = null;
+                double diaAnterior = 0, alimentoAnterior = 0, biomasaAnterior = 0;
+                while (rs.next()) {
+                    String lote = rs.getString(2);
+                    double dia = rs.getInt(3), alimento = rs.getDouble(4);
+                    double biomasa = rs.getLong(5) * rs.getDouble(6) / 1000;
+                    if (lote.equals(loteAnterior) && dia > diaAnterior) {
+                        double[] consumo = consumos.computeIfAbsent(rs.getString(1), r -> new double[2]);
+                        consumo[0] += alimento - alimentoAnterior;
+                        consumo[1] += (dia - diaAnterior) * (biomasa + biomasaAnterior) / 2;
+                    }
+                    loteAnterior = lote;
+                    diaAnterior = dia;
+                    alimentoAnterior = alimento;
+                    biomasaAnterior = biomasa;
+                }
+            }
+        }
+        double alimentoTotal = 0, biomasaTotal = 0;
+        for (Map.Entry<String, double[]> consumo: consumos.entrySet()) {
+            Raza raza = razas.get(consumo.getKey());
+            double[] valores = consumo.getValue();
+            if (raza == null || valores[1] <= 0) continue;
+            raza.consumoRelativo = valores[0] / valores[1];
+            alimentoTotal += valores[0];
+            biomasaTotal += valores[1];
+        }
+
+        double precioAlimento;
+        try (PreparedStatement sentencia = conexion.prepareStatement(PRECIO_ALIMENTO)) {
+            sentencia.setDate(1, Date.valueOf(LocalDate.now().minusDays(Configuracion.getInt("escenarios.diasPrecioAlimento", 90))));
+            precioAlimento = cociente(sentencia);
+        }
+        double costoAveDia;
+        try (PreparedStatement sentencia = conexion.prepareStatement(COSTO_AVE_DIA)) {
+            costoAveDia = cociente(sentencia);
+        }
+        HistoriaRazas historia = new HistoriaRazas(razas, biomasaTotal > 0 ? alimentoTotal / biomasaTotal : 0, precioAlimento, costoAveDia);
+        log.info("Historia de " + razas.size() + " razas leída en " + (System.currentTimeMillis() - inicio) + " ms");
+        return historia;
+    }
+
+    private static double cociente(PreparedStatement sentencia) throws SQLException {
+        try (ResultSet rs = sentencia.executeQuery()) {
+            if (!rs.next()) return 0;
+            double divisor = rs.getDouble(2);
+            return divisor > 0 ? rs.getDouble(1) / divisor : 0;
+        }
+    }
+}
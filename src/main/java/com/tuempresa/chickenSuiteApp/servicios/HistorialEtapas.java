@@ -0,0 +1,74 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+import com.tuempresa.chickenSuiteApp.enums.Stage;
+
+/**
+ * Transiciones de un lote en orden, para saber qué etapa estaba activa un día.
+ * Cada transición abre un tramo que dura hasta la siguiente; lo anterior a la
+ * primera transición se cuenta en la etapa de la primera.
+ */
+public class HistorialEtapas {
+
+    static final String TRANSICIONES = "select fecha, etapaNueva from StageTransition where lote_oid = ? order by fecha, oid";
+
+    private final List<LocalDate> fechas = new ArrayList<>();
+    private final List<Stage> etapas = new ArrayList<>();
+
+    public static HistorialEtapas leer(PreparedStatement transiciones, String loteOid) throws SQLException {
+        HistorialEtapas historial = new HistorialEtapas();
+        transiciones.setString(1, loteOid);
+        try (ResultSet rs = transiciones.executeQuery()) {
+            while (rs.next()) historial.agregar(rs.getDate(1).toLocalDate(), Stage.valueOf(rs.getString(2)));
+        }
+        return historial;
+    }
+
+    /**
+     * Añade una transición; tienen que llegar ordenadas por fecha.
+     */
+    public void agregar(LocalDate fecha, Stage etapa) {
+        fechas.add(fecha);
+        etapas.add(etapa);
+    }
+
+    public boolean isVacio() {
+        return etapas.isEmpty();
+    }
+
+    /**
+     * Etapa activa el día fecha, o null si el lote no tiene transiciones.
+     */
+    public Stage etapaEn(LocalDate fecha) {
+        if (etapas.isEmpty()) return null;
+        for (int i = fechas.size() - 1; i > 0; i--) {
+            if (!fechas.get(i).isAfter(fecha)) return etapas.get(i);
+        }
+        return etapas.get(0);
+    }
+
+    /**
+     * Etapas por las que ha pasado el lote, sin repetir, en orden de entrada.
+     */
+    public Set<Stage> getEtapas() {
+        return new LinkedHashSet<>(etapas);
+    }
+
+    /**
+     * Primer día en la etapa.
+     */
+    public LocalDate getFechaEntrada(Stage etapa) {
+        return fechas.get(etapas.indexOf(etapa));
+    }
+
+    /**
+     * Día en que el lote dejó la etapa por última vez, o null si sigue en ella.
+     */
+    public LocalDate getFechaSalida(Stage etapa) {
+        int ultima = etapas.lastIndexOf(etapa);
+        return ultima == etapas.size() - 1 ? null : fechas.get(ultima + 1);
+    }
+}
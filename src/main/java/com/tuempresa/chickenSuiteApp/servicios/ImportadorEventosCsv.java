@@ -0,0 +1,249 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.*;
+import java.util.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+
+/**
+ * Importa eventos diarios desde CSV leyendo línea a línea.
+ *
+ * Columnas: lote (código), fecha, tipo, costo, muertos, kilogramosAlimento, notas.
+ * El código de lote se resuelve a su oid con un mapa cargado una sola vez, y las
+ * filas válidas se insertan en lotes JDBC que se confirman periódicamente, de modo
+ * que la memoria usada no crece con el tamaño del archivo. Los muertos se
+ * descuentan de las aves vivas de su lote; las filas de mortalidad que dejarían un
+ * lote en negativo se rechazan.
+ */
+public class ImportadorEventosCsv {
+
+    private static final Log log = LogFactory.getLog(ImportadorEventosCsv.class);
+
+    // Filas por executeBatch + commit
+    static final int TAMANO_LOTE = 1000;
+    // Errores que se guardan en detalle; del resto solo se cuentan
+    static final int MAXIMO_ERRORES_DETALLADOS = 1000;
+
+    private static final int LONGITUD_NOTAS = 255;
+    private static final DateTimeFormatter FECHA_DIA_MES_ANIO = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    private final char separador;
+
+    public ImportadorEventosCsv(char separador) {
+        this.separador = separador;
+    }
+
+    public ResultadoImportacion importar(Reader lector, Connection conexion) throws IOException, SQLException {
+        Map<String, String> lotes = cargarLotes(conexion);
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        BufferedReader entrada = lector instanceof BufferedReader ? (BufferedReader) lector : new BufferedReader(lector);
+        // Filas del grupo en curso y su línea, por si hay que repetirlo fila a fila
+        List<RegistroEvento> grupo = new ArrayList<>(TAMANO_LOTE);
+        List<Integer> lineasGrupo = new ArrayList<>(TAMANO_LOTE);
+        try (EscritorEventos escritor = new EscritorEventos(conexion)) {
+            String linea;
+            int numeroLinea = 0;
+            while ((linea = entrada.readLine()) != null) {
+                numeroLinea++;
+                if (linea.trim().isEmpty()) continue;
+                if (numeroLinea == 1 && esCabecera(linea)) continue;
+                RegistroEvento registro;
+                try {
+                    registro = convertir(linea, lotes);
+                }
+                catch (FilaInvalidaException ex) {
+                    resultado.rechazar(numeroLinea, ex.getMessage());
+                    continue;
+                }
+                escritor.agregar(registro);
+                grupo.add(registro);
+                lineasGrupo.add(numeroLinea);
+                if (escritor.getPendientes() >= TAMANO_LOTE) guardarGrupo(escritor, conexion, grupo, lineasGrupo, resultado);
+            }
+            guardarGrupo(escritor, conexion, grupo, lineasGrupo, resultado);
+        }
+        log.info("Importación de eventos: " + resultado.getImportadas() + " importados, " +
+            resultado.getRechazadas() + " rechazados");
+        return resultado;
+    }
+
+    /**
+     * Confirma el grupo. Si algún lote no tiene aves vivas para los muertos del
+     * grupo, lo deshace y lo repite fila a fila para rechazar solo las filas de
+     * mortalidad que no caben.
+     */
+    private void guardarGrupo(EscritorEventos escritor, Connection conexion, List<RegistroEvento> grupo,
+            List<Integer> lineasGrupo, ResultadoImportacion resultado) throws SQLException {
+        try {
+            resultado.sumarImportadas(escritor.vaciar());
+            conexion.commit();
+        }
+        catch (SQLException ex) {
+            if (!ServicioMortalidad.AVES_INSUFICIENTES.equals(ex.getSQLState())) throw ex;
+            conexion.rollback();
+            for (int i = 0; i < grupo.size(); i++) {
+                escritor.agregar(grupo.get(i));
+                try {
+                    resultado.sumarImportadas(escritor.vaciar());
+                    conexion.commit();
+                }
+                catch (SQLException exFila) {
+                    if (!ServicioMortalidad.AVES_INSUFICIENTES.equals(exFila.getSQLState())) throw exFila;
+                    conexion.rollback();
+                    resultado.rechazar(lineasGrupo.get(i), exFila.getMessage());
+                }
+            }
+        }
+        grupo.clear();
+        lineasGrupo.clear();
+    }
+
+    // codigo -> oid; los códigos repetidos se marcan con null porque son ambiguos
+    private Map<String, String> cargarLotes(Connection conexion) throws SQLException {
+        Map<String, String> lotes = new HashMap<>();
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery("select codigo, oid from FarmBatch")) {
+            while (rs.next()) {
+                String codigo = normalizarCodigo(rs.getString(1));
+                if (codigo == null) continue;
+                if (lotes.containsKey(codigo)) lotes.put(codigo, null);
+                else lotes.put(codigo, rs.getString(2));
+            }
+        }
+        return lotes;
+    }
+
+    private boolean esCabecera(String linea) {
+        return linea.trim().toLowerCase().startsWith("lote");
+    }
+
+    private RegistroEvento convertir(String linea, Map<String, String> lotes) throws FilaInvalidaException {
+        List<String> campos = dividir(linea);
+        if (campos.size() < 6 || campos.size() > 7) {
+            throw new FilaInvalidaException("se esperaban 6 o 7 columnas y hay " + campos.size());
+        }
+
+        String codigo = normalizarCodigo(campos.get(0));
+        if (codigo == null) throw new FilaInvalidaException("falta el código de lote");
+        if (!lotes.containsKey(codigo)) throw new FilaInvalidaException("no existe el lote " + codigo);
+        String loteOid = lotes.get(codigo);
+        if (loteOid == null) throw new FilaInvalidaException("hay varios lotes con el código " + codigo);
+
+        LocalDate fecha = convertirFecha(campos.get(1));
+        EventType tipo = convertirTipo(campos.get(2));
+        BigDecimal costo = convertirDecimal(campos.get(3), "costo");
+        int muertos = convertirEntero(campos.get(4), "muertos");
+        BigDecimal kilogramos = convertirDecimal(campos.get(5), "kilogramosAlimento");
+        String notas = campos.size() == 7 ? campos.get(6).trim() : null;
+
+        if (muertos > 0 && tipo != EventType.MORTALIDAD) {
+            throw new FilaInvalidaException("muertos solo se admite en eventos MORTALIDAD");
+        }
+        if (kilogramos != null && kilogramos.signum() > 0 && tipo != EventType.ALIMENTACION) {
+            throw new FilaInvalidaException("kilogramosAlimento solo se admite en eventos ALIMENTACION");
+        }
+        if (notas != null && notas.isEmpty()) notas = null;
+        if (notas != null && notas.length() > LONGITUD_NOTAS) {
+            throw new FilaInvalidaException("las notas superan " + LONGITUD_NOTAS + " caracteres");
+        }
+
+        return new RegistroEvento(GeneradorIdOrdenado.siguiente(), loteOid, fecha, tipo, costo, muertos, kilogramos, notas);
+    }
+
+    private LocalDate convertirFecha(String valor) throws FilaInvalidaException {
+        String texto = valor.trim();
+        if (texto.isEmpty()) throw new FilaInvalidaException("falta la fecha");
+        try {
+            if (texto.indexOf('/') >= 0) return LocalDate.parse(texto, FECHA_DIA_MES_ANIO);
+            return LocalDate.parse(texto);
+        }
+        catch (DateTimeParseException ex) {
+            throw new FilaInvalidaException("fecha inválida '" + texto + "'");
+        }
+    }
+
+    private EventType convertirTipo(String valor) throws FilaInvalidaException {
+        String texto = valor.trim().toUpperCase();
+        try {
+            return EventType.valueOf(texto);
+        }
+        catch (IllegalArgumentException ex) {
+            throw new FilaInvalidaException("tipo de evento desconocido '" + valor.trim() + "'");
+        }
+    }
+
+    private BigDecimal convertirDecimal(String valor, String columna) throws FilaInvalidaException {
+        String texto = valor.trim();
+        if (texto.isEmpty()) return null;
+        // Con separador ';' es habitual la coma decimal
+        if (separador != ',') texto = texto.replace(',', '.');
+        try {
+            BigDecimal numero = new BigDecimal(texto);
+            if (numero.signum() < 0) throw new FilaInvalidaException(columna + " no puede ser negativo");
+            return numero;
+        }
+        catch (NumberFormatException ex) {
+            throw new FilaInvalidaException(columna + " no es un número: '" + valor.trim() + "'");
+        }
+    }
+
+    private int convertirEntero(String valor, String columna) throws FilaInvalidaException {
+        String texto = valor.trim();
+        if (texto.isEmpty()) return 0;
+        try {
+            int numero = Integer.parseInt(texto);
+            if (numero < 0) throw new FilaInvalidaException(columna + " no puede ser negativo");
+            return numero;
+        }
+        catch (NumberFormatException ex) {
+            throw new FilaInvalidaException(columna + " no es un entero: '" + texto + "'");
+        }
+    }
+
+    // Admite campos entre comillas con el separador dentro y comillas dobladas ("")
+    List<String> dividir(String linea) {
+        List<String> campos = new ArrayList<>(7);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"') {
+                    if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        campo.append('"');
+                        i++;
+                    }
+                    else entreComillas = false;
+                }
+                else campo.append(c);
+            }
+            else if (c == '"') entreComillas = true;
+            else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            }
+            else campo.append(c);
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static String normalizarCodigo(String codigo) {
+        if (codigo == null) return null;
+        String texto = codigo.trim().toUpperCase();
+        return texto.isEmpty() ? null : texto;
+    }
+
+    private static class FilaInvalidaException extends Exception {
+        FilaInvalidaException(String mensaje) {
+            super(mensaje);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.enums.Stage;
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Avance automático de etapa de los lotes en curso según los días transcurridos
+ * desde fechaInicio respecto a Breed.diasCrecimientoEstandar:
+ * antes de fechaInicio INCUBACION, hasta etapas.finCriaPorcentaje CRIA, hasta
+ * etapas.finCrecimientoPorcentaje CRECIMIENTO y después ENGORDE. VENDIDO solo se
+ * pone a mano, el motor nunca retrocede una etapa y un lote sin etapa cuenta
+ * como INCUBACION.
+ *
+ * Cada pasada recorre los lotes en curso con un cursor y anota en StageTransition
+ * los que tienen que avanzar, en grupos de TAMANO_GRUPO, sin cargar entidades ni
+ * guardar la lista en memoria. Después aplica un único UPDATE por etapa destino
+ * unido a esas filas. El UPDATE exige que la versión del lote siga siendo la leída,
+ * así que un lote editado mientras tanto no se toca y su anotación se descarta.
+ * Por último ServicioStageKPI pasa a la etapa nueva los eventos de ese día.
+ */
+public class MotorEtapas {
+
+    private static final Log log = LogFactory.getLog(MotorEtapas.class);
+
+    public static final int TAMANO_GRUPO = 1000;
+
+    private static final String EN_CURSO =
+        "select f.oid, f.etapa, f.version, f.fechaInicio, r.diasCrecimientoEstandar " +
+        "from FarmBatch f join Breed r on r.oid = f.raza_oid " +
+        "where (f.etapa is null or f.etapa <> 'VENDIDO') and f.fechaInicio is not null and r.diasCrecimientoEstandar > 0";
+
+    private static final String ANOTAR =
+        "insert into StageTransition (oid, lote_oid, etapaAnterior, etapaNueva, fecha, diasDesdeInicio, ejecucion, versionLote) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String AVANZAR =
+        "update FarmBatch set etapa = ?, version = version + 1 where (oid, version) in (" +
+        "select t.lote_oid, t.versionLote from StageTransition t where t.ejecucion = ? and t.etapaNueva = ?)";
+
+    private static final String DESCARTAR =
+        "delete from StageTransition where ejecucion = ? and not exists (" +
+        "select 1 from FarmBatch f where f.oid = StageTransition.lote_oid " +
+        "and f.etapa = StageTransition.etapaNueva and f.version = StageTransition.versionLote + 1)";
+
+    private static ScheduledExecutorService planificador;
+
+    /**
+     * Programa una pasada al arrancar y luego cada etapas.intervaloMinutos.
+     */
+    public static synchronized void iniciar() {
+        if (planificador != null || !Configuracion.getBoolean("etapas.activo", true)) return;
+        int intervalo = Configuracion.getInt("etapas.intervaloMinutos", 60);
+        planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "motor-etapas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador.scheduleWithFixedDelay(() -> {
+            try {
+                avanzar(LocalDate.now());
+            }
+            catch (Exception ex) {
+                // Sin relanzar: una excepción cancelaría las pasadas siguientes
+                log.error("Falló la pasada del motor de etapas", ex);
+            }
+        }, 1, intervalo, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void detener() {
+        if (planificador == null) return;
+        planificador.shutdownNow();
+        planificador = null;
+    }
+
+    /**
+     * Avanza los lotes cuya etapa debida el día hoy es posterior a la actual.
+     *
+     * @return lotes que han cambiado de etapa
+     */
+    public static synchronized int avanzar(LocalDate hoy) throws SQLException {
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try {
+                int lotes = avanzar(conexion, hoy);
+                conexion.commit();
+                return lotes;
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Pasada completa sobre una conexión abierta, sin confirmar.
+     */
+    public static int avanzar(Connection conexion, LocalDate hoy) throws SQLException {
+        int finCria = Configuracion.getInt("etapas.finCriaPorcentaje", 25);
+        int finCrecimiento = Configuracion.getInt("etapas.finCrecimientoPorcentaje", 60);
+        String ejecucion = GeneradorIdOrdenado.siguiente();
+        Set<Stage> destinos = EnumSet.noneOf(Stage.class);
+        int anotados = 0;
+        try (Statement consulta = conexion.createStatement();
+             PreparedStatement anotar = conexion.prepareStatement(ANOTAR)) {
+            // Con autocommit desactivado y fetchSize el driver lee por tramos en lugar de traer todo
+            consulta.setFetchSize(TAMANO_GRUPO);
+            try (ResultSet rs = consulta.executeQuery(EN_CURSO)) {
+                while (rs.next()) {
+                    String etapa = rs.getString(2);
+                    Stage actual = etapa == null ? Stage.INCUBACION : Stage.valueOf(etapa);
+                    long dias = ChronoUnit.DAYS.between(rs.getDate(4).toLocalDate(), hoy);
+                    Stage debida = etapaDebida(dias, rs.getInt(5), finCria, finCrecimiento);
+                    if (debida.ordinal() <= actual.ordinal()) continue;
+                    anotar.setString(1, GeneradorIdOrdenado.siguiente());
+                    anotar.setString(2, rs.getString(1));
+                    anotar.setString(3, actual.name());
+                    anotar.setString(4, debida.name());
+                    anotar.setDate(5, java.sql.Date.valueOf(hoy));
+                    anotar.setInt(6, (int) dias);
+                    anotar.setString(7, ejecucion);
+                    anotar.setInt(8, rs.getInt(3));
+                    anotar.addBatch();
+                    destinos.add(debida);
+                    if (++anotados % TAMANO_GRUPO == 0) anotar.executeBatch();
+                }
+            }
+            if (anotados % TAMANO_GRUPO != 0) anotar.executeBatch();
+        }
+        if (anotados == 0) return 0;
+
+        int avanzados = 0;
+        try (PreparedStatement avanzar = conexion.prepareStatement(AVANZAR)) {
+            for (Stage destino: destinos) {
+                avanzar.setString(1, destino.name());
+                avanzar.setString(2, ejecucion);
+                avanzar.setString(3, destino.name());
+                int lotes = avanzar.executeUpdate();
+                avanzados += lotes;
+                log.info(lotes + " lotes pasan a " + destino);
+            }
+        }
+        if (avanzados < anotados) {
+            try (PreparedStatement descartar = conexion.prepareStatement(DESCARTAR)) {
+                descartar.setString(1, ejecucion);
+                int descartados = descartar.executeUpdate();
+                log.info(descartados + " lotes modificados durante la pasada se dejan para la siguiente");
+            }
+        }
+        if (avanzados > 0) ServicioStageKPI.registrarTransiciones(conexion, ejecucion, hoy);
+        return avanzados;
+    }
+
+    /**
+     * Etapa que corresponde a un lote con dias desde fechaInicio y una raza de diasCrecimiento días.
+     */
+    public static Stage etapaDebida(long dias, int diasCrecimiento, int finCriaPorcentaje, int finCrecimientoPorcentaje) {
+        if (dias < 0) return Stage.INCUBACION;
+        long porcentaje = dias * 100 / diasCrecimiento;
+        if (porcentaje < finCriaPorcentaje) return Stage.CRIA;
+        if (porcentaje < finCrecimientoPorcentaje) return Stage.CRECIMIENTO;
+        return Stage.ENGORDE;
+    }
+}
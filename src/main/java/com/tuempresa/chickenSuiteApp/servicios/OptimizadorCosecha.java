@@ -0,0 +1,152 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import lombok.*;
+
+/**
+ * Día de venta que maximiza el margen esperado de cada lote en curso.
+ *
+ * Para cada día candidato, de hoy a hoy + dias, el margen es el peso vivo vendido
+ * (aves que quedan por el peso de la curva de la raza, corregido con el último
+ * pesaje) por el precio de la proyección, menos lo ya gastado y el alimento y los
+ * costos comunes de los días que faltan. Los lotes van en columnas (un double[]
+ * por dato) y el bucle interior recorre todos los lotes para un mismo día, así
+ * cada paso lee y escribe memoria contigua y la exponencial de la tasa de la curva
+ * se actualiza multiplicando en lugar de recalcularse.
+ */
+public class OptimizadorCosecha {
+
+    /**
+     * Datos de los lotes, una posición por proyección.
+     */
+    public static class Entradas {
+
+        final int cantidad;
+        // Días desde fechaInicio hoy
+        final int[] diaActual;
+        final double[] aves;
+        // Fracción de las aves vivas que muere cada día
+        final double[] mortalidadDiaria;
+        // Curva de Gompertz en gramos y factor del lote respecto a ella
+        final double[] asintota;
+        final double[] desplazamiento;
+        final double[] tasa;
+        final double[] factorPeso;
+        // Kg de alimento al día por kg de peso vivo
+        final double[] consumoRelativo;
+        final double[] precioAlimento;
+        // Costos comunes por ave y día
+        final double[] costoAveDia;
+        // Costos ya anotados en el lote, que se restan sea cual sea el día de venta
+        final double[] costoIncurrido;
+        final double[] precioVenta;
+
+        public Entradas(int cantidad) {
+            this.cantidad = cantidad;
+            diaActual = new int[cantidad];
+            aves = new double[cantidad];
+            mortalidadDiaria = new double[cantidad];
+            asintota = new double[cantidad];
+            desplazamiento = new double[cantidad];
+            tasa = new double[cantidad];
+            factorPeso = new double[cantidad];
+            consumoRelativo = new double[cantidad];
+            precioAlimento = new double[cantidad];
+            costoAveDia = new double[cantidad];
+            costoIncurrido = new double[cantidad];
+            precioVenta = new double[cantidad];
+        }
+
+        public void poner(int i, int diaActual, double aves, double mortalidadDiaria, CurvaGompertz curva, double factorPeso,
+                double consumoRelativo, double precioAlimento, double costoAveDia, double costoIncurrido, double precioVenta) {
+            this.diaActual[i] = diaActual;
+            this.aves[i] = aves;
+            this.mortalidadDiaria[i] = mortalidadDiaria;
+            this.asintota[i] = curva.getAsintota();
+            this.desplazamiento[i] = curva.getDesplazamiento();
+            this.tasa[i] = curva.getTasa();
+            this.factorPeso[i] = factorPeso;
+            this.consumoRelativo[i] = consumoRelativo;
+            this.precioAlimento[i] = precioAlimento;
+            this.costoAveDia[i] = costoAveDia;
+            this.costoIncurrido[i] = costoIncurrido;
+            this.precioVenta[i] = precioVenta;
+        }
+    }
+
+    /**
+     * Curva de margen de cada lote por día candidato y el mejor día.
+     */
+    @Getter
+    public static class Resultado {
+
+        final int cantidad;
+        // Días candidatos después de hoy; hay dias + 1 candidatos contando hoy
+        final int dias;
+        // Por día y lote: [dia * cantidad + lote]
+        final double[] aves;
+        final double[] pesoMedioGramos;
+        final double[] ingreso;
+        final double[] costoAdicional;
+        final double[] margen;
+        // Desplazamiento desde hoy del día de mayor margen de cada lote
+        final int[] mejorDia;
+
+        Resultado(int cantidad, int dias) {
+            this.cantidad = cantidad;
+            this.dias = dias;
+            int celdas = cantidad * (dias + 1);
+            aves = new double[celdas];
+            pesoMedioGramos = new double[celdas];
+            ingreso = new double[celdas];
+            costoAdicional = new double[celdas];
+            margen = new double[celdas];
+            mejorDia = new int[cantidad];
+        }
+
+        public int celda(int dia, int lote) {
+            return dia * cantidad + lote;
+        }
+
+        public double getMejorMargen(int lote) {
+            return margen[celda(mejorDia[lote], lote)];
+        }
+    }
+
+    public static Resultado optimizar(Entradas e, int dias) {
+        int n = e.cantidad;
+        Resultado r = new Resultado(n, dias);
+        double[] aves = e.aves.clone();
+        double[] costo = new double[n];
+        // exp(-tasa * t) del día en curso y el factor que lo lleva al día siguiente
+        double[] exponencial = new double[n];
+        double[] paso = new double[n];
+        for (int i = 0; i < n; i++) {
+            exponencial[i] = Math.exp(-e.tasa[i] * e.diaActual[i]);
+            paso[i] = Math.exp(-e.tasa[i]);
+        }
+        double[] mejor = new double[n];
+        for (int dia = 0; dia <= dias; dia++) {
+            int base = dia * n;
+            for (int i = 0; i < n; i++) {
+                double peso = e.factorPeso[i] * e.asintota[i] * Math.exp(-e.desplazamiento[i] * exponencial[i]);
+                double biomasa = aves[i] * peso / 1000;
+                double ingreso = biomasa * e.precioVenta[i];
+                double margen = ingreso - e.costoIncurrido[i] - costo[i];
+                r.aves[base + i] = aves[i];
+                r.pesoMedioGramos[base + i] = peso;
+                r.ingreso[base + i] = ingreso;
+                r.costoAdicional[base + i] = costo[i];
+                r.margen[base + i] = margen;
+                if (dia == 0 || margen > mejor[i]) {
+                    mejor[i] = margen;
+                    r.mejorDia[i] = dia;
+                }
+                // Lo que cuesta mantener el lote este día si no se vende
+                costo[i] += biomasa * e.consumoRelativo[i] * e.precioAlimento[i] + aves[i] * e.costoAveDia[i];
+                aves[i] -= aves[i] * e.mortalidadDiaria[i];
+                exponencial[i] *= paso[i];
+            }
+        }
+        return r;
+    }
+}
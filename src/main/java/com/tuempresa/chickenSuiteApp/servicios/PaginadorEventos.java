@@ -0,0 +1,84 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+
+/**
+ * Eventos de un lote por páginas, ordenados por (fecha, oid).
+ *
+ * Cada página empieza después de la última fila de la anterior en lugar de usar
+ * OFFSET, así que con el índice idx_dailyevent_lote_fecha_oid cuesta lo mismo
+ * la primera página que la número cien.
+ */
+public class PaginadorEventos {
+
+    public static final int TAMANO_PAGINA = 50;
+
+    private static final String COLUMNAS =
+        "select oid, fecha, tipo, kilogramosAlimento, muertos, costo from DailyEvent where lote_oid = ? ";
+    private static final String PRIMERA = COLUMNAS + "order by fecha, oid";
+    private static final String SIGUIENTE = COLUMNAS +
+        "and (fecha > ? or (fecha = ? and oid > ?)) order by fecha, oid";
+
+    private static final String SUMAR =
+        "select coalesce(sum(kilogramosAlimento), 0), coalesce(sum(muertos), 0), coalesce(sum(costo), 0), count(*) " +
+        "from DailyEvent where lote_oid = ?";
+
+    /**
+     * @param despuesFecha fecha de la última fila ya mostrada, null para la primera página
+     * @param despuesOid oid de la última fila ya mostrada, null para la primera página
+     */
+    public static List<FilaEvento> pagina(Connection conexion, String loteOid, LocalDate despuesFecha, String despuesOid, int tamano)
+            throws SQLException {
+        boolean primera = despuesFecha == null || despuesOid == null;
+        List<FilaEvento> filas = new ArrayList<>(tamano);
+        try (PreparedStatement sentencia = conexion.prepareStatement(primera ? PRIMERA : SIGUIENTE)) {
+            sentencia.setString(1, loteOid);
+            if (!primera) {
+                sentencia.setDate(2, java.sql.Date.valueOf(despuesFecha));
+                sentencia.setDate(3, java.sql.Date.valueOf(despuesFecha));
+                sentencia.setString(4, despuesOid);
+            }
+            sentencia.setMaxRows(tamano);
+            sentencia.setFetchSize(tamano);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    filas.add(new FilaEvento(rs.getString(1), rs.getDate(2).toLocalDate(), EventType.valueOf(rs.getString(3)),
+                        rs.getBigDecimal(4), rs.getInt(5), rs.getBigDecimal(6)));
+                }
+            }
+        }
+        return filas;
+    }
+
+    /**
+     * Totales de los eventos del lote. Se leen de BatchKPI, que ya los mantiene
+     * sumados; si el lote todavía no tiene fila allí se suman con una consulta.
+     */
+    public static DeltaKPI totales(String loteOid) throws SQLException {
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            DeltaKPI totales = leer(conexion,
+                "select totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos from BatchKPI where oid = ?", loteOid);
+            return totales != null ? totales : leer(conexion, SUMAR, loteOid);
+        }
+    }
+
+    private static DeltaKPI leer(Connection conexion, String sql, String loteOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+            sentencia.setString(1, loteOid);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (!rs.next()) return null;
+                DeltaKPI totales = new DeltaKPI();
+                totales.kilogramosAlimento = rs.getBigDecimal(1);
+                totales.muertos = rs.getLong(2);
+                totales.costo = rs.getBigDecimal(3);
+                totales.eventos = rs.getLong(4);
+                return totales;
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import lombok.*;
+
+/**
+ * Entrada de SimuladorProyeccion, en tipos primitivos para que el bucle de
+ * ensayos no cree objetos.
+ */
+@Getter @Setter
+public class ParametrosSimulacion {
+
+    double precioMedio;
+    double precioDesviacion;
+    double pesoTotalKilogramos;
+    // Desviación del peso final como fracción del estimado
+    double pesoDesviacionRelativa;
+    double costos;
+    // Mortalidad ya ocurrida en el lote y distribución de la mortalidad final de su raza
+    double mortalidadActual;
+    double mortalidadMedia;
+    double mortalidadVarianza;
+    int ensayos;
+    long semilla;
+}
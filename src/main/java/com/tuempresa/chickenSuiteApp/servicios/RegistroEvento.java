@@ -0,0 +1,24 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+
+import lombok.*;
+
+/**
+ * Fila de DailyEvent lista para insertarse por JDBC, sin pasar por JPA.
+ */
+@Getter @AllArgsConstructor
+public class RegistroEvento {
+
+    String oid;
+    String loteOid;
+    LocalDate fecha;
+    EventType tipo;
+    BigDecimal costo;
+    int muertos;
+    BigDecimal kilogramosAlimento;
+    String notas;
+}
@@ -0,0 +1,208 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import lombok.*;
+
+/**
+ * Reparte costos comunes entre los lotes en proporción a sus aves-día.
+ *
+ * Cada lote guarda la suma acumulada de sus aves vivas día a día, así que las
+ * aves-día de cualquier tramo salen de restar dos posiciones. Las parejas costo-lote
+ * que se solapan se encuentran con un barrido sobre los extremos de todos los
+ * intervalos ordenados: al abrirse un intervalo se empareja con los del otro tipo
+ * que siguen abiertos. Coste O((n + m) log(n + m) + parejas), sin bucles anidados
+ * sobre lotes y costos.
+ */
+public class RepartoCostos {
+
+    // Extremo codificado en un long: día (epochDay) << 32 | apertura << 31 | costo << 30 | índice
+    private static final long APERTURA = 1L << 31;
+    private static final long ES_COSTO = 1L << 30;
+    private static final long INDICE = ES_COSTO - 1;
+
+    /**
+     * Aves vivas de un lote por día, como sumas acumuladas desde su primer día.
+     */
+    public static class Lote {
+
+        @Getter final String oid;
+        @Getter final long primerDia;
+        // avesDiaAcumuladas[i] = aves-día desde primerDia hasta primerDia + i - 1
+        final long[] avesDiaAcumuladas;
+
+        /**
+         * @param primerDia epochDay del primer día con aves
+         * @param avesIniciales aves vivas al empezar ese día
+         * @param muertosPorDia muertes anotadas cada día; cuentan a partir del día siguiente
+         */
+        public Lote(String oid, long primerDia, long avesIniciales, long[] muertosPorDia) {
+            this.oid = oid;
+            this.primerDia = primerDia;
+            this.avesDiaAcumuladas = new long[muertosPorDia.length + 1];
+            long vivas = avesIniciales;
+            for (int i = 0; i < muertosPorDia.length; i++) {
+                avesDiaAcumuladas[i + 1] = avesDiaAcumuladas[i] + Math.max(vivas, 0);
+                vivas -= muertosPorDia[i];
+            }
+        }
+
+        /**
+         * Día siguiente al último con aves.
+         */
+        public long getFinDia() {
+            return primerDia + avesDiaAcumuladas.length - 1;
+        }
+
+        /**
+         * Aves-día entre los dos días, ambos incluidos, recortados a la vida del lote.
+         */
+        public long avesDia(long desde, long hasta) {
+            int inicio = (int) (Math.max(desde, primerDia) - primerDia);
+            int fin = (int) (Math.min(hasta + 1, getFinDia()) - primerDia);
+            return fin > inicio ? avesDiaAcumuladas[fin] - avesDiaAcumuladas[inicio] : 0;
+        }
+    }
+
+    /**
+     * Costo a repartir en céntimos entre dos días (epochDay), ambos incluidos.
+     */
+    @Getter @AllArgsConstructor
+    public static class Costo {
+        final String oid;
+        final long desde;
+        final long hasta;
+        final long centimos;
+    }
+
+    /**
+     * Resultado de un costo: aves-día totales y la parte de cada lote.
+     */
+    @Getter
+    public static class Reparto {
+        final Costo costo;
+        long totalAvesDia;
+        final List<Lote> lotes = new ArrayList<>();
+        final List<Long> avesDia = new ArrayList<>();
+        final List<Long> centimos = new ArrayList<>();
+
+        Reparto(Costo costo) {
+            this.costo = costo;
+        }
+
+        public int size() {
+            return lotes.size();
+        }
+    }
+
+    public static List<Reparto> repartir(List<Costo> costos, List<Lote> lotes) {
+        if (costos.size() >= ES_COSTO || lotes.size() >= ES_COSTO) throw new IllegalArgumentException("Demasiados intervalos");
+        List<Reparto> repartos = new ArrayList<>(costos.size());
+        for (Costo costo: costos) repartos.add(new Reparto(costo));
+
+        long[] extremos = new long[2 * (costos.size() + lotes.size())];
+        int n = 0;
+        for (int i = 0; i < lotes.size(); i++) {
+            Lote lote = lotes.get(i);
+            if (lote.getFinDia() <= lote.primerDia) continue;
+            extremos[n++] = (lote.primerDia << 32) | APERTURA | i;
+            extremos[n++] = (lote.getFinDia() << 32) | i;
+        }
+        for (int i = 0; i < costos.size(); i++) {
+            Costo costo = costos.get(i);
+            if (costo.hasta < costo.desde) continue;
+            extremos[n++] = (costo.desde << 32) | APERTURA | ES_COSTO | i;
+            extremos[n++] = ((costo.hasta + 1) << 32) | ES_COSTO | i;
+        }
+        // Intervalos semiabiertos: en el mismo día los cierres van antes que las aperturas
+        Arrays.sort(extremos, 0, n);
+
+        Abiertos lotesAbiertos = new Abiertos(lotes.size());
+        Abiertos costosAbiertos = new Abiertos(costos.size());
+        for (int e = 0; e < n; e++) {
+            long extremo = extremos[e];
+            int indice = (int) (extremo & INDICE);
+            boolean esCosto = (extremo & ES_COSTO) != 0;
+            if ((extremo & APERTURA) == 0) {
+                (esCosto ? costosAbiertos : lotesAbiertos).quitar(indice);
+            }
+            else if (esCosto) {
+                for (int i = 0; i < lotesAbiertos.cantidad; i++) emparejar(repartos.get(indice), lotes.get(lotesAbiertos.elementos[i]));
+                costosAbiertos.poner(indice);
+            }
+            else {
+                for (int i = 0; i < costosAbiertos.cantidad; i++) emparejar(repartos.get(costosAbiertos.elementos[i]), lotes.get(indice));
+                lotesAbiertos.poner(indice);
+            }
+        }
+        for (Reparto reparto: repartos) asignarCentimos(reparto);
+        return repartos;
+    }
+
+    private static void emparejar(Reparto reparto, Lote lote) {
+        long avesDia = lote.avesDia(reparto.costo.desde, reparto.costo.hasta);
+        if (avesDia <= 0) return;
+        reparto.lotes.add(lote);
+        reparto.avesDia.add(avesDia);
+        reparto.totalAvesDia += avesDia;
+    }
+
+    // Cada lote recibe la parte entera de sus céntimos y los que sobran van a los restos mayores,
+    // así la suma del reparto es exactamente el importe del costo
+    private static void asignarCentimos(Reparto reparto) {
+        int partes = reparto.size();
+        if (partes == 0) return;
+        long importe = reparto.costo.centimos;
+        long total = reparto.totalAvesDia;
+        long[] restos = new long[partes];
+        long asignados = 0;
+        for (int i = 0; i < partes; i++) {
+            long avesDia = reparto.avesDia.get(i);
+            long centimos;
+            if (importe <= Long.MAX_VALUE / avesDia) {
+                long producto = importe * avesDia;
+                centimos = producto / total;
+                restos[i] = producto % total;
+            }
+            else {
+                BigInteger[] division = BigInteger.valueOf(importe).multiply(BigInteger.valueOf(avesDia))
+                    .divideAndRemainder(BigInteger.valueOf(total));
+                centimos = division[0].longValue();
+                restos[i] = division[1].longValue();
+            }
+            reparto.centimos.add(centimos);
+            asignados += centimos;
+        }
+        long sobrantes = importe - asignados;
+        if (sobrantes == 0) return;
+        Integer[] orden = new Integer[partes];
+        for (int i = 0; i < partes; i++) orden[i] = i;
+        Arrays.sort(orden, (a, b) -> Long.compare(restos[b], restos[a]));
+        for (int i = 0; i < sobrantes; i++) reparto.centimos.set(orden[i], reparto.centimos.get(orden[i]) + 1);
+    }
+
+    // Conjunto de índices abiertos con alta y baja en O(1)
+    private static class Abiertos {
+
+        final int[] elementos;
+        final int[] posiciones;
+        int cantidad;
+
+        Abiertos(int capacidad) {
+            elementos = new int[capacidad];
+            posiciones = new int[capacidad];
+        }
+
+        void poner(int indice) {
+            posiciones[indice] = cantidad;
+            elementos[cantidad++] = indice;
+        }
+
+        void quitar(int indice) {
+            int ultimo = elementos[--cantidad];
+            elementos[posiciones[indice]] = ultimo;
+            posiciones[ultimo] = posiciones[indice];
+        }
+    }
+}
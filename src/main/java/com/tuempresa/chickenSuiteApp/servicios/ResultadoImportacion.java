@@ -0,0 +1,28 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.util.*;
+
+import lombok.*;
+
+/**
+ * Resumen de una importación: filas insertadas y motivo de cada fila rechazada.
+ */
+@Getter
+public class ResultadoImportacion {
+
+    int importadas;
+    int rechazadas;
+    // "Línea N: motivo", limitado a ImportadorEventosCsv.MAXIMO_ERRORES_DETALLADOS
+    List<String> errores = new ArrayList<>();
+
+    void sumarImportadas(int cantidad) {
+        importadas += cantidad;
+    }
+
+    void rechazar(int linea, String motivo) {
+        rechazadas++;
+        if (errores.size() < ImportadorEventosCsv.MAXIMO_ERRORES_DETALLADOS) {
+            errores.add("Línea " + linea + ": " + motivo);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import lombok.*;
+
+/**
+ * Percentiles del margen y probabilidad de pérdida obtenidos en una simulación.
+ */
+@Getter @AllArgsConstructor
+public class ResultadoSimulacion {
+
+    double margenP5;
+    double margenP50;
+    double margenP95;
+    // Fracción de ensayos con margen negativo, entre 0 y 1
+    double probabilidadPerdida;
+    int ensayos;
+}
@@ -0,0 +1,180 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+
+/**
+ * Mantenimiento de la tabla BatchKPI: suma de deltas cuando cambian los eventos
+ * de un lote y reconstrucción completa, junto con StageKPI y los acumulados de
+ * WeightSample, para reparar inconsistencias.
+ */
+public class ServicioBatchKPI {
+
+    private static final Log log = LogFactory.getLog(ServicioBatchKPI.class);
+
+    private static final String SUMAR =
+        "update BatchKPI set totalKilogramosAlimento = totalKilogramosAlimento + ?, totalMuertos = totalMuertos + ?, " +
+        "totalCosto = totalCosto + ?, cantidadEventos = cantidadEventos + ? where oid = ?";
+
+    private static final String INSERTAR =
+        "insert into BatchKPI (oid, totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos) values (?, ?, ?, ?, ?)";
+
+    private static final String BORRAR_RANGO = "delete from BatchKPI where oid >= ? and oid < ?";
+    private static final String BORRAR_DESDE = "delete from BatchKPI where oid >= ?";
+
+    private static final String RECALCULAR =
+        "insert into BatchKPI (oid, totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos) " +
+        "select f.oid, coalesce(sum(e.kilogramosAlimento), 0), coalesce(sum(e.muertos), 0), coalesce(sum(e.costo), 0), count(e.oid) " +
+        "from FarmBatch f left join DailyEvent e on e.lote_oid = f.oid ";
+    private static final String RECALCULAR_RANGO = RECALCULAR + "where f.oid >= ? and f.oid < ? group by f.oid";
+    private static final String RECALCULAR_DESDE = RECALCULAR + "where f.oid >= ? group by f.oid";
+    private static final String RECALCULAR_LOTE = RECALCULAR + "where f.oid = ? group by f.oid";
+
+    // Clave duplicada: otra transacción creó la fila del lote a la vez
+    private static final String CLAVE_DUPLICADA = "23505";
+
+    /**
+     * Fila a cero para un lote nuevo, así los deltas siempre encuentran donde sumar.
+     */
+    public static void crear(Connection conexion, String loteOid) throws SQLException {
+        insertar(conexion, loteOid, new DeltaKPI());
+    }
+
+    public static void eliminar(Connection conexion, String loteOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement("delete from BatchKPI where oid = ?")) {
+            sentencia.setString(1, loteOid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    /**
+     * Suma el delta a la fila del lote. Los eventos ya deben estar escritos en la
+     * conexión: si el lote aún no tiene fila se crea con el total de sus eventos.
+     */
+    public static void aplicarDelta(Connection conexion, String loteOid, DeltaKPI delta) throws SQLException {
+        if (delta.isVacio()) return;
+        try (PreparedStatement sentencia = conexion.prepareStatement(SUMAR)) {
+            if (sumar(sentencia, loteOid, delta) == 0) crearDesdeEventos(conexion, sentencia, loteOid, delta);
+        }
+    }
+
+    /**
+     * Aplica varios deltas reutilizando la misma sentencia; lo usan las cargas masivas.
+     */
+    public static void aplicarDeltas(Connection conexion, Map<String, DeltaKPI> deltas) throws SQLException {
+        if (deltas.isEmpty()) return;
+        try (PreparedStatement sentencia = conexion.prepareStatement(SUMAR)) {
+            for (Map.Entry<String, DeltaKPI> delta: deltas.entrySet()) {
+                if (delta.getValue().isVacio()) continue;
+                if (sumar(sentencia, delta.getKey(), delta.getValue()) == 0) {
+                    crearDesdeEventos(conexion, sentencia, delta.getKey(), delta.getValue());
+                }
+            }
+        }
+    }
+
+    private static int sumar(PreparedStatement sentencia, String loteOid, DeltaKPI delta) throws SQLException {
+        sentencia.setBigDecimal(1, delta.getKilogramosAlimento());
+        sentencia.setLong(2, delta.getMuertos());
+        sentencia.setBigDecimal(3, delta.getCosto());
+        sentencia.setLong(4, delta.getEventos());
+        sentencia.setString(5, loteOid);
+        return sentencia.executeUpdate();
+    }
+
+    /**
+     * Fila de un lote que no la tenía (lotes anteriores a BatchKPI), con los totales
+     * de todos sus eventos, que ya incluyen el delta. Si otra transacción la crea a
+     * la vez, se deshace solo esta inserción y se suma el delta sobre la suya.
+     */
+    private static void crearDesdeEventos(Connection conexion, PreparedStatement sumar, String loteOid, DeltaKPI delta)
+            throws SQLException {
+        Savepoint antes = conexion.setSavepoint();
+        try (PreparedStatement recalcular = conexion.prepareStatement(RECALCULAR_LOTE)) {
+            recalcular.setString(1, loteOid);
+            recalcular.executeUpdate();
+            conexion.releaseSavepoint(antes);
+        }
+        catch (SQLException ex) {
+            if (!CLAVE_DUPLICADA.equals(ex.getSQLState())) throw ex;
+            conexion.rollback(antes);
+            sumar(sumar, loteOid, delta);
+        }
+    }
+
+    private static void insertar(Connection conexion, String loteOid, DeltaKPI valores) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(INSERTAR)) {
+            sentencia.setString(1, loteOid);
+            sentencia.setBigDecimal(2, valores.getKilogramosAlimento());
+            sentencia.setLong(3, valores.getMuertos());
+            sentencia.setBigDecimal(4, valores.getCosto());
+            sentencia.setLong(5, valores.getEventos());
+            sentencia.executeUpdate();
+        }
+    }
+
+    /**
+     * Recalcula todos los agregados desde DailyEvent: BatchKPI, StageKPI y WeightSample. Los lotes
+     * se reparten en rangos de oid y cada rango se recalcula en su propio hilo y transacción.
+     *
+     * @return cantidad de lotes recalculados
+     */
+    public static int reconstruirTodos() throws Exception {
+        List<String> oids = new ArrayList<>();
+        try (Connection conexion = FuenteDatos.getConexion();
+             Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery("select oid from FarmBatch order by oid")) {
+            while (rs.next()) oids.add(rs.getString(1));
+        }
+        if (oids.isEmpty()) return 0;
+
+        int hilos = Math.min(Runtime.getRuntime().availableProcessors(), oids.size());
+        int porRango = (oids.size() + hilos - 1) / hilos;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<Integer>> tareas = new ArrayList<>();
+            for (int inicio = 0; inicio < oids.size(); inicio += porRango) {
+                String desde = oids.get(inicio);
+                String hasta = inicio + porRango < oids.size() ? oids.get(inicio + porRango) : null;
+                tareas.add(ejecutor.submit(() -> reconstruirRango(desde, hasta)));
+            }
+            int total = 0;
+            for (Future<Integer> tarea: tareas) total += tarea.get();
+            log.info("BatchKPI reconstruido para " + total + " lotes en " + tareas.size() + " rangos");
+            return total;
+        }
+        finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    // [desde, hasta); hasta == null significa hasta el final
+    private static int reconstruirRango(String desde, String hasta) throws SQLException {
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try (PreparedStatement borrar = conexion.prepareStatement(hasta == null ? BORRAR_DESDE : BORRAR_RANGO);
+                 PreparedStatement recalcular = conexion.prepareStatement(hasta == null ? RECALCULAR_DESDE : RECALCULAR_RANGO)) {
+                borrar.setString(1, desde);
+                recalcular.setString(1, desde);
+                if (hasta != null) {
+                    borrar.setString(2, hasta);
+                    recalcular.setString(2, hasta);
+                }
+                borrar.executeUpdate();
+                int lotes = recalcular.executeUpdate();
+                ServicioStageKPI.reconstruirRango(conexion, desde, hasta);
+                ServicioCurvasPeso.reconstruirRango(conexion, desde, hasta);
+                conexion.commit();
+                return lotes;
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.*;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Prepara las entradas de OptimizadorCosecha para las proyecciones de los lotes en
+ * curso y guarda en cada proyección el día de venta recomendado y su curva de margen.
+ *
+ * Todo se lee con una consulta agrupada por lote para cada dato, sin recorrer los
+ * lotes de uno en uno: las proyecciones con la curva de la raza (o de la especie)
+ * y los costos de BatchKPI, los eventos de los últimos cosecha.diasRecientes días
+ * (mortalidad, consumo y precio del alimento), el último pesaje y los costos
+ * comunes por ave-día. Sin eventos recientes propios se usan los valores del
+ * conjunto de lotes leídos.
+ */
+public class ServicioCosecha {
+
+    private static final Log log = LogFactory.getLog(ServicioCosecha.class);
+
+    private static final int TAMANO_GRUPO = 1000;
+
+    private static final String EN_CURSO = "(f.etapa is null or f.etapa <> 'VENDIDO')";
+    private static final String DE_UN_LOTE = EN_CURSO + " and f.oid = ?";
+
+    // La raza y la especie guardan los tres parámetros de su curva a la vez
+    private static final String PROYECCIONES =
+        "select p.oid, p.precioEsperadoPorKilogramo, f.oid, f.fechaInicio, f.cantidadVivaActual, " +
+        "coalesce(r.curvaAsintotaGramos, s.curvaAsintotaGramos), coalesce(r.curvaDesplazamiento, s.curvaDesplazamiento), " +
+        "coalesce(r.curvaTasa, s.curvaTasa), k.totalCosto " +
+        "from Projection p join FarmBatch f on f.oid = p.lote_oid join Breed r on r.oid = f.raza_oid " +
+        "join Species s on s.oid = r.especie_oid left join BatchKPI k on k.oid = f.oid " +
+        "where %s and f.fechaInicio <= ? and p.precioEsperadoPorKilogramo is not null";
+
+    private static final String ALIMENTO_CON_COSTO = "e.kilogramosAlimento > 0 and e.costo is not null";
+
+    private static final String RECIENTES =
+        "select e.lote_oid, sum(e.muertos), sum(e.kilogramosAlimento), " +
+        "sum(case when " + ALIMENTO_CON_COSTO + " then e.costo else 0 end), " +
+        "sum(case when " + ALIMENTO_CON_COSTO + " then e.kilogramosAlimento else 0 end) " +
+        "from DailyEvent e join FarmBatch f on f.oid = e.lote_oid " +
+        "where %s and e.fecha >= ? and e.fecha < ? group by e.lote_oid";
+
+    private static final String PRECIO_ALIMENTO =
+        "select sum(e.costo), sum(e.kilogramosAlimento) from DailyEvent e where e.fecha >= ? and e.fecha < ? and " + ALIMENTO_CON_COSTO;
+
+    private static final String ULTIMO_PESAJE =
+        "select w.lote_oid, w.diasDesdeInicio, w.pesoMedioGramos from WeightSample w join FarmBatch f on f.oid = w.lote_oid " +
+        "where %s and w.fecha = (select max(u.fecha) from WeightSample u where u.lote_oid = w.lote_oid)";
+
+    private static final String COSTOS_COMUNES =
+        "select a.lote_oid, sum(a.importe), sum(a.avesDia) from CostAllocation a join FarmBatch f on f.oid = a.lote_oid " +
+        "where %s group by a.lote_oid";
+
+    private static final String COSTO_AVE_DIA = "select sum(importe), sum(avesDia) from CostAllocation";
+
+    private static final String BORRAR = "delete from HarvestMarginPoint where proyeccion_oid = ?";
+
+    private static final String INSERTAR =
+        "insert into HarvestMarginPoint (oid, proyeccion_oid, fecha, diasDesdeInicio, avesVivas, pesoMedioGramos, ingreso, " +
+        "costoAdicional, margen) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String GUARDAR =
+        "update Projection set fechaCosechaRecomendada = ?, diasCosechaRecomendada = ?, margenCosechaRecomendada = ?, " +
+        "pesoCosechaRecomendadaGramos = ?, fechaOptimizacionCosecha = ? where oid = ?";
+
+    /**
+     * Optimiza las proyecciones de todos los lotes en curso en una sola pasada.
+     *
+     * @return proyecciones optimizadas
+     */
+    public static int optimizarTodas() throws SQLException {
+        return optimizar(null);
+    }
+
+    /**
+     * Optimiza las proyecciones de un lote.
+     */
+    public static int optimizarLote(String loteOid) throws SQLException {
+        return optimizar(loteOid);
+    }
+
+    private static int optimizar(String loteOid) throws SQLException {
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try {
+                int proyecciones = optimizar(conexion, LocalDate.now(), loteOid);
+                conexion.commit();
+                return proyecciones;
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Pasada sobre una conexión abierta, sin confirmar.
+     *
+     * @param loteOid null para todos los lotes en curso
+     */
+    public static int optimizar(Connection conexion, LocalDate hoy, String loteOid) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        int ventana = Configuracion.getInt("cosecha.ventanaDias", 60);
+        int diasRecientes = Math.max(Configuracion.getInt("cosecha.diasRecientes", 14), 1);
+        String condicion = loteOid == null ? EN_CURSO : DE_UN_LOTE;
+        Date desde = Date.valueOf(hoy.minusDays(diasRecientes));
+
+        Map<String, double[]> recientes = porLote(conexion, String.format(RECIENTES, condicion), loteOid, 4, desde, Date.valueOf(hoy));
+        Map<String, double[]> pesajes = porLote(conexion, String.format(ULTIMO_PESAJE, condicion), loteOid, 2);
+        Map<String, double[]> costosComunes = porLote(conexion, String.format(COSTOS_COMUNES, condicion), loteOid, 2);
+        double precioAlimentoGeneral = cociente(conexion, PRECIO_ALIMENTO, desde, Date.valueOf(hoy));
+        double costoAveDiaGeneral = cociente(conexion, COSTO_AVE_DIA);
+
+        List<Fila> filas = new ArrayList<>();
+        try (PreparedStatement sentencia = conexion.prepareStatement(String.format(PROYECCIONES, condicion))) {
+            int parametro = 1;
+            if (loteOid != null) sentencia.setString(parametro++, loteOid);
+            sentencia.setDate(parametro, Date.valueOf(hoy));
+            sentencia.setFetchSize(TAMANO_GRUPO);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    double asintota = rs.getDouble(6);
+                    if (rs.wasNull()) continue;
+                    Fila fila = new Fila();
+                    fila.proyeccion = rs.getString(1);
+                    fila.precioVenta = rs.getDouble(2);
+                    fila.lote = rs.getString(3);
+                    fila.fechaInicio = rs.getDate(4).toLocalDate();
+                    fila.diaActual = (int) ChronoUnit.DAYS.between(fila.fechaInicio, hoy);
+                    fila.aves = rs.getInt(5);
+                    fila.curva = new CurvaGompertz(asintota, rs.getDouble(7), rs.getDouble(8));
+                    fila.costoIncurrido = rs.getDouble(9);
+                    filas.add(fila);
+                }
+            }
+        }
+        if (filas.isEmpty()) return 0;
+
+        // Consumo por kg de peso vivo del conjunto, para los lotes sin eventos de alimento recientes
+        double alimentoTotal = 0, biomasaTotal = 0;
+        for (Fila fila: filas) {
+            double[] pesaje = pesajes.get(fila.lote);
+            if (pesaje != null && pesaje[1] > 0) {
+                double esperado = fila.curva.peso(pesaje[0]);
+                if (esperado > 0) fila.factorPeso = Math.max(0.5, Math.min(2, pesaje[1] / esperado));
+            }
+            double[] reciente = recientes.get(fila.lote);
+            int dias = Math.min(diasRecientes, fila.diaActual);
+            if (reciente != null && dias > 0) {
+                double avesMedias = fila.aves + reciente[0] / 2;
+                double biomasa = 0;
+                for (int dia = fila.diaActual - dias; dia < fila.diaActual; dia++) {
+                    biomasa += avesMedias * fila.factorPeso * fila.curva.peso(dia) / 1000;
+                }
+                if (avesMedias > 0) fila.mortalidadDiaria = Math.min(reciente[0] / (dias * avesMedias), 0.2);
+                if (biomasa > 0 && reciente[1] > 0) {
+                    fila.consumoRelativo = reciente[1] / biomasa;
+                    alimentoTotal += reciente[1];
+                    biomasaTotal += biomasa;
+                }
+                if (reciente[3] > 0) fila.precioAlimento = reciente[2] / reciente[3];
+            }
+            double[] comunes = costosComunes.get(fila.lote);
+            if (comunes != null) {
+                fila.costoIncurrido += comunes[0];
+                if (comunes[1] > 0) fila.costoAveDia = comunes[0] / comunes[1];
+            }
+        }
+        double consumoGeneral = biomasaTotal > 0 ? alimentoTotal / biomasaTotal : 0;
+
+        OptimizadorCosecha.Entradas entradas = new OptimizadorCosecha.Entradas(filas.size());
+        for (int i = 0; i < filas.size(); i++) {
+            Fila fila = filas.get(i);
+            entradas.poner(i, fila.diaActual, fila.aves, fila.mortalidadDiaria, fila.curva, fila.factorPeso,
+                Double.isNaN(fila.consumoRelativo) ? consumoGeneral : fila.consumoRelativo,
+                Double.isNaN(fila.precioAlimento) ? precioAlimentoGeneral : fila.precioAlimento,
+                Double.isNaN(fila.costoAveDia) ? costoAveDiaGeneral : fila.costoAveDia,
+                fila.costoIncurrido, fila.precioVenta);
+        }
+        long calculo = System.currentTimeMillis();
+        OptimizadorCosecha.Resultado resultado = OptimizadorCosecha.optimizar(entradas, ventana);
+        calculo = System.currentTimeMillis() - calculo;
+        guardar(conexion, filas, resultado, hoy);
+        log.info(filas.size() + " proyecciones optimizadas con " + (ventana + 1) + " días candidatos en " +
+            (System.currentTimeMillis() - inicio) + " ms (" + calculo + " ms de cálculo)");
+        return filas.size();
+    }
+
+    public static void eliminarCurva(Connection conexion, String proyeccionOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(BORRAR)) {
+            sentencia.setString(1, proyeccionOid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    private static void guardar(Connection conexion, List<Fila> filas, OptimizadorCosecha.Resultado resultado, LocalDate hoy)
+            throws SQLException {
+        try (PreparedStatement borrar = conexion.prepareStatement(BORRAR);
+             PreparedStatement insertar = conexion.prepareStatement(INSERTAR);
+             PreparedStatement guardar = conexion.prepareStatement(GUARDAR)) {
+            for (int i = 0; i < filas.size(); i++) {
+                Fila fila = filas.get(i);
+                borrar.setString(1, fila.proyeccion);
+                borrar.addBatch();
+                int mejor = resultado.getMejorDia()[i];
+                int celda = resultado.celda(mejor, i);
+                guardar.setDate(1, Date.valueOf(hoy.plusDays(mejor)));
+                guardar.setInt(2, fila.diaActual + mejor);
+                guardar.setBigDecimal(3, dinero(resultado.getMargen()[celda]));
+                guardar.setBigDecimal(4, gramos(resultado.getPesoMedioGramos()[celda]));
+                guardar.setDate(5, Date.valueOf(hoy));
+                guardar.setString(6, fila.proyeccion);
+                guardar.addBatch();
+                if ((i + 1) % TAMANO_GRUPO == 0) {
+                    borrar.executeBatch();
+                    guardar.executeBatch();
+                }
+            }
+            borrar.executeBatch();
+            guardar.executeBatch();
+
+            int pendientes = 0;
+            for (int dia = 0; dia <= resultado.getDias(); dia++) {
+                Date fecha = Date.valueOf(hoy.plusDays(dia));
+                for (int i = 0; i < filas.size(); i++) {
+                    int celda = resultado.celda(dia, i);
+                    insertar.setString(1, GeneradorIdOrdenado.siguiente());
+                    insertar.setString(2, filas.get(i).proyeccion);
+                    insertar.setDate(3, fecha);
+                    insertar.setInt(4, filas.get(i).diaActual + dia);
+                    insertar.setLong(5, Math.round(resultado.getAves()[celda]));
+                    insertar.setBigDecimal(6, gramos(resultado.getPesoMedioGramos()[celda]));
+                    insertar.setBigDecimal(7, dinero(resultado.getIngreso()[celda]));
+                    insertar.setBigDecimal(8, dinero(resultado.getCostoAdicional()[celda]));
+                    insertar.setBigDecimal(9, dinero(resultado.getMargen()[celda]));
+                    insertar.addBatch();
+                    if (++pendientes == TAMANO_GRUPO) {
+                        insertar.executeBatch();
+                        pendientes = 0;
+                    }
+                }
+            }
+            if (pendientes > 0) insertar.executeBatch();
+        }
+    }
+
+    // Columnas numéricas de cada lote, a partir de la segunda de la consulta
+    private static Map<String, double[]> porLote(Connection conexion, String consulta, String loteOid, int columnas,
+            Date... fechas) throws SQLException {
+        Map<String, double[]> valores = new HashMap<>();
+        try (PreparedStatement sentencia = conexion.prepareStatement(consulta)) {
+            int parametro = 1;
+            if (loteOid != null) sentencia.setString(parametro++, loteOid);
+            for (Date fecha: fechas) sentencia.setDate(parametro++, fecha);
+            sentencia.setFetchSize(TAMANO_GRUPO);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    double[] fila = new double[columnas];
+                    for (int i = 0; i < columnas; i++) fila[i] = rs.getDouble(i + 2);
+                    valores.put(rs.getString(1), fila);
+                }
+            }
+        }
+        return valores;
+    }
+
+    // Primera columna entre la segunda de una consulta de una fila; 0 si no hay datos
+    private static double cociente(Connection conexion, String consulta, Date... fechas) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(consulta)) {
+            for (int i = 0; i < fechas.length; i++) sentencia.setDate(i + 1, fechas[i]);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (!rs.next()) return 0;
+                double divisor = rs.getDouble(2);
+                return divisor > 0 ? rs.getDouble(1) / divisor : 0;
+            }
+        }
+    }
+
+    private static BigDecimal dinero(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal gramos(double valor) {
+        return BigDecimal.valueOf(valor).setScale(1, RoundingMode.HALF_UP);
+    }
+
+    // Datos de una proyección mientras se preparan las entradas; NaN es "sin dato propio"
+    private static class Fila {
+        String proyeccion;
+        String lote;
+        LocalDate fechaInicio;
+        int diaActual;
+        double aves;
+        double precioVenta;
+        CurvaGompertz curva;
+        double factorPeso = 1;
+        double mortalidadDiaria;
+        double consumoRelativo = Double.NaN;
+        double precioAlimento = Double.NaN;
+        double costoAveDia = Double.NaN;
+        double costoIncurrido;
+    }
+}
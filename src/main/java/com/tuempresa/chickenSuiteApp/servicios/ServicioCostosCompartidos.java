@@ -0,0 +1,221 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.*;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+
+/**
+ * Lee de la base de datos los costos comunes y las aves vivas de los lotes,
+ * los reparte con RepartoCostos y guarda el resultado en CostAllocation.
+ *
+ * Un lote vive desde fechaInicio hasta el día en que pasó a VENDIDO (su StageKPI);
+ * si está vendido sin historial, hasta fechaFinPlaneada. Las muertes se leen ya
+ * agrupadas por lote y día, de una sola consulta para todos los costos.
+ */
+public class ServicioCostosCompartidos {
+
+    private static final Log log = LogFactory.getLog(ServicioCostosCompartidos.class);
+
+    private static final int TAMANO_GRUPO = 1000;
+
+    private static final String COSTOS = "select oid, fechaDesde, fechaHasta, importe from SharedCost";
+
+    private static final String VENTA =
+        "left join StageKPI v on v.lote_oid = f.oid and v.etapa = 'VENDIDO' " +
+        "where f.fechaInicio <= ? and (v.fechaEntrada is null or v.fechaEntrada > ?)";
+
+    private static final String LOTES =
+        "select f.oid, f.fechaInicio, f.cantidadInicial, f.etapa, f.fechaFinPlaneada, v.fechaEntrada from FarmBatch f " + VENTA;
+
+    private static final String MUERTES =
+        "select e.lote_oid, e.fecha, sum(e.muertos) from FarmBatch f join DailyEvent e on e.lote_oid = f.oid " + VENTA +
+        " and e.fecha < ? and e.muertos > 0 group by e.lote_oid, e.fecha";
+
+    private static final String BORRAR = "delete from CostAllocation where costo_oid = ?";
+
+    private static final String INSERTAR =
+        "insert into CostAllocation (oid, costo_oid, lote_oid, avesDia, porcentaje, importe) values (?, ?, ?, ?, ?, ?)";
+
+    private static final String TOTALES = "update SharedCost set totalAvesDia = ?, fechaReparto = ? where oid = ?";
+
+    /**
+     * Reparte un costo y devuelve su resultado.
+     */
+    public static RepartoCostos.Reparto repartir(String costoOid) throws SQLException {
+        List<RepartoCostos.Reparto> repartos = leerYRepartir(COSTOS + " where oid = ?", costoOid);
+        return repartos.isEmpty() ? null : repartos.get(0);
+    }
+
+    /**
+     * Reparte de nuevo todos los costos en una sola pasada.
+     *
+     * @return resultado de cada costo
+     */
+    public static List<RepartoCostos.Reparto> repartirTodos() throws SQLException {
+        return leerYRepartir(COSTOS);
+    }
+
+    private static List<RepartoCostos.Reparto> leerYRepartir(String consulta, String... parametros) throws SQLException {
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try {
+                List<RepartoCostos.Costo> costos = new ArrayList<>();
+                try (PreparedStatement sentencia = conexion.prepareStatement(consulta)) {
+                    for (int i = 0; i < parametros.length; i++) sentencia.setString(i + 1, parametros[i]);
+                    try (ResultSet rs = sentencia.executeQuery()) {
+                        while (rs.next()) {
+                            costos.add(new RepartoCostos.Costo(rs.getString(1), rs.getDate(2).toLocalDate().toEpochDay(),
+                                rs.getDate(3).toLocalDate().toEpochDay(), centimos(rs.getBigDecimal(4))));
+                        }
+                    }
+                }
+                List<RepartoCostos.Reparto> repartos = repartir(conexion, costos);
+                conexion.commit();
+                return repartos;
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Reparte los costos dentro de la transacción de la conexión, sustituyendo su
+     * reparto anterior.
+     */
+    public static List<RepartoCostos.Reparto> repartir(Connection conexion, List<RepartoCostos.Costo> costos) throws SQLException {
+        if (costos.isEmpty()) return Collections.emptyList();
+        long inicio = System.currentTimeMillis();
+        long desde = Long.MAX_VALUE, hasta = Long.MIN_VALUE;
+        for (RepartoCostos.Costo costo: costos) {
+            desde = Math.min(desde, costo.getDesde());
+            hasta = Math.max(hasta, costo.getHasta());
+        }
+        List<RepartoCostos.Lote> lotes = leerLotes(conexion, desde, hasta);
+        List<RepartoCostos.Reparto> repartos = RepartoCostos.repartir(costos, lotes);
+        guardar(conexion, repartos);
+        log.info(costos.size() + " costos repartidos entre " + lotes.size() + " lotes en " +
+            (System.currentTimeMillis() - inicio) + " ms");
+        return repartos;
+    }
+
+    public static void eliminarReparto(Connection conexion, String costoOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(BORRAR)) {
+            sentencia.setString(1, costoOid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    public static void eliminarRepartoLote(Connection conexion, String loteOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement("delete from CostAllocation where lote_oid = ?")) {
+            sentencia.setString(1, loteOid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    // Lotes vivos en algún día de [desde, hasta] con sus muertes por día recortadas a ese intervalo
+    private static List<RepartoCostos.Lote> leerLotes(Connection conexion, long desde, long hasta) throws SQLException {
+        Date fechaHasta = Date.valueOf(LocalDate.ofEpochDay(hasta));
+        Date fechaDesde = Date.valueOf(LocalDate.ofEpochDay(desde));
+        Map<String, Vida> vidas = new HashMap<>();
+        try (PreparedStatement sentencia = conexion.prepareStatement(LOTES)) {
+            sentencia.setDate(1, fechaHasta);
+            sentencia.setDate(2, fechaDesde);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    Date venta = rs.getDate(6);
+                    if (venta == null && "VENDIDO".equals(rs.getString(4))) venta = rs.getDate(5);
+                    long primerDia = Math.max(rs.getDate(2).toLocalDate().toEpochDay(), desde);
+                    long finDia = hasta + 1;
+                    if (venta != null) finDia = Math.min(finDia, venta.toLocalDate().toEpochDay());
+                    if (finDia <= primerDia) continue;
+                    vidas.put(rs.getString(1), new Vida(primerDia, finDia, rs.getInt(3)));
+                }
+            }
+        }
+        try (PreparedStatement sentencia = conexion.prepareStatement(MUERTES)) {
+            sentencia.setDate(1, fechaHasta);
+            sentencia.setDate(2, fechaDesde);
+            sentencia.setDate(3, fechaHasta);
+            sentencia.setFetchSize(TAMANO_GRUPO);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    Vida vida = vidas.get(rs.getString(1));
+                    if (vida != null) vida.anotarMuertes(rs.getDate(2).toLocalDate().toEpochDay(), rs.getLong(3));
+                }
+            }
+        }
+        List<RepartoCostos.Lote> lotes = new ArrayList<>(vidas.size());
+        for (Map.Entry<String, Vida> vida: vidas.entrySet()) {
+            lotes.add(new RepartoCostos.Lote(vida.getKey(), vida.getValue().primerDia, vida.getValue().aves, vida.getValue().muertos));
+        }
+        return lotes;
+    }
+
+    private static void guardar(Connection conexion, List<RepartoCostos.Reparto> repartos) throws SQLException {
+        Date hoy = Date.valueOf(LocalDate.now());
+        try (PreparedStatement borrar = conexion.prepareStatement(BORRAR);
+             PreparedStatement insertar = conexion.prepareStatement(INSERTAR);
+             PreparedStatement totales = conexion.prepareStatement(TOTALES)) {
+            for (RepartoCostos.Reparto reparto: repartos) {
+                String costoOid = reparto.getCosto().getOid();
+                borrar.setString(1, costoOid);
+                borrar.addBatch();
+                totales.setLong(1, reparto.getTotalAvesDia());
+                totales.setDate(2, hoy);
+                totales.setString(3, costoOid);
+                totales.addBatch();
+            }
+            borrar.executeBatch();
+            totales.executeBatch();
+            int pendientes = 0;
+            for (RepartoCostos.Reparto reparto: repartos) {
+                BigDecimal total = BigDecimal.valueOf(reparto.getTotalAvesDia());
+                for (int i = 0; i < reparto.size(); i++) {
+                    long avesDia = reparto.getAvesDia().get(i);
+                    insertar.setString(1, GeneradorIdOrdenado.siguiente());
+                    insertar.setString(2, reparto.getCosto().getOid());
+                    insertar.setString(3, reparto.getLotes().get(i).getOid());
+                    insertar.setLong(4, avesDia);
+                    insertar.setBigDecimal(5, BigDecimal.valueOf(avesDia * 100).divide(total, 4, RoundingMode.HALF_UP));
+                    insertar.setBigDecimal(6, BigDecimal.valueOf(reparto.getCentimos().get(i), 2));
+                    insertar.addBatch();
+                    if (++pendientes == TAMANO_GRUPO) {
+                        insertar.executeBatch();
+                        pendientes = 0;
+                    }
+                }
+            }
+            if (pendientes > 0) insertar.executeBatch();
+        }
+    }
+
+    private static long centimos(BigDecimal importe) {
+        return importe.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // Días de vida de un lote dentro del reparto mientras se leen sus muertes
+    private static class Vida {
+
+        final long primerDia;
+        long aves;
+        final long[] muertos;
+
+        Vida(long primerDia, long finDia, long aves) {
+            this.primerDia = primerDia;
+            this.aves = aves;
+            this.muertos = new long[(int) (finDia - primerDia)];
+        }
+
+        void anotarMuertes(long dia, long cantidad) {
+            if (dia < primerDia) aves -= cantidad;
+            else if (dia - primerDia < muertos.length) muertos[(int) (dia - primerDia)] += cantidad;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.*;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import lombok.*;
+
+/**
+ * Mantiene los acumulados de WeightSample con los que salen las curvas de
+ * conversión alimenticia (FCR) y ganancia diaria (ADG) de cada lote.
+ *
+ * Cada pesaje guarda el alimento y las aves vivas del lote hasta su fecha, con
+ * las muertes de ese mismo día ya descontadas. Un pesaje nuevo parte del anterior
+ * y solo suma los eventos entre los dos; un evento nuevo suma su delta a los
+ * pesajes de su fecha en adelante con un único UPDATE. La ganancia diaria solo
+ * depende del pesaje anterior, así que al guardar o borrar uno se corrige el
+ * siguiente. Ningún caso recorre de nuevo la historia del lote; eso solo lo hace
+ * reconstruirRango.
+ */
+public class ServicioCurvasPeso {
+
+    private static final int TAMANO_GRUPO = 1000;
+
+    private static final String LOTE = "select cantidadInicial, fechaInicio from FarmBatch where oid = ?";
+
+    private static final String ANTERIOR =
+        "select fecha, alimentoAcumuladoKilogramos, avesVivas, pesoMedioGramos from WeightSample where lote_oid = ? and fecha < ?";
+
+    private static final String EVENTOS_HASTA =
+        "select coalesce(sum(kilogramosAlimento), 0), coalesce(sum(muertos), 0) from DailyEvent where lote_oid = ? and fecha <= ?";
+
+    private static final String SIGUIENTE =
+        "select oid, fecha, pesoMedioGramos from WeightSample where lote_oid = ? and fecha > ? order by fecha";
+
+    private static final String GANANCIA = "update WeightSample set gananciaDiariaGramos = ? where oid = ?";
+
+    private static final String SUMAR =
+        "update WeightSample set alimentoAcumuladoKilogramos = alimentoAcumuladoKilogramos + ?, avesVivas = avesVivas - ? " +
+        "where lote_oid = ? and fecha >= ?";
+
+    private static final String ACUMULADOS =
+        "update WeightSample set diasDesdeInicio = ?, alimentoAcumuladoKilogramos = ?, avesVivas = ?, gananciaDiariaGramos = ? where oid = ?";
+
+    /**
+     * Acumulados de un pesaje en su fecha.
+     */
+    @Getter @AllArgsConstructor
+    public static class Punto {
+        int diasDesdeInicio;
+        BigDecimal alimentoAcumuladoKilogramos;
+        long avesVivas;
+        // Null si es el primer pesaje del lote
+        BigDecimal gananciaDiariaGramos;
+    }
+
+    /**
+     * Calcula los acumulados de un pesaje a partir del anterior del lote.
+     *
+     * @param oid el del propio pesaje si ya está guardado, para no tomarlo como anterior
+     */
+    public static Punto calcular(Connection conexion, String loteOid, String oid, LocalDate fecha, BigDecimal pesoMedioGramos)
+            throws SQLException {
+        long cantidadInicial;
+        LocalDate fechaInicio;
+        try (PreparedStatement sentencia = conexion.prepareStatement(LOTE)) {
+            sentencia.setString(1, loteOid);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (!rs.next()) throw new IllegalArgumentException("No existe el lote " + loteOid);
+                cantidadInicial = rs.getLong(1);
+                fechaInicio = rs.getDate(2) == null ? null : rs.getDate(2).toLocalDate();
+            }
+        }
+        int dias = fechaInicio == null ? 0 : (int) ChronoUnit.DAYS.between(fechaInicio, fecha);
+
+        BigDecimal alimento = BigDecimal.ZERO;
+        long aves = cantidadInicial;
+        LocalDate fechaAnterior = null;
+        BigDecimal pesoAnterior = null;
+        try (PreparedStatement sentencia = conexion.prepareStatement(ANTERIOR + (oid == null ? "" : " and oid <> ?") + " order by fecha desc")) {
+            sentencia.setString(1, loteOid);
+            sentencia.setDate(2, Date.valueOf(fecha));
+            if (oid != null) sentencia.setString(3, oid);
+            sentencia.setMaxRows(1);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (rs.next()) {
+                    fechaAnterior = rs.getDate(1).toLocalDate();
+                    alimento = rs.getBigDecimal(2);
+                    aves = rs.getLong(3);
+                    pesoAnterior = rs.getBigDecimal(4);
+                }
+            }
+        }
+        try (PreparedStatement sentencia = conexion.prepareStatement(EVENTOS_HASTA + (fechaAnterior == null ? "" : " and fecha > ?"))) {
+            sentencia.setString(1, loteOid);
+            sentencia.setDate(2, Date.valueOf(fecha));
+            if (fechaAnterior != null) sentencia.setDate(3, Date.valueOf(fechaAnterior));
+            try (ResultSet rs = sentencia.executeQuery()) {
+                rs.next();
+                alimento = alimento.add(rs.getBigDecimal(1));
+                aves -= rs.getLong(2);
+            }
+        }
+        return new Punto(dias, alimento, aves, ganancia(pesoAnterior, fechaAnterior, pesoMedioGramos, fecha));
+    }
+
+    /**
+     * Vuelve a calcular la ganancia diaria del primer pesaje del lote posterior a
+     * fecha, después de guardar, mover o borrar el pesaje de esa fecha.
+     */
+    public static void actualizarSiguiente(Connection conexion, String loteOid, LocalDate fecha) throws SQLException {
+        String oid;
+        LocalDate fechaSiguiente;
+        BigDecimal peso;
+        try (PreparedStatement sentencia = conexion.prepareStatement(SIGUIENTE)) {
+            sentencia.setString(1, loteOid);
+            sentencia.setDate(2, Date.valueOf(fecha));
+            sentencia.setMaxRows(1);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (!rs.next()) return;
+                oid = rs.getString(1);
+                fechaSiguiente = rs.getDate(2).toLocalDate();
+                peso = rs.getBigDecimal(3);
+            }
+        }
+        BigDecimal ganancia = null;
+        try (PreparedStatement sentencia = conexion.prepareStatement(ANTERIOR + " order by fecha desc")) {
+            sentencia.setString(1, loteOid);
+            sentencia.setDate(2, Date.valueOf(fechaSiguiente));
+            sentencia.setMaxRows(1);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (rs.next()) ganancia = ganancia(rs.getBigDecimal(4), rs.getDate(1).toLocalDate(), peso, fechaSiguiente);
+            }
+        }
+        try (PreparedStatement sentencia = conexion.prepareStatement(GANANCIA)) {
+            sentencia.setBigDecimal(1, ganancia);
+            sentencia.setString(2, oid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    /**
+     * Suma a los pesajes del lote desde fecha el alimento y las muertes de un delta.
+     */
+    public static void aplicarDelta(Connection conexion, String loteOid, LocalDate fecha, DeltaKPI delta) throws SQLException {
+        if (fecha == null) return;
+        aplicarDeltas(conexion, Collections.singletonMap(loteOid, Collections.singletonMap(fecha, delta)));
+    }
+
+    /**
+     * Igual que aplicarDelta para varios lotes y fechas, en un solo lote de sentencias.
+     */
+    public static void aplicarDeltas(Connection conexion, Map<String, Map<LocalDate, DeltaKPI>> deltasPorLote) throws SQLException {
+        if (deltasPorLote.isEmpty()) return;
+        try (PreparedStatement sentencia = conexion.prepareStatement(SUMAR)) {
+            int pendientes = 0;
+            for (Map.Entry<String, Map<LocalDate, DeltaKPI>> lote: deltasPorLote.entrySet()) {
+                for (Map.Entry<LocalDate, DeltaKPI> delta: lote.getValue().entrySet()) {
+                    DeltaKPI valores = delta.getValue();
+                    if (valores.kilogramosAlimento.signum() == 0 && valores.muertos == 0) continue;
+                    sentencia.setBigDecimal(1, valores.kilogramosAlimento);
+                    sentencia.setLong(2, valores.muertos);
+                    sentencia.setString(3, lote.getKey());
+                    sentencia.setDate(4, Date.valueOf(delta.getKey()));
+                    sentencia.addBatch();
+                    if (++pendientes == TAMANO_GRUPO) {
+                        sentencia.executeBatch();
+                        pendientes = 0;
+                    }
+                }
+            }
+            if (pendientes > 0) sentencia.executeBatch();
+        }
+    }
+
+    /**
+     * Ajusta los pesajes de un lote al que se le ha cambiado la cantidad inicial de aves.
+     */
+    public static void cambiarCantidadInicial(Connection conexion, String loteOid, long diferencia) throws SQLException {
+        if (diferencia == 0) return;
+        try (PreparedStatement sentencia = conexion.prepareStatement("update WeightSample set avesVivas = avesVivas + ? where lote_oid = ?")) {
+            sentencia.setLong(1, diferencia);
+            sentencia.setString(2, loteOid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    /**
+     * Vuelve a calcular los días desde el inicio de los pesajes de un lote.
+     */
+    public static void cambiarFechaInicio(Connection conexion, String loteOid, LocalDate fechaInicio) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement("select oid, fecha from WeightSample where lote_oid = ?");
+             PreparedStatement actualizar = conexion.prepareStatement("update WeightSample set diasDesdeInicio = ? where oid = ?")) {
+            consulta.setString(1, loteOid);
+            try (ResultSet rs = consulta.executeQuery()) {
+                while (rs.next()) {
+                    actualizar.setInt(1, fechaInicio == null ? 0 : (int) ChronoUnit.DAYS.between(fechaInicio, rs.getDate(2).toLocalDate()));
+                    actualizar.setString(2, rs.getString(1));
+                    actualizar.addBatch();
+                }
+            }
+            actualizar.executeBatch();
+        }
+    }
+
+    /**
+     * Recalcula los acumulados de los pesajes de los lotes con oid en [desde, hasta)
+     * (hasta == null significa hasta el final), sin confirmar. Cruza los pesajes y
+     * los eventos agrupados por día, los dos ordenados por lote y fecha.
+     */
+    public static void reconstruirRango(Connection conexion, String desde, String hasta) throws SQLException {
+        try (PreparedStatement pesajes = conexion.prepareStatement(
+                 "select w.lote_oid, w.oid, w.fecha, w.pesoMedioGramos, f.cantidadInicial, f.fechaInicio " +
+                 "from WeightSample w join FarmBatch f on f.oid = w.lote_oid where " + ServicioStageKPI.rango("w.lote_oid", hasta) +
+                 " order by w.lote_oid, w.fecha");
+             PreparedStatement eventos = conexion.prepareStatement(
+                 "select e.lote_oid, e.fecha, coalesce(sum(e.kilogramosAlimento), 0), coalesce(sum(e.muertos), 0) from DailyEvent e " +
+                 "where " + ServicioStageKPI.rango("e.lote_oid", hasta) +
+                 " and exists (select 1 from WeightSample w where w.lote_oid = e.lote_oid) " +
+                 "group by e.lote_oid, e.fecha order by e.lote_oid, e.fecha");
+             PreparedStatement actualizar = conexion.prepareStatement(ACUMULADOS)) {
+            ServicioStageKPI.parametros(pesajes, desde, hasta);
+            ServicioStageKPI.parametros(eventos, desde, hasta);
+            pesajes.setFetchSize(TAMANO_GRUPO);
+            eventos.setFetchSize(TAMANO_GRUPO);
+            int filas = 0;
+            try (ResultSet rsPesajes = pesajes.executeQuery(); ResultSet rsEventos = eventos.executeQuery()) {
+                boolean hayEvento = rsEventos.next();
+                String lote = null;
+                BigDecimal alimento = null;
+                long aves = 0;
+                LocalDate fechaAnterior = null;
+                BigDecimal pesoAnterior = null;
+                while (rsPesajes.next()) {
+                    if (!rsPesajes.getString(1).equals(lote)) {
+                        lote = rsPesajes.getString(1);
+                        alimento = BigDecimal.ZERO;
+                        aves = rsPesajes.getLong(5);
+                        fechaAnterior = null;
+                        pesoAnterior = null;
+                        // Los oids son hexadecimales de ancho fijo: el orden de la base y el de compareTo coinciden
+                        while (hayEvento && rsEventos.getString(1).compareTo(lote) < 0) hayEvento = rsEventos.next();
+                    }
+                    LocalDate fecha = rsPesajes.getDate(3).toLocalDate();
+                    while (hayEvento && lote.equals(rsEventos.getString(1)) && !rsEventos.getDate(2).toLocalDate().isAfter(fecha)) {
+                        alimento = alimento.add(rsEventos.getBigDecimal(3));
+                        aves -= rsEventos.getLong(4);
+                        hayEvento = rsEventos.next();
+                    }
+                    BigDecimal peso = rsPesajes.getBigDecimal(4);
+                    Date fechaInicio = rsPesajes.getDate(6);
+                    actualizar.setInt(1, fechaInicio == null ? 0 : (int) ChronoUnit.DAYS.between(fechaInicio.toLocalDate(), fecha));
+                    actualizar.setBigDecimal(2, alimento);
+                    actualizar.setLong(3, aves);
+                    actualizar.setBigDecimal(4, ganancia(pesoAnterior, fechaAnterior, peso, fecha));
+                    actualizar.setString(5, rsPesajes.getString(2));
+                    actualizar.addBatch();
+                    if (++filas % TAMANO_GRUPO == 0) actualizar.executeBatch();
+                    fechaAnterior = fecha;
+                    pesoAnterior = peso;
+                }
+            }
+            if (filas % TAMANO_GRUPO != 0) actualizar.executeBatch();
+        }
+    }
+
+    /**
+     * Ganancia media diaria en gramos entre dos pesajes, o null sin pesaje anterior.
+     */
+    public static BigDecimal ganancia(BigDecimal pesoAnterior, LocalDate fechaAnterior, BigDecimal peso, LocalDate fecha) {
+        if (pesoAnterior == null || fechaAnterior == null || peso == null) return null;
+        long dias = ChronoUnit.DAYS.between(fechaAnterior, fecha);
+        if (dias <= 0) return null;
+        return peso.subtract(pesoAnterior).divide(BigDecimal.valueOf(dias), 2, RoundingMode.HALF_UP);
+    }
+}
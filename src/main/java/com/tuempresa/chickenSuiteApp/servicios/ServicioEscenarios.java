@@ -0,0 +1,224 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.*;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.modelo.*;
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+
+/**
+ * Ejecuta un escenario: cada raza con cada precio de venta y de alimento es una
+ * combinación. OptimizadorCosecha busca en una sola pasada el día de venta de
+ * mayor margen de todas las combinaciones, con la curva, la mortalidad y el
+ * consumo de HistoriaRazas, y después SimuladorProyeccion simula en paralelo
+ * cada combinación en ese día para obtener los percentiles del margen. Ninguna
+ * combinación consulta la base de datos.
+ */
+public class ServicioEscenarios {
+
+    private static final Log log = LogFactory.getLog(ServicioEscenarios.class);
+
+    public static final int DIAS_MAXIMOS_POR_DEFECTO = 120;
+    public static final int ENSAYOS_POR_DEFECTO = 10_000;
+
+    private static final int TAMANO_GRUPO = 1000;
+
+    private static final String BORRAR = "delete from ScenarioResult where escenario_oid = ?";
+
+    private static final String INSERTAR =
+        "insert into ScenarioResult (oid, escenario_oid, puesto, raza_oid, precioVentaPorKilogramo, precioAlimentoPorKilogramo, " +
+        "diasVenta, fechaVenta, avesVendidas, pesoMedioGramos, ingreso, costoTotal, margen, margenP5, margenP50, margenP95, " +
+        "probabilidadPerdidaPorcentaje) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Ejecuta un escenario gestionado por JPA, guarda su clasificación y deja el
+     * resumen en sus propiedades.
+     *
+     * @return combinaciones evaluadas; 0 si ninguna raza tiene curva de crecimiento
+     */
+    public static int ejecutar(Scenario escenario) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try {
+                HistoriaRazas historia = HistoriaRazas.get(conexion);
+                List<HistoriaRazas.Raza> razas = razas(escenario, historia);
+                double[] precios = valores(escenario.getPrecioMinimoPorKilogramo(), escenario.getPrecioMaximoPorKilogramo(),
+                    escenario.getPasosPrecio());
+                double[] preciosAlimento = escenario.getPrecioAlimentoMinimoPorKilogramo() == null ?
+                    new double[] {historia.getPrecioAlimento()} :
+                    valores(escenario.getPrecioAlimentoMinimoPorKilogramo(), escenario.getPrecioAlimentoMaximoPorKilogramo(),
+                        escenario.getPasosPrecioAlimento());
+
+                int n = razas.size() * precios.length * preciosAlimento.length;
+                Combinacion[] combinaciones = new Combinacion[n];
+                int i = 0;
+                for (HistoriaRazas.Raza raza: razas) {
+                    for (double precio: precios) {
+                        for (double precioAlimento: preciosAlimento) combinaciones[i++] = new Combinacion(raza, precio, precioAlimento);
+                    }
+                }
+                eliminarResultados(conexion, escenario.getOid());
+                if (n > 0) guardar(conexion, escenario, evaluar(escenario, historia, combinaciones));
+                conexion.commit();
+
+                escenario.setCombinaciones(n);
+                escenario.setMejorMargenP50(n == 0 ? null : dinero(combinaciones[0].margenP50));
+                escenario.setDuracionMilisegundos(System.currentTimeMillis() - inicio);
+                escenario.setFechaEjecucion(LocalDate.now());
+                log.info("Escenario " + escenario.getNombre() + ": " + n + " combinaciones en " +
+                    escenario.getDuracionMilisegundos() + " ms");
+                return n;
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    public static void eliminarResultados(Connection conexion, String escenarioOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(BORRAR)) {
+            sentencia.setString(1, escenarioOid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    // Razas elegidas, o las de la especie, que tengan curva con la que calcular el peso
+    private static List<HistoriaRazas.Raza> razas(Scenario escenario, HistoriaRazas historia) {
+        List<HistoriaRazas.Raza> razas = new ArrayList<>();
+        if (escenario.getRazas() != null && !escenario.getRazas().isEmpty()) {
+            for (Breed breed: escenario.getRazas()) {
+                HistoriaRazas.Raza raza = historia.getRaza(breed.getOid());
+                if (raza != null && raza.getCurva() != null) razas.add(raza);
+            }
+        }
+        else {
+            String especie = escenario.getEspecie() == null ? null : escenario.getEspecie().getOid();
+            for (HistoriaRazas.Raza raza: historia.getRazas()) {
+                if (raza.getCurva() != null && (especie == null || especie.equals(raza.getEspecieOid()))) razas.add(raza);
+            }
+        }
+        return razas;
+    }
+
+    // Combinaciones ordenadas de mayor a menor margenP50
+    private static Combinacion[] evaluar(Scenario escenario, HistoriaRazas historia, Combinacion[] combinaciones) {
+        int n = combinaciones.length;
+        int dias = escenario.getDiasMaximos() == null ? DIAS_MAXIMOS_POR_DEFECTO : escenario.getDiasMaximos();
+        int aves = escenario.getCantidadInicial();
+        double costoInicial = aves * valor(escenario.getCostoPorAve());
+
+        OptimizadorCosecha.Entradas entradas = new OptimizadorCosecha.Entradas(n);
+        for (int i = 0; i < n; i++) {
+            HistoriaRazas.Raza raza = combinaciones[i].raza;
+            // Mortalidad final media de la raza repartida por igual entre los días de su ciclo
+            int ciclo = raza.getDiasCrecimientoEstandar() > 0 ? raza.getDiasCrecimientoEstandar() : dias;
+            double mortalidadDiaria = 1 - Math.pow(1 - raza.getEstadisticas().getMortalidadMedia(), 1.0 / ciclo);
+            double consumo = Double.isNaN(raza.getConsumoRelativo()) ? historia.getConsumoRelativoGeneral() : raza.getConsumoRelativo();
+            entradas.poner(i, 0, aves, mortalidadDiaria, raza.getCurva(), 1, consumo, combinaciones[i].precioAlimento,
+                historia.getCostoAveDia(), costoInicial, combinaciones[i].precio);
+        }
+        OptimizadorCosecha.Resultado optimo = OptimizadorCosecha.optimizar(entradas, dias);
+
+        double desviacionPrecio = (escenario.getDesviacionPrecioPorcentaje() == null ?
+            ServicioSimulacion.DESVIACION_PRECIO_POR_DEFECTO : escenario.getDesviacionPrecioPorcentaje()).doubleValue() / 100;
+        int ensayos = escenario.getEnsayosSimulacion() == null ? ENSAYOS_POR_DEFECTO : escenario.getEnsayosSimulacion();
+        IntStream.range(0, n).parallel().forEach(i -> {
+            Combinacion combinacion = combinaciones[i];
+            int celda = optimo.celda(optimo.getMejorDia()[i], i);
+            combinacion.dia = optimo.getMejorDia()[i];
+            combinacion.aves = optimo.getAves()[celda];
+            combinacion.pesoMedioGramos = optimo.getPesoMedioGramos()[celda];
+            combinacion.ingreso = optimo.getIngreso()[celda];
+            combinacion.costo = costoInicial + optimo.getCostoAdicional()[celda];
+            combinacion.margen = optimo.getMargen()[celda];
+
+            ParametrosSimulacion parametros = new ParametrosSimulacion();
+            parametros.precioMedio = combinacion.precio;
+            parametros.precioDesviacion = combinacion.precio * desviacionPrecio;
+            parametros.pesoTotalKilogramos = aves * combinacion.pesoMedioGramos / 1000;
+            parametros.pesoDesviacionRelativa = ServicioSimulacion.DESVIACION_PESO_POR_DEFECTO.doubleValue() / 100;
+            parametros.costos = combinacion.costo;
+            parametros.mortalidadMedia = combinacion.raza.getEstadisticas().getMortalidadMedia();
+            parametros.mortalidadVarianza = combinacion.raza.getEstadisticas().getMortalidadVarianza();
+            parametros.ensayos = ensayos;
+            // Semilla fija por combinación: ejecutar dos veces el mismo escenario da la misma clasificación
+            parametros.semilla = i + 1;
+            ResultadoSimulacion resultado = SimuladorProyeccion.simular(parametros);
+            combinacion.margenP5 = resultado.getMargenP5();
+            combinacion.margenP50 = resultado.getMargenP50();
+            combinacion.margenP95 = resultado.getMargenP95();
+            combinacion.probabilidadPerdida = resultado.getProbabilidadPerdida();
+        });
+        Arrays.sort(combinaciones, (a, b) -> Double.compare(b.margenP50, a.margenP50));
+        return combinaciones;
+    }
+
+    private static void guardar(Connection conexion, Scenario escenario, Combinacion[] combinaciones) throws SQLException {
+        try (PreparedStatement insertar = conexion.prepareStatement(INSERTAR)) {
+            for (int i = 0; i < combinaciones.length; i++) {
+                Combinacion combinacion = combinaciones[i];
+                insertar.setString(1, GeneradorIdOrdenado.siguiente());
+                insertar.setString(2, escenario.getOid());
+                insertar.setInt(3, i + 1);
+                insertar.setString(4, combinacion.raza.getOid());
+                insertar.setBigDecimal(5, dinero(combinacion.precio));
+                insertar.setBigDecimal(6, dinero(combinacion.precioAlimento));
+                insertar.setInt(7, combinacion.dia);
+                insertar.setDate(8, Date.valueOf(escenario.getFechaInicio().plusDays(combinacion.dia)));
+                insertar.setLong(9, Math.round(combinacion.aves));
+                insertar.setBigDecimal(10, BigDecimal.valueOf(combinacion.pesoMedioGramos).setScale(1, RoundingMode.HALF_UP));
+                insertar.setBigDecimal(11, dinero(combinacion.ingreso));
+                insertar.setBigDecimal(12, dinero(combinacion.costo));
+                insertar.setBigDecimal(13, dinero(combinacion.margen));
+                insertar.setBigDecimal(14, dinero(combinacion.margenP5));
+                insertar.setBigDecimal(15, dinero(combinacion.margenP50));
+                insertar.setBigDecimal(16, dinero(combinacion.margenP95));
+                insertar.setBigDecimal(17, BigDecimal.valueOf(combinacion.probabilidadPerdida * 100).setScale(2, RoundingMode.HALF_UP));
+                insertar.addBatch();
+                if ((i + 1) % TAMANO_GRUPO == 0) insertar.executeBatch();
+            }
+            insertar.executeBatch();
+        }
+    }
+
+    // pasos valores igualmente espaciados de minimo a maximo, ambos incluidos
+    private static double[] valores(BigDecimal minimo, BigDecimal maximo, Integer pasos) {
+        double desde = valor(minimo);
+        if (maximo == null || pasos == null || pasos <= 1 || maximo.compareTo(minimo) == 0) return new double[] {desde};
+        double[] valores = new double[pasos];
+        double paso = (maximo.doubleValue() - desde) / (pasos - 1);
+        for (int i = 0; i < pasos; i++) valores[i] = desde + i * paso;
+        return valores;
+    }
+
+    private static double valor(BigDecimal numero) {
+        return numero == null ? 0 : numero.doubleValue();
+    }
+
+    private static BigDecimal dinero(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static class Combinacion {
+
+        final HistoriaRazas.Raza raza;
+        final double precio;
+        final double precioAlimento;
+        int dia;
+        double aves, pesoMedioGramos, ingreso, costo, margen;
+        double margenP5, margenP50, margenP95, probabilidadPerdida;
+
+        Combinacion(HistoriaRazas.Raza raza, double precio, double precioAlimento) {
+            this.raza = raza;
+            this.precio = precio;
+            this.precioAlimento = precioAlimento;
+        }
+    }
+}
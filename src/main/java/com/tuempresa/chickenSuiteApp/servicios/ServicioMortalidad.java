@@ -0,0 +1,147 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+
+/**
+ * Registro de mortalidad: inserta el DailyEvent MORTALIDAD y descuenta las aves
+ * de FarmBatch.cantidadVivaActual en la misma transacción.
+ *
+ * El descuento es un único UPDATE relativo (cantidadVivaActual - muertos) que
+ * además incrementa la versión del lote. Es el mismo para cualquier evento con
+ * muertos: EscritorEventos lo aplica a las importaciones y a la cola de ingesta, y
+ * DailyEventKPIListener a las altas, correcciones y borrados hechos por JPA, así
+ * que las aves vivas siempre cuadran con BatchKPI.totalMuertos. Varios registros simultáneos sobre el
+ * mismo lote no pierden ninguno, porque la base de datos aplica cada resta sobre
+ * el valor vigente, y una edición del lote por JPA que se cruce con ellos falla
+ * por @Version en lugar de sobrescribir la cantidad. Los fallos de serialización
+ * o interbloqueos (SQLState 40xxx) se reintentan con una espera aleatoria.
+ */
+public class ServicioMortalidad {
+
+    private static final Log log = LogFactory.getLog(ServicioMortalidad.class);
+
+    public static final int MAXIMO_INTENTOS = 10;
+
+    private static final String DESCONTAR =
+        "update FarmBatch set cantidadVivaActual = cantidadVivaActual - ?, version = version + 1 " +
+        "where oid = ? and cantidadVivaActual >= ?";
+
+    private static final String DEVOLVER =
+        "update FarmBatch set cantidadVivaActual = cantidadVivaActual + ?, version = version + 1 where oid = ?";
+
+    /**
+     * SQLState de un descuento rechazado porque el lote no existe o se quedaría
+     * con aves negativas; es el de una restricción CHECK incumplida.
+     */
+    public static final String AVES_INSUFICIENTES = "23514";
+
+    /**
+     * Registra la mortalidad con una conexión de la fuente de datos de la aplicación.
+     */
+    public static void registrar(RegistroEvento registro) throws SQLException {
+        registrar(FuenteDatos.getDataSource(), registro);
+    }
+
+    /**
+     * Registra la mortalidad en su propia transacción, reintentando si la base de
+     * datos la aborta por concurrencia.
+     *
+     * @throws IllegalArgumentException si el lote no existe o tiene menos aves vivas que las muertas indicadas
+     */
+    public static void registrar(DataSource fuente, RegistroEvento registro) throws SQLException {
+        for (int intento = 1; ; intento++) {
+            try (Connection conexion = fuente.getConnection()) {
+                conexion.setAutoCommit(false);
+                try {
+                    registrar(conexion, registro);
+                    conexion.commit();
+                    return;
+                }
+                catch (SQLException | RuntimeException ex) {
+                    conexion.rollback();
+                    if (!(ex instanceof SQLException) || !isReintentable((SQLException) ex) || intento == MAXIMO_INTENTOS) throw ex;
+                    log.debug("Registro de mortalidad en el lote " + registro.getLoteOid() + " abortado por concurrencia, intento " + intento);
+                }
+            }
+            esperar(intento);
+        }
+    }
+
+    /**
+     * Descuenta y anota el evento sobre una conexión abierta, sin confirmar.
+     */
+    public static void registrar(Connection conexion, RegistroEvento registro) throws SQLException {
+        if (registro.getTipo() != EventType.MORTALIDAD || registro.getMuertos() <= 0) {
+            throw new IllegalArgumentException("Solo se registran eventos MORTALIDAD con al menos un ave muerta");
+        }
+        try (EscritorEventos escritor = new EscritorEventos(conexion)) {
+            escritor.agregar(registro);
+            escritor.vaciar();
+        }
+        catch (SQLException ex) {
+            if (AVES_INSUFICIENTES.equals(ex.getSQLState())) throw new IllegalArgumentException(ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Descuenta muertos aves vivas del lote, o las devuelve si es negativo (al
+     * corregir o borrar un evento), en un único UPDATE relativo que incrementa la
+     * versión. Solo el descuento exige que queden aves suficientes; devolver aves
+     * a un lote que ya no existe no hace nada.
+     *
+     * @throws SQLIntegrityConstraintViolationException con SQLState AVES_INSUFICIENTES si el lote no existe o tiene menos aves vivas
+     */
+    public static void descontar(Connection conexion, String loteOid, long muertos) throws SQLException {
+        if (muertos == 0) return;
+        if (muertos < 0) {
+            try (PreparedStatement sentencia = conexion.prepareStatement(DEVOLVER)) {
+                sentencia.setLong(1, -muertos);
+                sentencia.setString(2, loteOid);
+                sentencia.executeUpdate();
+            }
+            return;
+        }
+        try (PreparedStatement sentencia = conexion.prepareStatement(DESCONTAR)) {
+            sentencia.setLong(1, muertos);
+            sentencia.setString(2, loteOid);
+            sentencia.setLong(3, muertos);
+            if (sentencia.executeUpdate() == 0) {
+                throw new SQLIntegrityConstraintViolationException(motivoRechazo(conexion, loteOid, muertos), AVES_INSUFICIENTES);
+            }
+        }
+    }
+
+    private static String motivoRechazo(Connection conexion, String loteOid, long muertos) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement("select cantidadVivaActual from FarmBatch where oid = ?")) {
+            sentencia.setString(1, loteOid);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (!rs.next()) return "El lote " + loteOid + " no existe";
+                return "El lote solo tiene " + rs.getInt(1) + " aves vivas, no se pueden registrar " + muertos + " muertas";
+            }
+        }
+    }
+
+    private static boolean isReintentable(SQLException ex) {
+        String estado = ex.getSQLState();
+        return ex instanceof SQLTransactionRollbackException || (estado != null && estado.startsWith("40"));
+    }
+
+    // Espera aleatoria creciente para que los reintentos no vuelvan a chocar a la vez
+    private static void esperar(int intento) throws SQLException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 1 << Math.min(intento, 7)));
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Registro de mortalidad interrumpido", ex);
+        }
+    }
+}
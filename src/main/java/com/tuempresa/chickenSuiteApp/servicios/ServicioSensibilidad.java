@@ -0,0 +1,192 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.*;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.enums.ProjectionInput;
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Prepara las entradas de AnalisisSensibilidad para las proyecciones y guarda, por
+ * proyección, una fila de ProjectionSensitivity por entrada ordenada por amplitud.
+ *
+ * La mortalidad final base es la mayor entre la ya ocurrida en el lote y la media
+ * de los lotes vendidos de su raza, la misma que sortea SimuladorProyeccion. Las
+ * demás entradas son las de la proyección. Cada entrada se mueve un
+ * sensibilidad.variacionPorcentaje arriba y abajo en sensibilidad.puntos valores.
+ */
+public class ServicioSensibilidad {
+
+    private static final Log log = LogFactory.getLog(ServicioSensibilidad.class);
+
+    private static final int TAMANO_GRUPO = 1000;
+
+    private static final ProjectionInput[] ENTRADAS = new ProjectionInput[AnalisisSensibilidad.ENTRADAS];
+
+    static {
+        ENTRADAS[AnalisisSensibilidad.PRECIO] = ProjectionInput.PRECIO_POR_KILOGRAMO;
+        ENTRADAS[AnalisisSensibilidad.COSTOS] = ProjectionInput.COSTOS;
+        ENTRADAS[AnalisisSensibilidad.PESO] = ProjectionInput.PESO_VIVO;
+        ENTRADAS[AnalisisSensibilidad.MORTALIDAD] = ProjectionInput.MORTALIDAD;
+    }
+
+    private static final String PROYECCIONES =
+        "select p.oid, p.precioEsperadoPorKilogramo, p.costosEstimados, p.pesoVivoEstimadoKilogramos, " +
+        "f.cantidadInicial, f.cantidadVivaActual, f.raza_oid " +
+        "from Projection p join FarmBatch f on f.oid = p.lote_oid";
+
+    private static final String BORRAR = "delete from ProjectionSensitivity where proyeccion_oid = ?";
+
+    private static final String INSERTAR =
+        "insert into ProjectionSensitivity (oid, proyeccion_oid, puesto, entrada, valorBase, valorMargenBajo, valorMargenAlto, " +
+        "margenBajo, margenAlto, impactoBajo, impactoAlto, amplitud) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String GUARDAR = "update Projection set fechaSensibilidad = ? where oid = ?";
+
+    /**
+     * Analiza todas las proyecciones en una sola pasada.
+     *
+     * @return proyecciones analizadas
+     */
+    public static int analizarTodas() throws SQLException {
+        return analizar(null);
+    }
+
+    /**
+     * Analiza una proyección.
+     *
+     * @param proyeccionOid null para todas las proyecciones
+     * @return proyecciones analizadas
+     */
+    public static int analizar(String proyeccionOid) throws SQLException {
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            try {
+                int proyecciones = analizar(conexion, proyeccionOid);
+                conexion.commit();
+                return proyecciones;
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    private static int analizar(Connection conexion, String proyeccionOid) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        double variacion = Configuracion.getInt("sensibilidad.variacionPorcentaje", 20) / 100.0;
+        int puntos = Configuracion.getInt("sensibilidad.puntos", 9);
+        Map<String, EstadisticasRaza> razas = EstadisticasRaza.todas(conexion);
+
+        List<String> oids = new ArrayList<>();
+        List<double[]> filas = new ArrayList<>();
+        try (PreparedStatement sentencia = conexion.prepareStatement(PROYECCIONES + (proyeccionOid == null ? "" : " where p.oid = ?"))) {
+            if (proyeccionOid != null) sentencia.setString(1, proyeccionOid);
+            sentencia.setFetchSize(TAMANO_GRUPO);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    int iniciales = rs.getInt(5);
+                    double actual = iniciales > 0 ? Math.max(0, 1 - (double) rs.getInt(6) / iniciales) : 0;
+                    double media = razas.getOrDefault(rs.getString(7), EstadisticasRaza.SIN_HISTORIA).getMortalidadMedia();
+                    oids.add(rs.getString(1));
+                    // Valores base en el orden de las entradas de AnalisisSensibilidad y la mortalidad ya ocurrida
+                    filas.add(new double[] {rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), Math.max(actual, media), actual});
+                }
+            }
+        }
+        if (oids.isEmpty()) return 0;
+
+        AnalisisSensibilidad.Entradas entradas = new AnalisisSensibilidad.Entradas(oids.size());
+        for (int i = 0; i < filas.size(); i++) {
+            double[] fila = filas.get(i);
+            entradas.poner(i, fila[0], fila[1], fila[2], fila[3], fila[4]);
+        }
+        long calculo = System.currentTimeMillis();
+        AnalisisSensibilidad.Resultado resultado = AnalisisSensibilidad.analizar(entradas, variacion, puntos);
+        calculo = System.currentTimeMillis() - calculo;
+        guardar(conexion, oids, filas, resultado);
+        log.info(oids.size() + " proyecciones analizadas en " + (System.currentTimeMillis() - inicio) + " ms (" +
+            calculo + " ms de cálculo)");
+        return oids.size();
+    }
+
+    public static void eliminar(Connection conexion, String proyeccionOid) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(BORRAR)) {
+            sentencia.setString(1, proyeccionOid);
+            sentencia.executeUpdate();
+        }
+    }
+
+    private static void guardar(Connection conexion, List<String> oids, List<double[]> filas,
+            AnalisisSensibilidad.Resultado resultado) throws SQLException {
+        Date hoy = Date.valueOf(LocalDate.now());
+        try (PreparedStatement borrar = conexion.prepareStatement(BORRAR);
+             PreparedStatement guardar = conexion.prepareStatement(GUARDAR)) {
+            int pendientes = 0;
+            for (String oid: oids) {
+                borrar.setString(1, oid);
+                borrar.addBatch();
+                guardar.setDate(1, hoy);
+                guardar.setString(2, oid);
+                guardar.addBatch();
+                if (++pendientes == TAMANO_GRUPO) {
+                    borrar.executeBatch();
+                    guardar.executeBatch();
+                    pendientes = 0;
+                }
+            }
+            if (pendientes > 0) {
+                borrar.executeBatch();
+                guardar.executeBatch();
+            }
+        }
+
+        double[] margenBajo = resultado.getMargenBajo(), margenAlto = resultado.getMargenAlto();
+        try (PreparedStatement insertar = conexion.prepareStatement(INSERTAR)) {
+            int pendientes = 0;
+            Integer[] orden = new Integer[AnalisisSensibilidad.ENTRADAS];
+            for (int i = 0; i < oids.size(); i++) {
+                int base = i * AnalisisSensibilidad.ENTRADAS;
+                double margenBase = resultado.getMargenBase()[i];
+                for (int entrada = 0; entrada < orden.length; entrada++) orden[entrada] = entrada;
+                Arrays.sort(orden, (a, b) -> Double.compare(margenAlto[base + b] - margenBajo[base + b],
+                    margenAlto[base + a] - margenBajo[base + a]));
+                for (int puesto = 0; puesto < orden.length; puesto++) {
+                    int celda = base + orden[puesto];
+                    insertar.setString(1, GeneradorIdOrdenado.siguiente());
+                    insertar.setString(2, oids.get(i));
+                    insertar.setInt(3, puesto + 1);
+                    insertar.setString(4, ENTRADAS[orden[puesto]].name());
+                    insertar.setBigDecimal(5, decimal(filas.get(i)[orden[puesto]]));
+                    insertar.setBigDecimal(6, decimal(resultado.getValorMargenBajo()[celda]));
+                    insertar.setBigDecimal(7, decimal(resultado.getValorMargenAlto()[celda]));
+                    insertar.setBigDecimal(8, dinero(margenBajo[celda]));
+                    insertar.setBigDecimal(9, dinero(margenAlto[celda]));
+                    insertar.setBigDecimal(10, dinero(margenBajo[celda] - margenBase));
+                    insertar.setBigDecimal(11, dinero(margenAlto[celda] - margenBase));
+                    insertar.setBigDecimal(12, dinero(margenAlto[celda] - margenBajo[celda]));
+                    insertar.addBatch();
+                    if (++pendientes == TAMANO_GRUPO) {
+                        insertar.executeBatch();
+                        pendientes = 0;
+                    }
+                }
+            }
+            if (pendientes > 0) insertar.executeBatch();
+        }
+    }
+
+    private static BigDecimal decimal(double valor) {
+        return BigDecimal.valueOf(valor).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal dinero(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,134 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.math.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.modelo.*;
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+
+/**
+ * Prepara los parámetros de SimuladorProyeccion a partir de una proyección y
+ * guarda el resultado en ella, de una en una o para todas las proyecciones.
+ */
+public class ServicioSimulacion {
+
+    private static final Log log = LogFactory.getLog(ServicioSimulacion.class);
+
+    public static final int ENSAYOS_POR_DEFECTO = 100_000;
+    public static final int ENSAYOS_MAXIMO = 5_000_000;
+    public static final BigDecimal DESVIACION_PRECIO_POR_DEFECTO = new BigDecimal("10");
+    public static final BigDecimal DESVIACION_PESO_POR_DEFECTO = new BigDecimal("8");
+
+    private static final int LOTE_ACTUALIZACIONES = 500;
+
+    private static final String PROYECCIONES =
+        "select p.oid, p.precioEsperadoPorKilogramo, p.costosEstimados, p.pesoVivoEstimadoKilogramos, " +
+        "p.desviacionPrecioPorcentaje, p.desviacionPesoPorcentaje, p.ensayosSimulacion, " +
+        "f.cantidadInicial, f.cantidadVivaActual, f.raza_oid " +
+        "from Projection p join FarmBatch f on f.oid = p.lote_oid";
+
+    private static final String GUARDAR =
+        "update Projection set margenP5 = ?, margenP50 = ?, margenP95 = ?, probabilidadPerdidaPorcentaje = ?, " +
+        "fechaSimulacion = ? where oid = ?";
+
+    /**
+     * Simula una proyección gestionada por JPA y deja el resultado en sus propiedades.
+     */
+    public static ResultadoSimulacion simular(Projection proyeccion) throws SQLException {
+        FarmBatch lote = proyeccion.getLote();
+        EstadisticasRaza raza;
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            raza = EstadisticasRaza.de(conexion, lote.getRaza().getOid());
+        }
+        ResultadoSimulacion resultado = SimuladorProyeccion.simular(parametros(
+            proyeccion.getPrecioEsperadoPorKilogramo(), proyeccion.getPesoVivoEstimadoKilogramos(), proyeccion.getCostosEstimados(),
+            proyeccion.getDesviacionPrecioPorcentaje(), proyeccion.getDesviacionPesoPorcentaje(), proyeccion.getEnsayosSimulacion(),
+            lote.getCantidadInicial(), lote.getCantidadVivaActual(), raza));
+        proyeccion.setMargenP5(dinero(resultado.getMargenP5()));
+        proyeccion.setMargenP50(dinero(resultado.getMargenP50()));
+        proyeccion.setMargenP95(dinero(resultado.getMargenP95()));
+        proyeccion.setProbabilidadPerdidaPorcentaje(porcentaje(resultado.getProbabilidadPerdida()));
+        proyeccion.setFechaSimulacion(LocalDate.now());
+        return resultado;
+    }
+
+    /**
+     * Simula todas las proyecciones. Cada simulación ya usa todos los núcleos, así
+     * que se recorren en secuencia y se guardan con actualizaciones JDBC por lotes.
+     *
+     * @return cantidad de proyecciones simuladas
+     */
+    public static int simularTodas() throws SQLException {
+        int simuladas = 0;
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            Map<String, EstadisticasRaza> razas = EstadisticasRaza.todas(conexion);
+            try (Statement consulta = conexion.createStatement();
+                 ResultSet rs = consulta.executeQuery(PROYECCIONES);
+                 PreparedStatement guardar = conexion.prepareStatement(GUARDAR)) {
+                Date hoy = Date.valueOf(LocalDate.now());
+                while (rs.next()) {
+                    EstadisticasRaza raza = razas.getOrDefault(rs.getString(10), EstadisticasRaza.SIN_HISTORIA);
+                    Integer ensayos = rs.getInt(7);
+                    if (rs.wasNull()) ensayos = null;
+                    ResultadoSimulacion resultado = SimuladorProyeccion.simular(parametros(
+                        rs.getBigDecimal(2), rs.getBigDecimal(4), rs.getBigDecimal(3),
+                        rs.getBigDecimal(5), rs.getBigDecimal(6), ensayos,
+                        rs.getInt(8), rs.getInt(9), raza));
+                    guardar.setBigDecimal(1, dinero(resultado.getMargenP5()));
+                    guardar.setBigDecimal(2, dinero(resultado.getMargenP50()));
+                    guardar.setBigDecimal(3, dinero(resultado.getMargenP95()));
+                    guardar.setBigDecimal(4, porcentaje(resultado.getProbabilidadPerdida()));
+                    guardar.setDate(5, hoy);
+                    guardar.setString(6, rs.getString(1));
+                    guardar.addBatch();
+                    if (++simuladas % LOTE_ACTUALIZACIONES == 0) guardar.executeBatch();
+                }
+                guardar.executeBatch();
+                conexion.commit();
+            }
+            catch (SQLException ex) {
+                conexion.rollback();
+                throw ex;
+            }
+        }
+        log.info("Simuladas " + simuladas + " proyecciones");
+        return simuladas;
+    }
+
+    static ParametrosSimulacion parametros(BigDecimal precio, BigDecimal pesoTotal, BigDecimal costos,
+            BigDecimal desviacionPrecioPorcentaje, BigDecimal desviacionPesoPorcentaje, Integer ensayos,
+            int cantidadInicial, int cantidadVivaActual, EstadisticasRaza raza) {
+        ParametrosSimulacion parametros = new ParametrosSimulacion();
+        parametros.precioMedio = valor(precio);
+        parametros.precioDesviacion = parametros.precioMedio * porcentaje(desviacionPrecioPorcentaje, DESVIACION_PRECIO_POR_DEFECTO);
+        parametros.pesoTotalKilogramos = valor(pesoTotal);
+        parametros.pesoDesviacionRelativa = porcentaje(desviacionPesoPorcentaje, DESVIACION_PESO_POR_DEFECTO);
+        parametros.costos = valor(costos);
+        parametros.mortalidadActual = cantidadInicial > 0 ? (double) (cantidadInicial - cantidadVivaActual) / cantidadInicial : 0;
+        parametros.mortalidadMedia = raza.getMortalidadMedia();
+        parametros.mortalidadVarianza = raza.getMortalidadVarianza();
+        parametros.ensayos = ensayos == null || ensayos <= 0 ? ENSAYOS_POR_DEFECTO : Math.min(ensayos, ENSAYOS_MAXIMO);
+        parametros.semilla = System.nanoTime();
+        return parametros;
+    }
+
+    private static double valor(BigDecimal numero) {
+        return numero == null ? 0 : numero.doubleValue();
+    }
+
+    private static double porcentaje(BigDecimal porcentaje, BigDecimal porDefecto) {
+        return (porcentaje == null ? porDefecto : porcentaje).doubleValue() / 100;
+    }
+
+    private static BigDecimal dinero(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal porcentaje(double fraccion) {
+        return BigDecimal.valueOf(fraccion * 100).setScale(2, RoundingMode.HALF_UP);
+    }
+}
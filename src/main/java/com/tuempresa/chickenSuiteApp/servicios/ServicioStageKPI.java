@@ -0,0 +1,334 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.enums.Stage;
+import com.tuempresa.chickenSuiteApp.persistencia.GeneradorIdOrdenado;
+
+/**
+ * Mantenimiento de StageKPI, los totales de cada lote por etapa.
+ *
+ * Un evento cuenta en la etapa activa en su fecha según HistorialEtapas. Al
+ * escribir eventos se suma el delta a esa etapa, y al anotar una transición los
+ * eventos del lote con fecha igual o posterior pasan de la etapa anterior a la
+ * nueva. Ninguno de los dos casos recorre el historial completo de eventos; eso
+ * solo lo hace reconstruirRango.
+ */
+public class ServicioStageKPI {
+
+    private static final Log log = LogFactory.getLog(ServicioStageKPI.class);
+
+    private static final int TAMANO_GRUPO = 1000;
+
+    private static final String SUMAR =
+        "update StageKPI set totalKilogramosAlimento = totalKilogramosAlimento + ?, totalMuertos = totalMuertos + ?, " +
+        "totalCosto = totalCosto + ?, cantidadEventos = cantidadEventos + ? where oid = ?";
+
+    private static final String INSERTAR =
+        "insert into StageKPI (oid, lote_oid, etapa, fechaEntrada, fechaSalida, totalKilogramosAlimento, totalMuertos, " +
+        "totalCosto, cantidadEventos) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ANOTAR_TRANSICION =
+        "insert into StageTransition (oid, lote_oid, etapaAnterior, etapaNueva, fecha, diasDesdeInicio, ejecucion, versionLote) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String CERRAR = "update StageKPI set fechaSalida = ? where oid = ?";
+    private static final String REABRIR = "update StageKPI set fechaSalida = null where oid = ?";
+
+    private static final String EVENTOS_DESDE =
+        "select coalesce(sum(kilogramosAlimento), 0), coalesce(sum(muertos), 0), coalesce(sum(costo), 0), count(oid) " +
+        "from DailyEvent where lote_oid = ? and fecha >= ?";
+
+    // Transiciones de una pasada de MotorEtapas, todas con la misma fecha
+    private static final String CERRAR_EJECUCION =
+        "update StageKPI set fechaSalida = ? where (lote_oid, etapa) in (" +
+        "select t.lote_oid, t.etapaAnterior from StageTransition t where t.ejecucion = ?)";
+    private static final String REABRIR_EJECUCION =
+        "update StageKPI set fechaSalida = null where (lote_oid, etapa) in (" +
+        "select t.lote_oid, t.etapaNueva from StageTransition t where t.ejecucion = ?)";
+    private static final String ABRIR_EJECUCION =
+        "insert into StageKPI (oid, lote_oid, etapa, fechaEntrada, totalKilogramosAlimento, totalMuertos, totalCosto, cantidadEventos) " +
+        "select t.lote_oid || ':' || t.etapaNueva, t.lote_oid, t.etapaNueva, t.fecha, 0, 0, 0, 0 " +
+        "from StageTransition t where t.ejecucion = ? " +
+        "and not exists (select 1 from StageKPI k where k.lote_oid = t.lote_oid and k.etapa = t.etapaNueva)";
+    private static final String EVENTOS_EJECUCION =
+        "select t.lote_oid, t.etapaAnterior, t.etapaNueva, coalesce(sum(e.kilogramosAlimento), 0), coalesce(sum(e.muertos), 0), " +
+        "coalesce(sum(e.costo), 0), count(e.oid) " +
+        "from StageTransition t join DailyEvent e on e.lote_oid = t.lote_oid and e.fecha >= t.fecha " +
+        "where t.ejecucion = ? group by t.lote_oid, t.etapaAnterior, t.etapaNueva";
+
+    public static String clave(String loteOid, Stage etapa) {
+        return loteOid + ":" + etapa.name();
+    }
+
+    /**
+     * Transición inicial y fila de su etapa para un lote recién creado.
+     */
+    public static void iniciar(Connection conexion, String loteOid, Stage etapa, LocalDate fecha, int versionLote) throws SQLException {
+        anotarTransicion(conexion, loteOid, null, etapa, fecha, 0, versionLote);
+        insertar(conexion, loteOid, etapa, fecha, null, new DeltaKPI());
+    }
+
+    /**
+     * Anota un cambio de etapa hecho fuera de MotorEtapas y pasa a la etapa nueva
+     * los eventos del lote desde fecha.
+     */
+    public static void cambiarEtapa(Connection conexion, String loteOid, Stage anterior, Stage nueva, LocalDate fecha,
+            int diasDesdeInicio, int versionLote) throws SQLException {
+        anotarTransicion(conexion, loteOid, anterior, nueva, fecha, diasDesdeInicio, versionLote);
+        try (PreparedStatement cerrar = conexion.prepareStatement(CERRAR);
+             PreparedStatement reabrir = conexion.prepareStatement(REABRIR)) {
+            cerrar.setDate(1, java.sql.Date.valueOf(fecha));
+            cerrar.setString(2, clave(loteOid, anterior));
+            cerrar.executeUpdate();
+            reabrir.setString(1, clave(loteOid, nueva));
+            if (reabrir.executeUpdate() == 0) insertar(conexion, loteOid, nueva, fecha, null, new DeltaKPI());
+        }
+        DeltaKPI eventos = new DeltaKPI();
+        try (PreparedStatement sentencia = conexion.prepareStatement(EVENTOS_DESDE)) {
+            sentencia.setString(1, loteOid);
+            sentencia.setDate(2, java.sql.Date.valueOf(fecha));
+            try (ResultSet rs = sentencia.executeQuery()) {
+                rs.next();
+                eventos.acumular(rs.getBigDecimal(1), rs.getLong(2), rs.getBigDecimal(3), rs.getLong(4), 1);
+            }
+        }
+        if (eventos.isVacio()) return;
+        Map<String, DeltaKPI> deltas = new HashMap<>();
+        mover(deltas, loteOid, anterior, nueva, eventos);
+        aplicar(conexion, deltas);
+    }
+
+    /**
+     * Actualiza StageKPI tras las transiciones que una pasada de MotorEtapas dejó
+     * anotadas con ejecucion: cierra las etapas que dejan, abre las nuevas y mueve
+     * los eventos posteriores a cada transición, todo con sentencias sobre el conjunto.
+     */
+    public static void registrarTransiciones(Connection conexion, String ejecucion, LocalDate fecha) throws SQLException {
+        try (PreparedStatement cerrar = conexion.prepareStatement(CERRAR_EJECUCION);
+             PreparedStatement reabrir = conexion.prepareStatement(REABRIR_EJECUCION);
+             PreparedStatement abrir = conexion.prepareStatement(ABRIR_EJECUCION)) {
+            cerrar.setDate(1, java.sql.Date.valueOf(fecha));
+            cerrar.setString(2, ejecucion);
+            cerrar.executeUpdate();
+            reabrir.setString(1, ejecucion);
+            reabrir.executeUpdate();
+            abrir.setString(1, ejecucion);
+            abrir.executeUpdate();
+        }
+        // Solo lotes con eventos en la fecha de la transición o después: normalmente los del mismo día
+        Map<String, DeltaKPI> deltas = new HashMap<>();
+        try (PreparedStatement sentencia = conexion.prepareStatement(EVENTOS_EJECUCION)) {
+            sentencia.setString(1, ejecucion);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    DeltaKPI eventos = new DeltaKPI();
+                    eventos.acumular(rs.getBigDecimal(4), rs.getLong(5), rs.getBigDecimal(6), rs.getLong(7), 1);
+                    mover(deltas, rs.getString(1), Stage.valueOf(rs.getString(2)), Stage.valueOf(rs.getString(3)), eventos);
+                }
+            }
+        }
+        aplicar(conexion, deltas);
+    }
+
+    private static void mover(Map<String, DeltaKPI> deltas, String loteOid, Stage anterior, Stage nueva, DeltaKPI eventos) {
+        deltas.computeIfAbsent(clave(loteOid, anterior), clave -> new DeltaKPI())
+            .acumular(eventos.kilogramosAlimento, eventos.muertos, eventos.costo, eventos.eventos, -1);
+        deltas.computeIfAbsent(clave(loteOid, nueva), clave -> new DeltaKPI()).acumular(eventos);
+    }
+
+    /**
+     * Suma los deltas de un lote por fecha a la etapa activa en cada fecha.
+     */
+    public static void aplicarDelta(Connection conexion, String loteOid, LocalDate fecha, DeltaKPI delta) throws SQLException {
+        if (delta.isVacio() || fecha == null) return;
+        aplicarDeltas(conexion, Collections.singletonMap(loteOid, Collections.singletonMap(fecha, delta)));
+    }
+
+    /**
+     * Igual que aplicarDelta para varios lotes y fechas; lee el historial de cada lote una sola vez.
+     */
+    public static void aplicarDeltas(Connection conexion, Map<String, Map<LocalDate, DeltaKPI>> deltasPorLote) throws SQLException {
+        if (deltasPorLote.isEmpty()) return;
+        Map<String, DeltaKPI> deltas = new HashMap<>();
+        try (PreparedStatement transiciones = conexion.prepareStatement(HistorialEtapas.TRANSICIONES)) {
+            for (Map.Entry<String, Map<LocalDate, DeltaKPI>> lote: deltasPorLote.entrySet()) {
+                HistorialEtapas historial = HistorialEtapas.leer(transiciones, lote.getKey());
+                if (historial.isVacio()) {
+                    // Lote anterior al historial de etapas: lo completa reconstruirRango
+                    log.debug("El lote " + lote.getKey() + " no tiene transiciones de etapa, sus eventos no se reparten por etapa");
+                    continue;
+                }
+                for (Map.Entry<LocalDate, DeltaKPI> delta: lote.getValue().entrySet()) {
+                    deltas.computeIfAbsent(clave(lote.getKey(), historial.etapaEn(delta.getKey())), clave -> new DeltaKPI())
+                        .acumular(delta.getValue());
+                }
+            }
+        }
+        aplicar(conexion, deltas);
+    }
+
+    // Deltas por clave de StageKPI; si falta la fila se crea sin fechas
+    private static void aplicar(Connection conexion, Map<String, DeltaKPI> deltas) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(SUMAR)) {
+            for (Map.Entry<String, DeltaKPI> delta: deltas.entrySet()) {
+                DeltaKPI valores = delta.getValue();
+                if (valores.isVacio()) continue;
+                sentencia.setBigDecimal(1, valores.kilogramosAlimento);
+                sentencia.setLong(2, valores.muertos);
+                sentencia.setBigDecimal(3, valores.costo);
+                sentencia.setLong(4, valores.eventos);
+                sentencia.setString(5, delta.getKey());
+                if (sentencia.executeUpdate() == 0) {
+                    int separador = delta.getKey().lastIndexOf(':');
+                    insertar(conexion, delta.getKey().substring(0, separador),
+                        Stage.valueOf(delta.getKey().substring(separador + 1)), null, null, valores);
+                }
+            }
+        }
+    }
+
+    public static void eliminar(Connection conexion, String loteOid) throws SQLException {
+        for (String sql: new String[] { "delete from StageKPI where lote_oid = ?", "delete from StageTransition where lote_oid = ?" }) {
+            try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+                sentencia.setString(1, loteOid);
+                sentencia.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Recalcula StageKPI de los lotes con oid en [desde, hasta) (hasta == null
+     * significa hasta el final) desde DailyEvent y StageTransition, sin confirmar.
+     *
+     * A los lotes sin ninguna transición, anteriores al historial de etapas, se les
+     * anota una inicial con su etapa actual en fechaInicio. Después se cruzan dos
+     * cursores ordenados por lote, el de transiciones y el de eventos agrupados por
+     * día, así que la memoria usada no depende de cuántos lotes haya en el rango.
+     */
+    public static void reconstruirRango(Connection conexion, String desde, String hasta) throws SQLException {
+        completarTransiciones(conexion, rango("f.oid", hasta), desde, hasta);
+        String filtro = rango("lote_oid", hasta);
+        try (PreparedStatement borrar = conexion.prepareStatement("delete from StageKPI where " + filtro)) {
+            parametros(borrar, desde, hasta);
+            borrar.executeUpdate();
+        }
+        try (PreparedStatement transiciones = conexion.prepareStatement(
+                 "select lote_oid, fecha, etapaNueva from StageTransition where " + filtro + " order by lote_oid, fecha, oid");
+             PreparedStatement eventos = conexion.prepareStatement(
+                 "select lote_oid, fecha, coalesce(sum(kilogramosAlimento), 0), coalesce(sum(muertos), 0), coalesce(sum(costo), 0), " +
+                 "count(oid) from DailyEvent where " + filtro + " group by lote_oid, fecha order by lote_oid, fecha");
+             PreparedStatement insertar = conexion.prepareStatement(INSERTAR)) {
+            parametros(transiciones, desde, hasta);
+            parametros(eventos, desde, hasta);
+            transiciones.setFetchSize(TAMANO_GRUPO);
+            eventos.setFetchSize(TAMANO_GRUPO);
+            int filas = 0;
+            try (ResultSet rsTransiciones = transiciones.executeQuery(); ResultSet rsEventos = eventos.executeQuery()) {
+                boolean hayTransicion = rsTransiciones.next(), hayEvento = rsEventos.next();
+                while (hayTransicion) {
+                    String lote = rsTransiciones.getString(1);
+                    HistorialEtapas historial = new HistorialEtapas();
+                    do {
+                        historial.agregar(rsTransiciones.getDate(2).toLocalDate(), Stage.valueOf(rsTransiciones.getString(3)));
+                        hayTransicion = rsTransiciones.next();
+                    } while (hayTransicion && lote.equals(rsTransiciones.getString(1)));
+
+                    // Los oids son hexadecimales de ancho fijo: el orden de la base y el de compareTo coinciden
+                    while (hayEvento && rsEventos.getString(1).compareTo(lote) < 0) hayEvento = rsEventos.next();
+                    Map<Stage, DeltaKPI> totales = new EnumMap<>(Stage.class);
+                    while (hayEvento && lote.equals(rsEventos.getString(1))) {
+                        totales.computeIfAbsent(historial.etapaEn(rsEventos.getDate(2).toLocalDate()), etapa -> new DeltaKPI())
+                            .acumular(rsEventos.getBigDecimal(3), rsEventos.getLong(4), rsEventos.getBigDecimal(5), rsEventos.getLong(6), 1);
+                        hayEvento = rsEventos.next();
+                    }
+                    for (Stage etapa: historial.getEtapas()) {
+                        DeltaKPI total = totales.getOrDefault(etapa, new DeltaKPI());
+                        valores(insertar, lote, etapa, historial.getFechaEntrada(etapa), historial.getFechaSalida(etapa), total);
+                        insertar.addBatch();
+                        if (++filas % TAMANO_GRUPO == 0) insertar.executeBatch();
+                    }
+                }
+            }
+            if (filas % TAMANO_GRUPO != 0) insertar.executeBatch();
+        }
+    }
+
+    // Transición inicial para los lotes del rango que no tienen ninguna
+    private static void completarTransiciones(Connection conexion, String filtro, String desde, String hasta) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement(
+                 "select f.oid, f.etapa, f.fechaInicio, f.version from FarmBatch f where " + filtro +
+                 " and not exists (select 1 from StageTransition t where t.lote_oid = f.oid)");
+             PreparedStatement anotar = conexion.prepareStatement(ANOTAR_TRANSICION)) {
+            parametros(consulta, desde, hasta);
+            consulta.setFetchSize(TAMANO_GRUPO);
+            int anotadas = 0;
+            try (ResultSet rs = consulta.executeQuery()) {
+                while (rs.next()) {
+                    java.sql.Date fechaInicio = rs.getDate(3);
+                    valoresTransicion(anotar, rs.getString(1), null, rs.getString(2) == null ? Stage.INCUBACION : Stage.valueOf(rs.getString(2)),
+                        fechaInicio == null ? LocalDate.now() : fechaInicio.toLocalDate(), 0, rs.getInt(4));
+                    anotar.addBatch();
+                    if (++anotadas % TAMANO_GRUPO == 0) anotar.executeBatch();
+                }
+            }
+            if (anotadas % TAMANO_GRUPO != 0) anotar.executeBatch();
+            if (anotadas > 0) log.info("Transición inicial anotada para " + anotadas + " lotes sin historial de etapas");
+        }
+    }
+
+    private static void anotarTransicion(Connection conexion, String loteOid, Stage anterior, Stage nueva, LocalDate fecha,
+            int diasDesdeInicio, int versionLote) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(ANOTAR_TRANSICION)) {
+            valoresTransicion(sentencia, loteOid, anterior, nueva, fecha, diasDesdeInicio, versionLote);
+            sentencia.executeUpdate();
+        }
+    }
+
+    private static void valoresTransicion(PreparedStatement sentencia, String loteOid, Stage anterior, Stage nueva, LocalDate fecha,
+            int diasDesdeInicio, int versionLote) throws SQLException {
+        sentencia.setString(1, GeneradorIdOrdenado.siguiente());
+        sentencia.setString(2, loteOid);
+        sentencia.setString(3, anterior == null ? null : anterior.name());
+        sentencia.setString(4, nueva.name());
+        sentencia.setDate(5, java.sql.Date.valueOf(fecha));
+        sentencia.setInt(6, diasDesdeInicio);
+        // Sin ejecucion: no la escribió una pasada de MotorEtapas
+        sentencia.setString(7, null);
+        sentencia.setInt(8, versionLote);
+    }
+
+    private static void insertar(Connection conexion, String loteOid, Stage etapa, LocalDate entrada, LocalDate salida,
+            DeltaKPI valores) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(INSERTAR)) {
+            valores(sentencia, loteOid, etapa, entrada, salida, valores);
+            sentencia.executeUpdate();
+        }
+    }
+
+    private static void valores(PreparedStatement sentencia, String loteOid, Stage etapa, LocalDate entrada, LocalDate salida,
+            DeltaKPI valores) throws SQLException {
+        sentencia.setString(1, clave(loteOid, etapa));
+        sentencia.setString(2, loteOid);
+        sentencia.setString(3, etapa.name());
+        sentencia.setDate(4, entrada == null ? null : java.sql.Date.valueOf(entrada));
+        sentencia.setDate(5, salida == null ? null : java.sql.Date.valueOf(salida));
+        sentencia.setBigDecimal(6, valores.kilogramosAlimento);
+        sentencia.setLong(7, valores.muertos);
+        sentencia.setBigDecimal(8, valores.costo);
+        sentencia.setLong(9, valores.eventos);
+    }
+
+    static String rango(String columna, String hasta) {
+        return hasta == null ? columna + " >= ?" : columna + " >= ? and " + columna + " < ?";
+    }
+
+    static void parametros(PreparedStatement sentencia, String desde, String hasta) throws SQLException {
+        sentencia.setString(1, desde);
+        if (hasta != null) sentencia.setString(2, hasta);
+    }
+}
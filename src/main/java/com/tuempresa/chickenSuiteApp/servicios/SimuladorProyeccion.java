@@ -0,0 +1,107 @@
+package com.tuempresa.chickenSuiteApp.servicios;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Simulación Monte Carlo del margen de una proyección.
+ *
+ * En cada ensayo se sortean el precio por kg (normal), el peso vivo final
+ * (normal relativa al estimado) y la mortalidad final del lote (Beta ajustada a
+ * la historia de la raza); las aves que aún mueran restan peso vendido. Los
+ * ensayos se reparten en tramos de un ForkJoinPool y cada tramo escribe sus
+ * márgenes en un único double[], sin objetos ni BigDecimal en el bucle.
+ */
+public class SimuladorProyeccion {
+
+    private static final int ENSAYOS_POR_TRAMO = 8192;
+
+    public static ResultadoSimulacion simular(ParametrosSimulacion parametros) {
+        int ensayos = parametros.ensayos;
+        double[] margenes = new double[ensayos];
+        ForkJoinPool.commonPool().invoke(new Tramo(parametros, margenes, 0, ensayos, new SplittableRandom(parametros.semilla)));
+
+        int perdidas = 0;
+        for (double margen: margenes) if (margen < 0) perdidas++;
+        Arrays.parallelSort(margenes);
+        return new ResultadoSimulacion(percentil(margenes, 0.05), percentil(margenes, 0.50), percentil(margenes, 0.95),
+            (double) perdidas / ensayos, ensayos);
+    }
+
+    private static double percentil(double[] ordenados, double fraccion) {
+        return ordenados[(int) Math.round(fraccion * (ordenados.length - 1))];
+    }
+
+    private static class Tramo extends RecursiveAction {
+
+        final ParametrosSimulacion p;
+        final double[] margenes;
+        final int desde, hasta;
+        final SplittableRandom aleatorio;
+
+        Tramo(ParametrosSimulacion p, double[] margenes, int desde, int hasta, SplittableRandom aleatorio) {
+            this.p = p;
+            this.margenes = margenes;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.aleatorio = aleatorio;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > ENSAYOS_POR_TRAMO) {
+                // split() antes de repartir: la misma semilla da siempre los mismos resultados
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new Tramo(p, margenes, desde, medio, aleatorio),
+                    new Tramo(p, margenes, medio, hasta, aleatorio.split()));
+                return;
+            }
+            double alfa = 0, beta = 0;
+            double m = p.mortalidadMedia, v = p.mortalidadVarianza;
+            if (v > 0 && v < m * (1 - m)) {
+                double k = m * (1 - m) / v - 1;
+                alfa = m * k;
+                beta = (1 - m) * k;
+            }
+            double vivas = 1 - p.mortalidadActual;
+            for (int i = desde; i < hasta; i++) {
+                double precio = Math.max(0, p.precioMedio + p.precioDesviacion * normal(aleatorio));
+                double peso = p.pesoTotalKilogramos * Math.max(0, 1 + p.pesoDesviacionRelativa * normal(aleatorio));
+                double mortalidadFinal = alfa > 0 ? beta(aleatorio, alfa, beta) : m;
+                double restante = vivas > 0 ? Math.max(0, mortalidadFinal - p.mortalidadActual) / vivas : 0;
+                margenes[i] = peso * (1 - restante) * precio - p.costos;
+            }
+        }
+    }
+
+    // Box-Muller
+    static double normal(SplittableRandom aleatorio) {
+        double u = 1 - aleatorio.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * aleatorio.nextDouble());
+    }
+
+    static double beta(SplittableRandom aleatorio, double alfa, double beta) {
+        double x = gamma(aleatorio, alfa);
+        double y = gamma(aleatorio, beta);
+        return x / (x + y);
+    }
+
+    // Marsaglia y Tsang; para forma < 1 se usa gamma(forma + 1) * U^(1/forma)
+    static double gamma(SplittableRandom aleatorio, double forma) {
+        if (forma < 1) {
+            return gamma(aleatorio, forma + 1) * Math.pow(1 - aleatorio.nextDouble(), 1 / forma);
+        }
+        double d = forma - 1.0 / 3, c = 1 / Math.sqrt(9 * d);
+        while (true) {
+            double x, v;
+            do {
+                x = normal(aleatorio);
+                v = 1 + c * x;
+            } while (v <= 0);
+            v = v * v * v;
+            double u = aleatorio.nextDouble();
+            if (u < 1 - 0.0331 * x * x * x * x) return d * v;
+            if (Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) return d * v;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.tuempresa.chickenSuiteApp.util;
+
+import java.io.*;
+import java.util.Properties;
+
+import org.apache.commons.logging.*;
+
+/**
+ * Ajustes propios de la aplicación, leídos de chickenSuiteApp.properties en el
+ * classpath. Una propiedad de sistema con el mismo nombre (-Dclave=valor) tiene
+ * prioridad sobre el archivo.
+ */
+public class Configuracion {
+
+    private static final Log log = LogFactory.getLog(Configuracion.class);
+
+    private static final String ARCHIVO = "chickenSuiteApp.properties";
+
+    private static Properties propiedades;
+
+    public static String get(String clave, String porDefecto) {
+        String valor = System.getProperty(clave);
+        if (valor == null) valor = getPropiedades().getProperty(clave);
+        return valor == null || valor.trim().isEmpty() ? porDefecto : valor.trim();
+    }
+
+    public static int getInt(String clave, int porDefecto) {
+        String valor = get(clave, null);
+        if (valor == null) return porDefecto;
+        try {
+            return Integer.parseInt(valor);
+        }
+        catch (NumberFormatException ex) {
+            log.warn("Valor no numérico para " + clave + ": " + valor + ", se usa " + porDefecto);
+            return porDefecto;
+        }
+    }
+
+    public static boolean getBoolean(String clave, boolean porDefecto) {
+        String valor = get(clave, null);
+        return valor == null ? porDefecto : Boolean.parseBoolean(valor);
+    }
+
+    private static synchronized Properties getPropiedades() {
+        if (propiedades == null) {
+            propiedades = new Properties();
+            try (InputStream entrada = Configuracion.class.getClassLoader().getResourceAsStream(ARCHIVO)) {
+                if (entrada != null) propiedades.load(entrada);
+            }
+            catch (IOException ex) {
+                log.warn("No se pudo leer " + ARCHIVO + ", se usan los valores por defecto", ex);
+            }
+        }
+        return propiedades;
+    }
+}
@@ -0,0 +1,42 @@
+package com.tuempresa.chickenSuiteApp.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Aritmética en coma fija sobre long para las propiedades calculadas que OpenXava
+ * evalúa en cada fila de las listas. Los valores se llevan como enteros en
+ * centésimas y solo se crea un BigDecimal al final, con BigDecimal.valueOf(long, 2),
+ * que no parsea texto ni pasa por BigInteger.
+ *
+ * Redondea igual que RoundingMode.HALF_UP, así que los resultados son idénticos
+ * (valor y escala) a los de la versión con BigDecimal.
+ */
+public final class PuntoFijo {
+
+    public static final int ESCALA = 2;
+
+    private static final long UNIDAD = 100;
+
+    private PuntoFijo() {
+    }
+
+    /**
+     * parte * 100 / total con 2 decimales; cero si total no es positivo.
+     */
+    public static BigDecimal porcentaje(long parte, long total) {
+        if (total <= 0) return BigDecimal.ZERO;
+        return BigDecimal.valueOf(dividirRedondeando(parte * 100 * UNIDAD, total), ESCALA);
+    }
+
+    /**
+     * División entera redondeando la mitad hacia fuera del cero (HALF_UP).
+     */
+    public static long dividirRedondeando(long dividendo, long divisor) {
+        long cociente = dividendo / divisor;
+        long resto = Math.abs(dividendo % divisor);
+        if (resto >= Math.abs(divisor) - resto) {
+            cociente += (dividendo ^ divisor) < 0 ? -1 : 1;
+        }
+        return cociente;
+    }
+}
@@ -0,0 +1,55 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.io.*;
+import java.sql.Connection;
+import java.util.List;
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+import com.tuempresa.chickenSuiteApp.servicios.BuscadorLotes;
+
+/**
+ * Sugerencias para el editor LoteBusqueda: GET /buscarLotes?prefijo=L-12[&todos=true].
+ * Responde [{"value": oid, "label": codigo}, ...] con los lotes no vendidos,
+ * o con todos si se pide todos=true.
+ */
+public class BuscarLotesServlet extends HttpServlet {
+
+    private static final Log log = LogFactory.getLog(BuscarLotesServlet.class);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("xava.user") == null) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        boolean todos = "true".equals(request.getParameter("todos"));
+        List<String[]> lotes;
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            lotes = BuscadorLotes.buscar(conexion, request.getParameter("prefijo"), BuscadorLotes.LIMITE_POR_DEFECTO, todos);
+        }
+        catch (Exception ex) {
+            log.error("No se pudieron buscar lotes", ex);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        PrintWriter out = response.getWriter();
+        out.print('[');
+        for (int i = 0; i < lotes.size(); i++) {
+            if (i > 0) out.print(',');
+            out.print("{\"value\":");
+            out.print(Json.texto(lotes.get(i)[0]));
+            out.print(",\"label\":");
+            out.print(Json.texto(lotes.get(i)[1]));
+            out.print('}');
+        }
+        out.print(']');
+    }
+}
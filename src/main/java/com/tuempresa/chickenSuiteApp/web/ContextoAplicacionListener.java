@@ -0,0 +1,45 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import javax.servlet.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Arranca y detiene con la aplicación los procesos en segundo plano.
+ */
+public class ContextoAplicacionListener implements ServletContextListener {
+
+    private static final Log log = LogFactory.getLog(ContextoAplicacionListener.class);
+
+    public void contextInitialized(ServletContextEvent evento) {
+        try {
+            ColaIngestaEventos.iniciar();
+        }
+        catch (Exception ex) {
+            // Sin cola las altas de eventos siguen yendo directas por JPA
+            log.error("No se pudo iniciar la cola de ingesta de eventos", ex);
+        }
+        MotorEtapas.iniciar();
+        AjusteCurvasCrecimiento.iniciar();
+    }
+
+    public void contextDestroyed(ServletContextEvent evento) {
+        AjusteCurvasCrecimiento.detener();
+        MotorEtapas.detener();
+        try {
+            ColaIngestaEventos.detener();
+        }
+        catch (Exception ex) {
+            log.error("No se pudo detener la cola de ingesta de eventos; lo pendiente se reenviará al arrancar", ex);
+        }
+        try {
+            FuenteDatos.cerrar();
+        }
+        catch (RuntimeException ex) {
+            log.warn("No se pudo cerrar el pool de conexiones", ex);
+        }
+    }
+}
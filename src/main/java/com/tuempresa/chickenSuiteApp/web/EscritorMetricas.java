@@ -0,0 +1,72 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.io.PrintWriter;
+
+/**
+ * Escribe métricas en el formato de texto de Prometheus (versión 0.0.4): una
+ * cabecera # HELP / # TYPE por métrica y una línea por serie.
+ */
+public class EscritorMetricas {
+
+    public static final String TIPO_CONTENIDO = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PrintWriter out;
+
+    public EscritorMetricas(PrintWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * @param tipo counter, gauge, histogram o summary
+     */
+    public void cabecera(String nombre, String tipo, String ayuda) {
+        out.print("# HELP ");
+        out.print(nombre);
+        out.print(' ');
+        out.print(ayuda.replace("\\", "\\\\").replace("\n", "\\n"));
+        out.print('\n');
+        out.print("# TYPE ");
+        out.print(nombre);
+        out.print(' ');
+        out.print(tipo);
+        out.print('\n');
+    }
+
+    /**
+     * Una serie de la métrica.
+     *
+     * @param etiquetas pares nombre, valor
+     */
+    public void valor(String nombre, double valor, String... etiquetas) {
+        out.print(nombre);
+        if (etiquetas.length > 0) {
+            out.print('{');
+            for (int i = 0; i < etiquetas.length; i += 2) {
+                if (i > 0) out.print(',');
+                out.print(etiquetas[i]);
+                out.print("=\"");
+                out.print(etiquetas[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+                out.print('"');
+            }
+            out.print('}');
+        }
+        out.print(' ');
+        out.print(numero(valor));
+        out.print('\n');
+    }
+
+    /**
+     * Una métrica de una sola serie sin etiquetas.
+     */
+    public void metrica(String nombre, String tipo, String ayuda, double valor) {
+        cabecera(nombre, tipo, ayuda);
+        valor(nombre, valor);
+    }
+
+    static String numero(double valor) {
+        if (Double.isNaN(valor)) return "NaN";
+        if (Double.isInfinite(valor)) return valor > 0 ? "+Inf" : "-Inf";
+        if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) return Long.toString((long) valor);
+        return Double.toString(valor);
+    }
+}
@@ -0,0 +1,74 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.io.*;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.*;
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import org.apache.commons.logging.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.FuenteDatos;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+
+/**
+ * Páginas de la colección de eventos de un lote para el editor EventosPaginados:
+ * GET /eventosLote?lote=oid[&fecha=aaaa-mm-dd&oid=oid de la última fila mostrada].
+ * Responde {"filas": [...], "fin": true|false} con los valores ya formateados.
+ */
+public class EventosLoteServlet extends HttpServlet {
+
+    private static final Log log = LogFactory.getLog(EventosLoteServlet.class);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("xava.user") == null) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        String lote = request.getParameter("lote");
+        String fecha = request.getParameter("fecha");
+        LocalDate despuesFecha;
+        try {
+            despuesFecha = fecha == null || fecha.isEmpty() ? null : LocalDate.parse(fecha);
+        }
+        catch (RuntimeException ex) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (lote == null || lote.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        List<FilaEvento> filas;
+        try (Connection conexion = FuenteDatos.getConexion()) {
+            filas = PaginadorEventos.pagina(conexion, lote, despuesFecha, request.getParameter("oid"), PaginadorEventos.TAMANO_PAGINA);
+        }
+        catch (Exception ex) {
+            log.error("No se pudieron leer los eventos del lote " + lote, ex);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        Locale locale = request.getLocale();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        PrintWriter out = response.getWriter();
+        out.print("{\"filas\":[");
+        for (int i = 0; i < filas.size(); i++) {
+            FilaEvento fila = filas.get(i);
+            if (i > 0) out.print(',');
+            out.print("{\"oid\":" + Json.texto(fila.getOid()));
+            out.print(",\"clave\":" + Json.texto(fila.getFecha().toString()));
+            out.print(",\"fecha\":" + Json.texto(FormatoEventos.fecha(fila.getFecha(), locale)));
+            out.print(",\"tipo\":" + Json.texto(FormatoEventos.tipo(fila.getTipo(), locale)));
+            out.print(",\"kilogramosAlimento\":" + Json.texto(FormatoEventos.numero(fila.getKilogramosAlimento(), locale)));
+            out.print(",\"muertos\":" + Json.texto(FormatoEventos.numero(fila.getMuertos(), locale)));
+            out.print(",\"costo\":" + Json.texto(FormatoEventos.numero(fila.getCosto(), locale)));
+            out.print('}');
+        }
+        out.print("],\"fin\":" + (filas.size() < PaginadorEventos.TAMANO_PAGINA) + "}");
+    }
+}
@@ -0,0 +1,38 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.time.LocalDate;
+import java.time.format.*;
+import java.util.Locale;
+
+import org.openxava.util.Labels;
+
+import com.tuempresa.chickenSuiteApp.enums.EventType;
+
+/**
+ * Formato de los valores de la colección de eventos paginada, para que el
+ * editor y el servlet muestren lo mismo.
+ */
+public class FormatoEventos {
+
+    public static String fecha(LocalDate fecha, Locale locale) {
+        return fecha == null ? "" : DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(locale).format(fecha);
+    }
+
+    public static String tipo(EventType tipo, Locale locale) {
+        return tipo == null ? "" : Labels.get(tipo.name(), locale);
+    }
+
+    public static String numero(BigDecimal numero, Locale locale) {
+        if (numero == null) return "";
+        NumberFormat formato = NumberFormat.getNumberInstance(locale);
+        formato.setMinimumFractionDigits(2);
+        formato.setMaximumFractionDigits(3);
+        return formato.format(numero);
+    }
+
+    public static String numero(long numero, Locale locale) {
+        return NumberFormat.getIntegerInstance(locale).format(numero);
+    }
+}
@@ -0,0 +1,82 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.io.*;
+import java.util.List;
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.MonitorConsultas;
+
+/**
+ * Informe de MonitorConsultas: GET /informeConsultas muestra, por módulo, las
+ * sentencias por petición y las formas que más se repiten (posibles N+1) o que
+ * han sido lentas. GET tiene el mismo acceso que /metricas; POST lo pone a
+ * cero, para medir de nuevo tras un cambio, y solo lo acepta de un usuario con
+ * sesión.
+ */
+public class InformeConsultasServlet extends HttpServlet {
+
+    // Formas que se muestran de cada módulo
+    private static final int FORMAS_POR_MODULO = 10;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (!MetricasServlet.autorizado(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        response.setContentType("text/html");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        PrintWriter out = response.getWriter();
+        out.println("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Sentencias por módulo</title>");
+        out.println("<style>body{font-family:sans-serif;font-size:13px} table{border-collapse:collapse;margin-bottom:16px}" +
+            " td,th{border:1px solid #ccc;padding:3px 6px;text-align:right;vertical-align:top} td.sql{text-align:left;" +
+            "font-family:monospace;max-width:900px;word-break:break-all}</style></head><body>");
+        out.println("<h2>Sentencias por módulo</h2>");
+        if (!MonitorConsultas.isActivo()) {
+            out.println("<p>La vigilancia de sentencias está desactivada (consultas.activo=false).</p></body></html>");
+            return;
+        }
+        out.println("<p>Una forma se cuenta como posible N+1 si se repite " + MonitorConsultas.getUmbralRepeticiones() +
+            " veces o más en una petición.</p>");
+        out.println("<form method=\"post\"><button type=\"submit\">Poner a cero</button></form>");
+        List<MonitorConsultas.ResumenModulo> resumenes = MonitorConsultas.getResumenes();
+        if (resumenes.isEmpty()) out.println("<p>Aún no hay peticiones con sentencias.</p>");
+        for (MonitorConsultas.ResumenModulo resumen: resumenes) {
+            out.println("<h3>" + html(resumen.getModulo()) + "</h3>");
+            out.println("<table><tr><th>Peticiones</th><th>Sentencias</th><th>Sentencias por petición</th>" +
+                "<th>Máximo por petición</th><th>Segundos en base de datos</th><th>Peticiones con N+1</th></tr>");
+            out.println("<tr><td>" + resumen.getPeticiones() + "</td><td>" + resumen.getSentencias() + "</td><td>" +
+                String.format("%.1f", (double) resumen.getSentencias() / Math.max(resumen.getPeticiones(), 1)) + "</td><td>" +
+                resumen.getMaximoSentencias() + "</td><td>" + String.format("%.3f", resumen.getSegundos()) + "</td><td>" +
+                resumen.getPeticionesConRepeticiones() + "</td></tr></table>");
+            List<MonitorConsultas.Forma> formas = resumen.getFormas();
+            if (formas.isEmpty()) continue;
+            out.println("<table><tr><th>Peticiones con N+1</th><th>Repeticiones</th><th>Máximo en una petición</th>" +
+                "<th>Lentas</th><th>Más lenta (ms)</th><th>SQL</th></tr>");
+            for (MonitorConsultas.Forma forma: formas.subList(0, Math.min(FORMAS_POR_MODULO, formas.size()))) {
+                out.println("<tr><td>" + forma.getPeticiones() + "</td><td>" + forma.getRepeticiones() + "</td><td>" +
+                    forma.getMaximoRepeticiones() + "</td><td>" + forma.getLentas() + "</td><td>" +
+                    String.format("%.0f", forma.getMaximoMilisegundos()) + "</td><td class=\"sql\">" + html(forma.getSql()) +
+                    "</td></tr>");
+            }
+            out.println("</table>");
+        }
+        out.println("</body></html>");
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (!MetricasServlet.conSesion(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        MonitorConsultas.reiniciar();
+        response.sendRedirect(request.getRequestURI());
+    }
+
+    private static String html(String texto) {
+        return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
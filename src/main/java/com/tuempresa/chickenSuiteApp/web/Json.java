@@ -0,0 +1,32 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+/**
+ * Utilidades mínimas para escribir respuestas JSON a mano desde los servlets.
+ */
+public class Json {
+
+    /**
+     * El texto entre comillas y con los caracteres especiales escapados.
+     */
+    public static String texto(String valor) {
+        if (valor == null) return "null";
+        StringBuilder resultado = new StringBuilder(valor.length() + 2);
+        resultado.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"': resultado.append("\\\""); break;
+                case '\\': resultado.append("\\\\"); break;
+                case '\n': resultado.append("\\n"); break;
+                case '\r': resultado.append("\\r"); break;
+                case '\t': resultado.append("\\t"); break;
+                case '<': resultado.append("\\u003c"); break;
+                default:
+                    if (c < 0x20) resultado.append(String.format("\\u%04x", (int) c));
+                    else resultado.append(c);
+            }
+        }
+        resultado.append('"');
+        return resultado.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramas de la duración de las peticiones por módulo de OpenXava y tipo
+ * (página o llamada AJAX), que llena MetricasFiltro y publica MetricasServlet.
+ *
+ * Los contadores son LongAdder para que las peticiones simultáneas no compitan
+ * por la misma variable.
+ */
+public class LatenciaModulos {
+
+    public static final String NOMBRE = "chickensuite_http_request_duration_seconds";
+
+    // Límites de los intervalos en segundos, los de los clientes de Prometheus por defecto
+    static final double[] LIMITES = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    // Con más módulos distintos el resto se agrupa en OTRO, para que una URL inventada no cree series sin fin
+    static final int MAXIMO_MODULOS = 100;
+    static final String OTRO = "otro";
+
+    private static final ConcurrentMap<String, Histograma> histogramas = new ConcurrentHashMap<>();
+
+    static class Histograma {
+        final String modulo;
+        final String tipo;
+        // Peticiones por intervalo, no acumuladas; la última posición es la de más de 10 s
+        final LongAdder[] intervalos = new LongAdder[LIMITES.length + 1];
+        final LongAdder nanosegundos = new LongAdder();
+
+        Histograma(String modulo, String tipo) {
+            this.modulo = modulo;
+            this.tipo = tipo;
+            for (int i = 0; i < intervalos.length; i++) intervalos[i] = new LongAdder();
+        }
+
+        void registrar(long duracion) {
+            double segundos = duracion / 1e9;
+            int i = 0;
+            while (i < LIMITES.length && segundos > LIMITES[i]) i++;
+            intervalos[i].increment();
+            nanosegundos.add(duracion);
+        }
+    }
+
+    public static void registrar(String modulo, String tipo, long nanosegundos) {
+        String clave = modulo + '|' + tipo;
+        Histograma histograma = histogramas.get(clave);
+        if (histograma == null) {
+            if (histogramas.size() >= MAXIMO_MODULOS) {
+                modulo = OTRO;
+                clave = modulo + '|' + tipo;
+            }
+            String m = modulo;
+            histograma = histogramas.computeIfAbsent(clave, c -> new Histograma(m, tipo));
+        }
+        histograma.registrar(nanosegundos);
+    }
+
+    public static void escribir(EscritorMetricas escritor) {
+        escritor.cabecera(NOMBRE, "histogram", "Duración de las peticiones por módulo de OpenXava");
+        List<Histograma> ordenados = new ArrayList<>(histogramas.values());
+        ordenados.sort(Comparator.comparing((Histograma h) -> h.modulo).thenComparing(h -> h.tipo));
+        for (Histograma histograma: ordenados) {
+            long acumuladas = 0;
+            for (int i = 0; i < LIMITES.length; i++) {
+                acumuladas += histograma.intervalos[i].sum();
+                escritor.valor(NOMBRE + "_bucket", acumuladas, "module", histograma.modulo, "type", histograma.tipo,
+                    "le", EscritorMetricas.numero(LIMITES[i]));
+            }
+            acumuladas += histograma.intervalos[LIMITES.length].sum();
+            escritor.valor(NOMBRE + "_bucket", acumuladas, "module", histograma.modulo, "type", histograma.tipo, "le", "+Inf");
+            escritor.valor(NOMBRE + "_sum", histograma.nanosegundos.sum() / 1e9, "module", histograma.modulo, "type", histograma.tipo);
+            escritor.valor(NOMBRE + "_count", acumuladas, "module", histograma.modulo, "type", histograma.tipo);
+        }
+    }
+}
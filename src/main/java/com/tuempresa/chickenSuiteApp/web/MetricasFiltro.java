@@ -0,0 +1,67 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.regex.Pattern;
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import com.tuempresa.chickenSuiteApp.persistencia.MonitorConsultas;
+
+/**
+ * Mide cuánto tarda cada petición a un módulo de OpenXava y la anota en
+ * LatenciaModulos. Las páginas (/m/Modulo, /modules/aplicacion/Modulo) llevan
+ * el módulo en la ruta; las llamadas AJAX de DWR (/dwr/...) no, así que se toma
+ * de la página que las hace (cabecera Referer).
+ *
+ * También abre y cierra la cuenta de sentencias de MonitorConsultas de la petición.
+ */
+public class MetricasFiltro implements Filter {
+
+    private static final Pattern NOMBRE_MODULO = Pattern.compile("[A-Za-z0-9_]{1,60}");
+
+    public void init(FilterConfig configuracion) {
+    }
+
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain cadena) throws IOException, ServletException {
+        long inicio = System.nanoTime();
+        HttpServletRequest peticion = (HttpServletRequest) request;
+        String ruta = peticion.getRequestURI().substring(peticion.getContextPath().length());
+        boolean ajax = ruta.startsWith("/dwr/");
+        String modulo = modulo(ajax ? rutaReferer(peticion) : ruta);
+        MonitorConsultas.iniciar(modulo);
+        try {
+            cadena.doFilter(request, response);
+        }
+        finally {
+            MonitorConsultas.terminar();
+            LatenciaModulos.registrar(modulo, ajax ? "ajax" : "page", System.nanoTime() - inicio);
+        }
+    }
+
+    public void destroy() {
+    }
+
+    // Módulo de una ruta relativa al contexto, o LatenciaModulos.OTRO si no es la de un módulo
+    static String modulo(String ruta) {
+        if (ruta == null) return LatenciaModulos.OTRO;
+        String[] partes = ruta.split("/");
+        String modulo = null;
+        // "", "m", Modulo  o  "", "modules", aplicacion, Modulo
+        if (partes.length >= 3 && partes[1].equals("m")) modulo = partes[2];
+        else if (partes.length >= 4 && partes[1].equals("modules")) modulo = partes[3];
+        return modulo != null && NOMBRE_MODULO.matcher(modulo).matches() ? modulo : LatenciaModulos.OTRO;
+    }
+
+    private static String rutaReferer(HttpServletRequest peticion) {
+        String referer = peticion.getHeader("Referer");
+        if (referer == null) return null;
+        try {
+            String ruta = new URI(referer).getPath();
+            return ruta != null && ruta.startsWith(peticion.getContextPath()) ? ruta.substring(peticion.getContextPath().length()) : null;
+        }
+        catch (URISyntaxException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.tuempresa.chickenSuiteApp.web;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.*;
+import java.util.*;
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import org.apache.commons.logging.*;
+import org.hibernate.stat.Statistics;
+import org.openxava.jpa.XPersistence;
+
+import com.tuempresa.chickenSuiteApp.persistencia.*;
+import com.tuempresa.chickenSuiteApp.servicios.*;
+import com.tuempresa.chickenSuiteApp.util.Configuracion;
+
+/**
+ * Métricas de la aplicación en formato de texto de Prometheus: GET /metricas.
+ *
+ * Publica la duración de las peticiones por módulo (LatenciaModulos), las
+ * estadísticas de Hibernate, el pool de conexiones, la memoria, la recolección de
+ * basura y los hilos de la JVM, la cola de ingesta y los lotes por etapa. Solo
+ * responde a un usuario con sesión, a quien envía "Authorization: Bearer" con el
+ * token de metricas.token (bearer_token en la configuración de Prometheus) o a
+ * las direcciones de metricas.direcciones.
+ */
+public class MetricasServlet extends HttpServlet {
+
+    private static final Log log = LogFactory.getLog(MetricasServlet.class);
+
+    private static final String PREFIJO_TOKEN = "Bearer ";
+
+    private static final String LOTES_POR_ETAPA =
+        "select coalesce(etapa, 'SIN_ETAPA'), count(*), coalesce(sum(cantidadVivaActual), 0) from FarmBatch group by etapa";
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (!autorizado(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        response.setContentType(EscritorMetricas.TIPO_CONTENIDO);
+        response.setHeader("Cache-Control", "no-store");
+        StringWriter texto = new StringWriter();
+        EscritorMetricas escritor = new EscritorMetricas(new PrintWriter(texto));
+        LatenciaModulos.escribir(escritor);
+        escribirHibernate(escritor);
+        escribirPool(escritor);
+        escribirJvm(escritor);
+        escribirIngesta(escritor);
+        escribirLotes(escritor);
+        response.getWriter().write(texto.toString());
+    }
+
+    /**
+     * Sin direcciones por defecto: detrás de un proxy inverso en la misma máquina
+     * todas las peticiones llegan desde 127.0.0.1, así que si se configuran el
+     * proxy tiene que cerrar /metricas e /informeConsultas al exterior.
+     */
+    static boolean autorizado(HttpServletRequest request) {
+        if (conSesion(request) || conToken(request)) return true;
+        String direcciones = Configuracion.get("metricas.direcciones", "").trim();
+        return !direcciones.isEmpty() && Arrays.asList(direcciones.split("\\s*,\\s*")).contains(request.getRemoteAddr());
+    }
+
+    static boolean conSesion(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        return session != null && session.getAttribute("xava.user") != null;
+    }
+
+    private static boolean conToken(HttpServletRequest request) {
+        String token = Configuracion.get("metricas.token", "").trim();
+        String cabecera = request.getHeader("Authorization");
+        if (token.isEmpty() || cabecera == null || !cabecera.startsWith(PREFIJO_TOKEN)) return false;
+        // Comparación en tiempo constante
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+            cabecera.substring(PREFIJO_TOKEN.length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void escribirHibernate(EscritorMetricas escritor) {
+        try {
+            Statistics estadisticas = EstadisticasCache.getEstadisticas();
+            if (!estadisticas.isStatisticsEnabled()) return;
+            escritor.metrica("hibernate_sessions_opened_total", "counter", "Sesiones de Hibernate abiertas",
+                estadisticas.getSessionOpenCount());
+            escritor.metrica("hibernate_transactions_total", "counter", "Transacciones terminadas",
+                estadisticas.getTransactionCount());
+            escritor.metrica("hibernate_statements_prepared_total", "counter", "Sentencias JDBC preparadas por Hibernate",
+                estadisticas.getPrepareStatementCount());
+            escritor.metrica("hibernate_queries_executed_total", "counter", "Consultas HQL, JPQL y SQL nativas ejecutadas",
+                estadisticas.getQueryExecutionCount());
+            escritor.metrica("hibernate_query_execution_max_seconds", "gauge", "Duración de la consulta más lenta",
+                estadisticas.getQueryExecutionMaxTime() / 1000.0);
+            escritor.metrica("hibernate_entities_loaded_total", "counter", "Entidades cargadas", estadisticas.getEntityLoadCount());
+            escritor.metrica("hibernate_entities_fetched_total", "counter", "Entidades leídas con una consulta aparte",
+                estadisticas.getEntityFetchCount());
+            escritor.metrica("hibernate_collections_loaded_total", "counter", "Colecciones cargadas",
+                estadisticas.getCollectionLoadCount());
+            escritor.metrica("hibernate_second_level_cache_hits_total", "counter", "Aciertos de la caché de segundo nivel",
+                estadisticas.getSecondLevelCacheHitCount());
+            escritor.metrica("hibernate_second_level_cache_misses_total", "counter", "Fallos de la caché de segundo nivel",
+                estadisticas.getSecondLevelCacheMissCount());
+            escritor.metrica("hibernate_second_level_cache_puts_total", "counter", "Entradas guardadas en la caché de segundo nivel",
+                estadisticas.getSecondLevelCachePutCount());
+        }
+        catch (RuntimeException ex) {
+            log.warn("No se pudieron leer las estadísticas de Hibernate", ex);
+        }
+        finally {
+            XPersistence.commit();
+        }
+    }
+
+    private static void escribirPool(EscritorMetricas escritor) {
+        try {
+            int[] pool = FuenteDatos.getEstadoPool();
+            if (pool != null) {
+                escritor.cabecera("chickensuite_db_pool_connections", "gauge", "Conexiones del pool de la base de datos");
+                escritor.valor("chickensuite_db_pool_connections", pool[0], "state", "active");
+                escritor.valor("chickensuite_db_pool_connections", pool[1], "state", "idle");
+                escritor.metrica("chickensuite_db_pool_connections_max", "gauge", "Conexiones máximas del pool", pool[2]);
+            }
+            PoolConexiones propio = FuenteDatos.getPoolPropio();
+            if (propio != null) {
+                escritor.metrica("chickensuite_db_pool_waiting", "gauge",
+                    "Peticiones esperando una conexión libre", propio.getEsperando());
+                escritor.metrica("chickensuite_db_pool_borrowed_total", "counter",
+                    "Conexiones prestadas por el pool propio", propio.getPrestadas());
+                escritor.metrica("chickensuite_db_pool_created_total", "counter",
+                    "Conexiones físicas abiertas", propio.getCreadas());
+                escritor.metrica("chickensuite_db_pool_destroyed_total", "counter",
+                    "Conexiones físicas cerradas por caducadas, inválidas o abandonadas", propio.getDestruidas());
+                escritor.metrica("chickensuite_db_pool_leak_warnings_total", "counter",
+                    "Conexiones anotadas en el log como posible fuga (pool.fugaSegundos)", propio.getPosiblesFugas());
+                escritor.cabecera("chickensuite_db_pool_borrow_wait_seconds", "gauge",
+                    "Espera para obtener una conexión del pool propio en los últimos préstamos");
+                escritor.valor("chickensuite_db_pool_borrow_wait_seconds", propio.getEsperaMediaMilisegundos() / 1000.0, "stat", "mean");
+                escritor.valor("chickensuite_db_pool_borrow_wait_seconds", propio.getEsperaMaximaMilisegundos() / 1000.0, "stat", "max");
+            }
+        }
+        catch (RuntimeException ex) {
+            log.warn("No se pudo leer el estado del pool de conexiones", ex);
+        }
+        escritor.cabecera("chickensuite_db_connection_wait_seconds", "summary",
+            "Espera para obtener una conexión del pool en los procesos JDBC de la aplicación");
+        escritor.valor("chickensuite_db_connection_wait_seconds_sum", FuenteDatos.getSegundosEsperando());
+        escritor.valor("chickensuite_db_connection_wait_seconds_count", FuenteDatos.getConexionesObtenidas());
+    }
+
+    private static void escribirJvm(EscritorMetricas escritor) {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        escritor.cabecera("jvm_memory_bytes_used", "gauge", "Memoria usada");
+        escritor.valor("jvm_memory_bytes_used", memoria.getHeapMemoryUsage().getUsed(), "area", "heap");
+        escritor.valor("jvm_memory_bytes_used", memoria.getNonHeapMemoryUsage().getUsed(), "area", "nonheap");
+        escritor.cabecera("jvm_memory_bytes_committed", "gauge", "Memoria reservada");
+        escritor.valor("jvm_memory_bytes_committed", memoria.getHeapMemoryUsage().getCommitted(), "area", "heap");
+        escritor.valor("jvm_memory_bytes_committed", memoria.getNonHeapMemoryUsage().getCommitted(), "area", "nonheap");
+        escritor.metrica("jvm_memory_bytes_max", "gauge", "Memoria máxima del heap", memoria.getHeapMemoryUsage().getMax());
+
+        List<GarbageCollectorMXBean> recolectores = ManagementFactory.getGarbageCollectorMXBeans();
+        escritor.cabecera("jvm_gc_collection_seconds", "summary", "Tiempo de recolección de basura por recolector");
+        for (GarbageCollectorMXBean recolector: recolectores) {
+            escritor.valor("jvm_gc_collection_seconds_count", recolector.getCollectionCount(), "gc", recolector.getName());
+            escritor.valor("jvm_gc_collection_seconds_sum", recolector.getCollectionTime() / 1000.0, "gc", recolector.getName());
+        }
+
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        escritor.metrica("jvm_threads_current", "gauge", "Hilos vivos", hilos.getThreadCount());
+        escritor.metrica("jvm_threads_peak", "gauge", "Máximo de hilos vivos a la vez", hilos.getPeakThreadCount());
+        escritor.metrica("process_uptime_seconds", "gauge", "Tiempo desde el arranque de la JVM",
+            ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+    }
+
+    private static void escribirIngesta(EscritorMetricas escritor) {
+        if (!ColaIngestaEventos.isIniciada()) return;
+        ColaIngestaEventos cola = ColaIngestaEventos.getInstancia();
+        escritor.metrica("chickensuite_ingest_queue_depth", "gauge", "Eventos en la cola de ingesta pendientes de guardar",
+            cola.getProfundidad());
+        escritor.metrica("chickensuite_ingest_events_saved_total", "counter", "Eventos guardados por la cola de ingesta",
+            cola.getEventosGuardados());
+        escritor.metrica("chickensuite_ingest_groups_saved_total", "counter", "Grupos guardados por la cola de ingesta",
+            cola.getGruposGuardados());
+        escritor.metrica("chickensuite_ingest_events_rejected_total", "counter", "Eventos rechazados por la cola de ingesta",
+            cola.getEventosRechazados());
+        escritor.metrica("chickensuite_ingest_last_group_seconds", "gauge", "Duración del último grupo guardado",
+            cola.getUltimaLatenciaMilisegundos() / 1000);
+    }
+
+    private static void escribirLotes(EscritorMetricas escritor) {
+        Map<String, long[]> etapas = new TreeMap<>();
+        boolean disponible = true;
+        try (Connection conexion = FuenteDatos.getConexion();
+             Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery(LOTES_POR_ETAPA)) {
+            while (rs.next()) etapas.put(rs.getString(1), new long[] {rs.getLong(2), rs.getLong(3)});
+        }
+        catch (SQLException | RuntimeException ex) {
+            log.warn("No se pudieron contar los lotes por etapa", ex);
+            disponible = false;
+        }
+        escritor.metrica("chickensuite_database_up", "gauge", "1 si la última consulta de métricas a la base de datos funcionó",
+            disponible ? 1 : 0);
+        if (!disponible) return;
+        escritor.cabecera("chickensuite_batches", "gauge", "Lotes por etapa");
+        for (Map.Entry<String, long[]> etapa: etapas.entrySet()) {
+            escritor.valor("chickensuite_batches", etapa.getValue()[0], "stage", etapa.getKey());
+        }
+        escritor.cabecera("chickensuite_live_birds", "gauge", "Aves vivas por etapa");
+        for (Map.Entry<String, long[]> etapa: etapas.entrySet()) {
+            escritor.valor("chickensuite_live_birds", etapa.getValue()[1], "stage", etapa.getKey());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+<%@ page import="java.util.Locale" %>
+<%@ page import="org.openxava.util.Labels" %>
+<%@ page import="org.openxava.util.Locales" %>
+<%@ page import="org.openxava.view.View" %>
+<%@ page import="com.tuempresa.chickenSuiteApp.servicios.DeltaKPI" %>
+<%@ page import="com.tuempresa.chickenSuiteApp.servicios.PaginadorEventos" %>
+<%@ page import="com.tuempresa.chickenSuiteApp.web.FormatoEventos" %>
+
+<jsp:useBean id="context" class="org.openxava.controller.ModuleContext" scope="session"/>
+
+<%--
+Coleccion eventos de FarmBatch sin inicializarla: las filas llegan por paginas
+desde /eventosLote al hacer scroll y los totales salen de BatchKPI.
+--%>
+
+<%
+String viewObject = request.getParameter("viewObject");
+View view = (View) context.get(request, viewObject);
+Object loteOid = view.getValue("oid");
+Locale locale = Locales.getCurrent();
+%>
+
+<% if (loteOid == null) { %>
+<div class="eventos-paginados-vacio"><%=Labels.get("eventos_sin_lote_guardado", locale)%></div>
+<% } else {
+	DeltaKPI totales = PaginadorEventos.totales(loteOid.toString());
+%>
+<div class="eventos-paginados" data-url="<%=request.getContextPath()%>/eventosLote" data-lote="<%=loteOid%>">
+<table class="xava_table">
+<thead>
+<tr>
+	<th class="ox-list-header"><%=Labels.get("fecha", locale)%></th>
+	<th class="ox-list-header"><%=Labels.get("tipo", locale)%></th>
+	<th class="ox-list-header"><%=Labels.get("kilogramosAlimento", locale)%></th>
+	<th class="ox-list-header"><%=Labels.get("muertos", locale)%></th>
+	<th class="ox-list-header"><%=Labels.get("costo", locale)%></th>
+</tr>
+</thead>
+<tbody></tbody>
+<tfoot>
+<tr class="ox-total-row">
+	<td class="ox-total-cell" colspan="2"><%=FormatoEventos.numero(totales.getEventos(), locale)%> <%=Labels.get("cantidadEventos", locale)%></td>
+	<td class="ox-total-cell"><%=FormatoEventos.numero(totales.getKilogramosAlimento(), locale)%></td>
+	<td class="ox-total-cell"><%=FormatoEventos.numero(totales.getMuertos(), locale)%></td>
+	<td class="ox-total-cell"><%=FormatoEventos.numero(totales.getCosto(), locale)%></td>
+</tr>
+</tfoot>
+</table>
+</div>
+<% } %>
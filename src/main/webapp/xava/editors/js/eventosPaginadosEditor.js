@@ -0,0 +1,43 @@
+// Carga por paginas de la coleccion de eventos (eventosPaginadosEditor.jsp)
+openxava.addEditorInitFunction(function() {
+	$(".eventos-paginados").not(".eventos-paginados-iniciado").each(function() {
+		var contenedor = $(this).addClass("eventos-paginados-iniciado");
+		var cuerpo = contenedor.find("tbody");
+		var ultimaFecha = null, ultimoOid = null;
+		var cargando = false, fin = false;
+
+		function cargar() {
+			if (cargando || fin) return;
+			cargando = true;
+			var datos = { lote: contenedor.data("lote") };
+			if (ultimoOid != null) {
+				datos.fecha = ultimaFecha;
+				datos.oid = ultimoOid;
+			}
+			$.getJSON(contenedor.data("url"), datos, function(pagina) {
+				$.each(pagina.filas, function(i, fila) {
+					var tr = $("<tr>").addClass(cuerpo.children().length % 2 == 0 ? "ox-list-pair" : "ox-list-odd");
+					tr.append($("<td>").addClass("ox-list-cell").text(fila.fecha));
+					tr.append($("<td>").addClass("ox-list-cell").text(fila.tipo));
+					tr.append($("<td>").addClass("ox-list-cell ox-text-align-right").text(fila.kilogramosAlimento));
+					tr.append($("<td>").addClass("ox-list-cell ox-text-align-right").text(fila.muertos));
+					tr.append($("<td>").addClass("ox-list-cell ox-text-align-right").text(fila.costo));
+					cuerpo.append(tr);
+					ultimaFecha = fila.clave;
+					ultimoOid = fila.oid;
+				});
+				fin = pagina.fin;
+				cargando = false;
+				// Si la primera pagina no llena el contenedor no habra scroll que pida la siguiente
+				if (!fin && contenedor[0].scrollHeight <= contenedor.innerHeight()) cargar();
+			}).fail(function() {
+				cargando = false;
+			});
+		}
+
+		contenedor.on("scroll", function() {
+			if (contenedor.scrollTop() + contenedor.innerHeight() >= contenedor[0].scrollHeight - 100) cargar();
+		});
+		cargar();
+	});
+});
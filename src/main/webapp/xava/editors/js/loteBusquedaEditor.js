@@ -0,0 +1,42 @@
+// Autocompletado del editor LoteBusqueda (loteBusquedaEditor.jsp)
+openxava.addEditorInitFunction(function() {
+	$(".lote-busqueda-texto").not(".ui-autocomplete-input").each(function() {
+		var texto = $(this);
+		var oid = texto.siblings("input[type=hidden]");
+		var elegido = texto.val();
+
+		function asignar(valor, etiqueta) {
+			elegido = etiqueta;
+			texto.val(etiqueta);
+			if (oid.val() != valor) oid.val(valor).trigger("change");
+		}
+
+		texto.autocomplete({
+			minLength: 1,
+			delay: 250,
+			source: function(peticion, respuesta) {
+				$.ajax({
+					url: texto.data("url"),
+					data: { prefijo: peticion.term },
+					dataType: "json",
+					success: respuesta,
+					error: function() { respuesta([]); }
+				});
+			},
+			focus: function(event, ui) {
+				texto.val(ui.item.label);
+				return false;
+			},
+			select: function(event, ui) {
+				asignar(ui.item.value, ui.item.label);
+				return false;
+			}
+		});
+
+		// Texto borrado: sin lote. Texto que no viene de una sugerencia: se restaura el elegido
+		texto.on("change", function() {
+			if ($.trim(texto.val()) == "") asignar("", "");
+			else texto.val(elegido);
+		});
+	});
+});
@@ -0,0 +1,34 @@
+<%@ page import="org.openxava.jpa.XPersistence" %>
+<%@ page import="org.openxava.util.Is" %>
+<%@ page import="com.tuempresa.chickenSuiteApp.modelo.FarmBatch" %>
+
+<%--
+Editor para referencias a FarmBatch: en lugar de cargar todos los lotes en un
+combo, pide sugerencias por prefijo del codigo a /buscarLotes mientras se escribe.
+--%>
+
+<%
+String propertyKey = request.getParameter("propertyKey");
+Object fvalue = request.getAttribute(propertyKey + ".fvalue");
+String oid = fvalue == null ? "" : fvalue.toString();
+String codigo = "";
+if (!Is.emptyString(oid)) {
+	FarmBatch lote = XPersistence.getManager().find(FarmBatch.class, oid);
+	if (lote != null) codigo = lote.getCodigo();
+}
+codigo = codigo.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;");
+boolean editable = "true".equals(request.getParameter("editable"));
+String script = request.getParameter("script");
+if (script == null) script = "";
+%>
+
+<% if (editable) { %>
+<span class="lote-busqueda">
+<input type="text" class="xava_editor lote-busqueda-texto" size="20" maxlength="20"
+	value="<%=codigo%>" data-url="<%=request.getContextPath()%>/buscarLotes"/>
+<input type="hidden" id="<%=propertyKey%>" name="<%=propertyKey%>" value="<%=oid%>" <%=script%>/>
+</span>
+<% } else { %>
+<input type="text" class="xava_editor" size="20" value="<%=codigo%>" disabled="disabled"/>
+<input type="hidden" name="<%=propertyKey%>" value="<%=oid%>"/>
+<% } %>